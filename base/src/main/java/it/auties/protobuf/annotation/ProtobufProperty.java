@@ -73,6 +73,7 @@ public @interface ProtobufProperty {
             AtomicValueMixin.class,
             CollectionMixin.class,
             FutureMixin.class,
+            LazyMixin.class,
             MapMixin.class,
             OptionalValueMixin.class,
             StringMixin.class,
@@ -0,0 +1,23 @@
+package it.auties.protobuf.builtin;
+
+import it.auties.protobuf.annotation.ProtobufDeserializer;
+import it.auties.protobuf.annotation.ProtobufMixin;
+import it.auties.protobuf.annotation.ProtobufSerializer;
+import it.auties.protobuf.model.ProtobufLazy;
+
+// Links ProtobufLazy to the embedded message it wraps
+// The generated code doesn't call these methods for embedded messages: it captures the bytes of the message instead,
+// and writes them back unchanged if the message was never decoded
+@SuppressWarnings("unused")
+@ProtobufMixin
+public final class LazyMixin {
+    @ProtobufDeserializer
+    public static <T> ProtobufLazy<T> ofLazy(T value) {
+        return value == null ? null : ProtobufLazy.of(value);
+    }
+
+    @ProtobufSerializer
+    public static <T> T toValue(ProtobufLazy<T> value) {
+        return value == null ? null : value.get();
+    }
+}
@@ -1,5 +1,6 @@
 package it.auties.protobuf.io;
 
+import it.auties.protobuf.exception.ProtobufDeserializationException;
 import jdk.incubator.vector.ByteVector;
 import jdk.incubator.vector.VectorSpecies;
 
@@ -13,6 +14,8 @@ import java.nio.ByteOrder;
 public sealed abstract class ProtobufIO
         implements AutoCloseable
         permits ProtobufReader, ProtobufWriter {
+    protected static final int MAX_VAR_INT_SIZE = 10;
+
     protected static final long INT8_PEXT_MASK = 0x000000000000017fL;
     protected static final long INT16_PEXT_MASK = 0x0000000000037f7fL;
     protected static final long INT32_PEXT_MASK = 0x0000000f7f7f7f7fL;
@@ -31,6 +34,7 @@ public sealed abstract class ProtobufIO
     private static final VarHandle BUFFER_AS_FLOAT = MethodHandles.byteBufferViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
     private static final VarHandle BUFFER_AS_DOUBLE = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
 
+    private static final ValueLayout.OfShort INT16_LAYOUT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
     private static final ValueLayout.OfInt INT32_LAYOUT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
     private static final ValueLayout.OfLong INT64_LAYOUT = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
     private static final ValueLayout.OfFloat FLOAT_LAYOUT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
@@ -352,19 +356,104 @@ public sealed abstract class ProtobufIO
         BUFFER_AS_DOUBLE.set(arr, offset, value);
     }
 
+    protected static int getIntLE(MemorySegment segment, long offset) {
+        return segment.get(INT32_LAYOUT, offset);
+    }
+
+    protected static long getLongLE(MemorySegment segment, long offset) {
+        return segment.get(INT64_LAYOUT, offset);
+    }
+
+    protected static float getFloatLE(MemorySegment segment, long offset) {
+        return segment.get(FLOAT_LAYOUT, offset);
+    }
+
+    protected static double getDoubleLE(MemorySegment segment, long offset) {
+        return segment.get(DOUBLE_LAYOUT, offset);
+    }
+
+    protected static void putShortLE(MemorySegment segment, long offset, short value) {
+        segment.set(INT16_LAYOUT, offset, value);
+    }
+
+    protected static void putIntLE(MemorySegment segment, long offset, int value) {
+        segment.set(INT32_LAYOUT, offset, value);
+    }
+
+    protected static void putLongLE(MemorySegment segment, long offset, long value) {
+        segment.set(INT64_LAYOUT, offset, value);
+    }
+
+    protected static void putFloatLE(MemorySegment segment, long offset, float value) {
+        segment.set(FLOAT_LAYOUT, offset, value);
+    }
+
+    protected static void putDoubleLE(MemorySegment segment, long offset, double value) {
+        segment.set(DOUBLE_LAYOUT, offset, value);
+    }
+
+    // Packed fixed values are copied with a single bulk copy, which is a plain memcpy on little endian hosts
+    protected static void putIntsLE(byte[] arr, int offset, int[] values) {
+        MemorySegment.copy(values, 0, MemorySegment.ofArray(arr), INT32_LAYOUT, offset, values.length);
+    }
+
+    protected static void putLongsLE(byte[] arr, int offset, long[] values) {
+        MemorySegment.copy(values, 0, MemorySegment.ofArray(arr), INT64_LAYOUT, offset, values.length);
+    }
+
+    protected static void putFloatsLE(byte[] arr, int offset, float[] values) {
+        MemorySegment.copy(values, 0, MemorySegment.ofArray(arr), FLOAT_LAYOUT, offset, values.length);
+    }
+
+    protected static void putDoublesLE(byte[] arr, int offset, double[] values) {
+        MemorySegment.copy(values, 0, MemorySegment.ofArray(arr), DOUBLE_LAYOUT, offset, values.length);
+    }
+
+    protected static void putIntsLE(MemorySegment segment, long offset, int[] values) {
+        MemorySegment.copy(values, 0, segment, INT32_LAYOUT, offset, values.length);
+    }
+
+    protected static void putLongsLE(MemorySegment segment, long offset, long[] values) {
+        MemorySegment.copy(values, 0, segment, INT64_LAYOUT, offset, values.length);
+    }
+
+    protected static void putFloatsLE(MemorySegment segment, long offset, float[] values) {
+        MemorySegment.copy(values, 0, segment, FLOAT_LAYOUT, offset, values.length);
+    }
+
+    protected static void putDoublesLE(MemorySegment segment, long offset, double[] values) {
+        MemorySegment.copy(values, 0, segment, DOUBLE_LAYOUT, offset, values.length);
+    }
+
     protected static int[] toIntArrayLE(MemorySegment segment) {
+        if (segment.byteSize() % Integer.BYTES != 0) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+
         return segment.toArray(INT32_LAYOUT);
     }
 
     protected static long[] toLongArrayLE(MemorySegment segment) {
+        if (segment.byteSize() % Long.BYTES != 0) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+
         return segment.toArray(INT64_LAYOUT);
     }
 
     protected static float[] toFloatArrayLE(MemorySegment segment) {
+        if (segment.byteSize() % Float.BYTES != 0) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+
         return segment.toArray(FLOAT_LAYOUT);
     }
 
     protected static double[] toDoubleArrayLE(MemorySegment segment) {
+        if (segment.byteSize() % Double.BYTES != 0) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+
         return segment.toArray(DOUBLE_LAYOUT);
     }
 
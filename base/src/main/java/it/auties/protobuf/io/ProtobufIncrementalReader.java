@@ -0,0 +1,305 @@
+package it.auties.protobuf.io;
+
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.model.ProtobufWireType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A push based reader that decodes a message from chunks of bytes as they arrive,
+ * like the buffers filled by a non-blocking channel in an event loop.
+ * <p>
+ * Unlike {@link ProtobufReader}, which expects the whole message to be available,
+ * this reader keeps its place in the tag/length state machine between calls to {@link #feed(ByteBuffer)}
+ * and reports every field to a {@link Listener} as soon as its last byte arrives.
+ * It never blocks, never re-scans bytes it already consumed and never aggregates the chunks in a contiguous buffer:
+ * length delimited payloads are handed to the listener in the chunks they arrived in,
+ * or decoded in place as embedded messages if the listener asks so.
+ *
+ * @see ProtobufReader
+ */
+public final class ProtobufIncrementalReader {
+    private static final int STATE_TAG = 0;
+    private static final int STATE_VAR_INT = 1;
+    private static final int STATE_FIXED32 = 2;
+    private static final int STATE_FIXED64 = 3;
+    private static final int STATE_LENGTH = 4;
+    private static final int STATE_PAYLOAD = 5;
+
+    private static final int DEFAULT_DEPTH = 8;
+
+    private final Listener listener;
+    private int state;
+    private int wireType;
+    private long index;
+    private long position;
+
+    // The var int or fixed value being read and how many of its bits were read so far
+    private long value;
+    private int valueShift;
+
+    private long payloadRemaining;
+
+    // The end position and field index of every embedded message being decoded
+    private long[] limits;
+    private long[] limitIndexes;
+    private int depth;
+
+    public ProtobufIncrementalReader(Listener listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        this.listener = listener;
+        this.limits = new long[DEFAULT_DEPTH];
+        this.limitIndexes = new long[DEFAULT_DEPTH];
+    }
+
+    /**
+     * Receives the fields decoded by a {@link ProtobufIncrementalReader}
+     */
+    public interface Listener {
+        void onVarInt(long index, long value);
+
+        void onFixed32(long index, int value);
+
+        void onFixed64(long index, long value);
+
+        // Return true to decode the payload as an embedded message, whose fields will be reported before onLengthDelimitedEnd,
+        // or false to receive it as raw bytes through onLengthDelimitedData
+        boolean onLengthDelimitedStart(long index, int length);
+
+        // The chunk is only valid for the duration of the call
+        void onLengthDelimitedData(long index, ByteBuffer chunk);
+
+        void onLengthDelimitedEnd(long index);
+
+        void onStartGroup(long index);
+
+        void onEndGroup(long index);
+    }
+
+    /**
+     * Decodes all the remaining bytes in the chunk, reporting every field that is completed to the listener.
+     * A field that is cut at the end of the chunk is completed by the next call.
+     *
+     * @param chunk the next bytes of the message, consumed entirely
+     * @throws ProtobufDeserializationException if the bytes are not a valid message
+     */
+    public void feed(ByteBuffer chunk) {
+        Objects.requireNonNull(chunk, "chunk cannot be null");
+        while (chunk.hasRemaining()) {
+            switch (state) {
+                case STATE_TAG -> {
+                    if (readVarInt(chunk)) {
+                        onTag((int) takeValue());
+                    }
+                }
+                case STATE_VAR_INT -> {
+                    if (readVarInt(chunk)) {
+                        listener.onVarInt(index, takeValue());
+                        onFieldEnd();
+                    }
+                }
+                case STATE_FIXED32 -> {
+                    if (readFixed(chunk, Integer.SIZE)) {
+                        listener.onFixed32(index, (int) takeValue());
+                        onFieldEnd();
+                    }
+                }
+                case STATE_FIXED64 -> {
+                    if (readFixed(chunk, Long.SIZE)) {
+                        listener.onFixed64(index, takeValue());
+                        onFieldEnd();
+                    }
+                }
+                case STATE_LENGTH -> {
+                    if (readVarInt(chunk)) {
+                        onLength(takeValue());
+                    }
+                }
+                case STATE_PAYLOAD -> readPayload(chunk);
+                default -> throw new IllegalStateException("Unexpected state: " + state);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the bytes fed so far end exactly at the end of a top level field
+     *
+     * @return true if no field or embedded message is partially decoded
+     */
+    public boolean isAtFieldBoundary() {
+        return state == STATE_TAG && valueShift == 0 && depth == 0;
+    }
+
+    /**
+     * Signals that no more bytes will be fed
+     *
+     * @throws ProtobufDeserializationException if the message ended in the middle of a field
+     */
+    public void finish() {
+        if (!isAtFieldBoundary()) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+    }
+
+    /**
+     * Returns the number of bytes consumed so far
+     *
+     * @return a non-negative number
+     */
+    public long position() {
+        return position;
+    }
+
+    private void onTag(int rawTag) {
+        this.wireType = rawTag & 7;
+        this.index = rawTag >>> 3;
+        if (index == 0) {
+            throw ProtobufDeserializationException.invalidFieldIndex(index);
+        }
+
+        switch (wireType) {
+            case ProtobufWireType.WIRE_TYPE_VAR_INT -> state = STATE_VAR_INT;
+            case ProtobufWireType.WIRE_TYPE_FIXED32 -> state = STATE_FIXED32;
+            case ProtobufWireType.WIRE_TYPE_FIXED64 -> state = STATE_FIXED64;
+            case ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED -> state = STATE_LENGTH;
+            case ProtobufWireType.WIRE_TYPE_START_OBJECT -> {
+                listener.onStartGroup(index);
+                onFieldEnd();
+            }
+            case ProtobufWireType.WIRE_TYPE_END_OBJECT -> {
+                listener.onEndGroup(index);
+                onFieldEnd();
+            }
+            default -> throw ProtobufDeserializationException.invalidWireType(wireType);
+        }
+    }
+
+    private void onLength(long length) {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw ProtobufDeserializationException.negativeLength((int) length);
+        } else if (depth > 0 && position + length > limits[depth - 1]) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
+
+        if (!listener.onLengthDelimitedStart(index, (int) length)) {
+            payloadRemaining = length;
+            state = STATE_PAYLOAD;
+            if (length == 0) {
+                listener.onLengthDelimitedEnd(index);
+                onFieldEnd();
+            }
+        } else {
+            if (depth == limits.length) {
+                limits = Arrays.copyOf(limits, depth * 2);
+                limitIndexes = Arrays.copyOf(limitIndexes, depth * 2);
+            }
+
+            limits[depth] = position + length;
+            limitIndexes[depth++] = index;
+            onFieldEnd();
+        }
+    }
+
+    private void readPayload(ByteBuffer chunk) {
+        var length = (int) Math.min(chunk.remaining(), payloadRemaining);
+        var offset = chunk.position();
+        var data = chunk.slice(offset, length);
+        chunk.position(offset + length);
+        position += length;
+        payloadRemaining -= length;
+        listener.onLengthDelimitedData(index, data);
+        if (payloadRemaining == 0) {
+            listener.onLengthDelimitedEnd(index);
+            onFieldEnd();
+        }
+    }
+
+    // Closes every embedded message that ends with the field that was just read
+    private void onFieldEnd() {
+        state = STATE_TAG;
+        while (depth > 0) {
+            var limit = limits[depth - 1];
+            if (position < limit) {
+                return;
+            } else if (position > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            }
+
+            listener.onLengthDelimitedEnd(limitIndexes[--depth]);
+        }
+    }
+
+    private long takeValue() {
+        var result = value;
+        value = 0;
+        valueShift = 0;
+        return result;
+    }
+
+    // Var ints that are in the chunk entirely are decoded a word at a time, like in ProtobufReader,
+    // the ones that are cut at its end are accumulated a byte at a time
+    private boolean readVarInt(ByteBuffer chunk) {
+        if (valueShift == 0 && chunk.remaining() >= Long.BYTES * 2) {
+            var offset = chunk.position();
+            var b0 = ProtobufIO.getLongLE(chunk, offset);
+            var b1 = ProtobufIO.getLongLE(chunk, offset + Long.BYTES);
+            var msbB0 = ~b0 & ~ProtobufIO.INT64_PEXT_MASK_LOW;
+            var msbB1 = ~b1 & ~ProtobufIO.INT64_PEXT_MASK_LOW;
+
+            var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+            var lenB1 = Long.numberOfTrailingZeros(msbB1) + 1;
+
+            var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+            var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
+
+            var length = (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
+            if (length > ProtobufIO.MAX_VAR_INT_SIZE) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
+
+            value = Long.compress(partB0, ProtobufIO.INT64_PEXT_MASK_LOW)
+                    | (Long.compress(partB1, ProtobufIO.INT64_PEXT_MASK_HIGH) << 56);
+            chunk.position(offset + length);
+            position += length;
+            return true;
+        }
+
+        while (chunk.hasRemaining()) {
+            var read = chunk.get();
+            position++;
+            value |= (long) (read & 0x7F) << valueShift;
+            valueShift += 7;
+            if (read >= 0) {
+                return true;
+            } else if (valueShift >= ProtobufIO.MAX_VAR_INT_SIZE * 7) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
+        }
+
+        return false;
+    }
+
+    private boolean readFixed(ByteBuffer chunk, int size) {
+        if (valueShift == 0 && chunk.remaining() >= Long.BYTES) {
+            var offset = chunk.position();
+            var bytes = size / Byte.SIZE;
+            value = size == Long.SIZE ? ProtobufIO.getLongLE(chunk, offset) : ProtobufIO.getIntLE(chunk, offset);
+            chunk.position(offset + bytes);
+            position += bytes;
+            return true;
+        }
+
+        while (chunk.hasRemaining()) {
+            value |= (chunk.get() & 0xFFL) << valueShift;
+            position++;
+            valueShift += Byte.SIZE;
+            if (valueShift == size) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -14,17 +14,36 @@ import it.auties.protobuf.exception.ProtobufDeserializationException;
 import it.auties.protobuf.model.ProtobufUnknownValue;
 import it.auties.protobuf.model.ProtobufWireType;
 import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
 import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.HashMap;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An abstract input stream for reading Protocol Buffer encoded data.
@@ -37,6 +56,20 @@ import java.util.Objects;
  * @see ProtobufWriter
  */
 public abstract non-sealed class ProtobufReader extends ProtobufIO {
+    private static final int DEFAULT_STREAM_BUFFER_LENGTH = 8192;
+    // The word at a time var int decoding needs two full words in the buffer
+    private static final int MIN_STREAM_BUFFER_LENGTH = Long.BYTES * 2;
+    private static final int DEFAULT_DELIMITED_FRAMES = 1024;
+    private static final int MIN_DELIMITED_BATCH = 64;
+    private static final int UNKNOWN_GROUP_INITIAL_LENGTH = 8;
+    // Empty groups share these, their arrays are never written
+    private static final long[] EMPTY_GROUP_INDEXES = new long[0];
+    private static final ProtobufUnknownValue[] EMPTY_GROUP_VALUES = new ProtobufUnknownValue[0];
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    // Each platform thread keeps one byte array reader for decodePooled
+    private static final ThreadLocal<ByteArrayReader> POOLED_READER = ThreadLocal.withInitial(() -> new ByteArrayReader(EMPTY_BYTES, 0, 0));
+
     protected int wireType;
     protected long index;
     protected ProtobufReader() {
@@ -56,15 +89,141 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
     }
 
     public static ProtobufReader fromStream(InputStream buffer) {
-        return new InputStreamReader(buffer, true);
+        return new InputStreamReader(buffer, true, DEFAULT_STREAM_BUFFER_LENGTH);
     }
 
     public static ProtobufReader fromStream(InputStream buffer, boolean autoclose) {
-        return new InputStreamReader(buffer, autoclose);
+        return new InputStreamReader(buffer, autoclose, DEFAULT_STREAM_BUFFER_LENGTH);
+    }
+
+    public static ProtobufReader fromStream(InputStream buffer, int bufferSize) {
+        return new InputStreamReader(buffer, true, bufferSize);
+    }
+
+    public static ProtobufReader fromStream(InputStream buffer, boolean autoclose, int bufferSize) {
+        return new InputStreamReader(buffer, autoclose, bufferSize);
     }
 
     public static ProtobufReader fromMemorySegment(MemorySegment segment) {
-        return new MemorySegmentReader(segment);
+        return new MemorySegmentReader(segment, null);
+    }
+
+    // The file is mapped in a shared arena that is closed with the reader:
+    // bytes, strings and unknown fields read from it are slices of the mapping, so they must not be used after that
+    public static ProtobufReader fromFile(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fromChannel(channel);
+        }
+    }
+
+    // The mapping lives as long as the arena, which is not closed with the reader
+    public static ProtobufReader fromFile(Path path, Arena arena) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fromChannel(channel, arena);
+        }
+    }
+
+    public static ProtobufReader fromChannel(FileChannel channel) throws IOException {
+        var arena = Arena.ofShared();
+        try {
+            var segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new MemorySegmentReader(segment, arena);
+        } catch (Throwable throwable) {
+            arena.close();
+            throw throwable;
+        }
+    }
+
+    public static ProtobufReader fromChannel(FileChannel channel, Arena arena) throws IOException {
+        var segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        return new MemorySegmentReader(segment, null);
+    }
+
+    // In memory sources of length prefixed messages, like the ones written by ProtobufWriter.writeDelimited, can be split on frame boundaries:
+    // the source is read as a memory segment, so bytes and strings are decoded as slices of it
+    public static <T> Stream<T> delimitedStream(byte[] source, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return delimitedStream(MemorySegment.ofArray(source), decoder);
+    }
+
+    public static <T> Stream<T> delimitedStream(ByteBuffer source, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return delimitedStream(MemorySegment.ofBuffer(source), decoder);
+    }
+
+    public static <T> Stream<T> delimitedStream(MemorySegment source, Function<? super ProtobufReader, ? extends T> decoder) {
+        return StreamSupport.stream(delimitedSpliterator(source, decoder), false);
+    }
+
+    public static <T> Spliterator<T> delimitedSpliterator(MemorySegment source, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(decoder, "decoder cannot be null");
+        return new DelimitedSpliterator<>(new MemorySegmentReader(source, null), decoder);
+    }
+
+    public static <T> List<T> readDelimitedParallel(byte[] source, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return readDelimitedParallel(MemorySegment.ofArray(source), decoder, ForkJoinPool.commonPool());
+    }
+
+    public static <T> List<T> readDelimitedParallel(byte[] source, Function<? super ProtobufReader, ? extends T> decoder, ForkJoinPool pool) {
+        Objects.requireNonNull(source, "source cannot be null");
+        return readDelimitedParallel(MemorySegment.ofArray(source), decoder, pool);
+    }
+
+    public static <T> List<T> readDelimitedParallel(MemorySegment source, Function<? super ProtobufReader, ? extends T> decoder) {
+        return readDelimitedParallel(source, decoder, ForkJoinPool.commonPool());
+    }
+
+    // Decodes every length prefixed message in the source, preserving their order:
+    // the frames are found first by hopping over the length prefixes, then decoded in parallel into a pre-sized array.
+    // Use a shared arena for native segments, as the frames are decoded by the pool's threads
+    public static <T> List<T> readDelimitedParallel(MemorySegment source, Function<? super ProtobufReader, ? extends T> decoder, ForkJoinPool pool) {
+        Objects.requireNonNull(source, "source cannot be null");
+        Objects.requireNonNull(decoder, "decoder cannot be null");
+        Objects.requireNonNull(pool, "pool cannot be null");
+        var offsets = new long[DEFAULT_DELIMITED_FRAMES];
+        var count = 0;
+        var scanner = new MemorySegmentReader(source, null);
+        while (!scanner.isFinished()) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+
+            offsets[count++] = scanner.position;
+            scanner.skipRawBytes(scanner.readLengthDelimitedPropertyLength());
+        }
+
+        var results = new Object[count];
+        var batchSize = Math.max(MIN_DELIMITED_BATCH, count / (pool.getParallelism() * 8));
+        pool.invoke(new DelimitedDecodeTask(source, decoder, offsets, results, 0, count, batchSize));
+        @SuppressWarnings("unchecked")
+        var list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    // Decodes a message from a byte array with a reader owned by the current thread, instead of allocating one for each message
+    // A new reader is used if the thread's reader is already decoding, or if the thread is virtual,
+    // as a thread local would keep a reader alive for each virtual thread and they are rarely reused.
+    // The reader is reset to an empty array once the decoder returns, so it doesn't keep the input alive
+    public static <T> T decodePooled(byte[] bytes, int offset, int length, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(decoder, "decoder cannot be null");
+        if(Thread.currentThread().isVirtual()) {
+            return decoder.apply(fromBytes(bytes, offset, length));
+        }
+
+        var reader = POOLED_READER.get();
+        if(reader.acquired) {
+            return decoder.apply(fromBytes(bytes, offset, length));
+        }
+
+        reader.reset(bytes, offset, length);
+        reader.acquired = true;
+        try {
+            return decoder.apply(reader);
+        } finally {
+            reader.acquired = false;
+            reader.reset(EMPTY_BYTES, 0, 0);
+        }
     }
 
     public int propertyWireType() {
@@ -120,6 +279,42 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
         }
     }
 
+    // Descends into an embedded message on this reader instead of allocating a child reader:
+    // the returned limit must be passed to popLimit once the message has been read
+    public long pushLengthDelimitedPropertyLimit() {
+        if(wireType != ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED) {
+            throw ProtobufDeserializationException.invalidWireType(wireType);
+        } else {
+            var size = readLengthDelimitedPropertyLength();
+            var result = pushLimit(size);
+            resetPropertyTag();
+            return result;
+        }
+    }
+
+    // Reads a length prefixed message, the framing used by writeDelimited, on this reader
+    // The reader is moved to the end of the frame even if the decoder throws, so the caller can move on to the next one
+    public <T> T readDelimited(Function<? super ProtobufReader, ? extends T> decoder) {
+        var limit = pushLimit(readLengthDelimitedPropertyLength());
+        try {
+            return decoder.apply(this);
+        } finally {
+            popLimit(limit);
+            resetState();
+        }
+    }
+
+    // The messages are decoded lazily, as the iterator or stream is consumed
+    public <T> Iterator<T> delimitedIterator(Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(decoder, "decoder cannot be null");
+        return new DelimitedIterator<>(this, decoder);
+    }
+
+    public <T> Stream<T> delimitedStream(Function<? super ProtobufReader, ? extends T> decoder) {
+        var spliterator = Spliterators.spliteratorUnknownSize(this.<T>delimitedIterator(decoder), Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false);
+    }
+
     public void readStartGroupProperty(long groupIndex) {
         if((wireType == -1 && !readPropertyTag()) || wireType != ProtobufWireType.WIRE_TYPE_START_OBJECT || index != groupIndex) {
             throw ProtobufDeserializationException.invalidStartObject(groupIndex);
@@ -190,7 +385,9 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
         if(wireType != ProtobufWireType.WIRE_TYPE_VAR_INT) {
             throw ProtobufDeserializationException.invalidWireType(wireType);
         } else {
-            return readRawZigZagVarInt32();
+            var result = readRawZigZagVarInt32();
+            resetPropertyTag();
+            return result;
         }
     }
 
@@ -262,33 +459,52 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
         return switch (wireType) {
             case ProtobufWireType.WIRE_TYPE_FIXED32 -> {
                 var value = readRawFixedInt32();
+                resetPropertyTag();
                 yield new ProtobufUnknownValue.Fixed32(value);
             }
             case ProtobufWireType.WIRE_TYPE_FIXED64 -> {
                 var value = readRawFixedInt64();
+                resetPropertyTag();
                 yield new ProtobufUnknownValue.Fixed64(value);
             }
             case ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED -> {
                 var size = readLengthDelimitedPropertyLength();
-                yield switch (rawDataTypePreference()) {
+                var value = switch (rawDataTypePreference()) {
                     case BYTE_ARRAY -> new ProtobufUnknownValue.LengthDelimited.AsByteArray(readRawBytes(size));
                     case BYTE_BUFFER -> new ProtobufUnknownValue.LengthDelimited.AsByteBuffer(readRawBuffer(size));
                     case MEMORY_SEGMENT -> new ProtobufUnknownValue.LengthDelimited.AsMemorySegment(readRawMemorySegment(size));
                 };
+                resetPropertyTag();
+                yield value;
             }
             case ProtobufWireType.WIRE_TYPE_START_OBJECT -> {
-                var result = new HashMap<Long, ProtobufUnknownValue>();
+                // Parallel arrays keep the order and the repeated occurrences of the properties without boxing their indexes
+                // They are allocated by the first property and trimmed only if they aren't full
+                var indexes = EMPTY_GROUP_INDEXES;
+                var values = EMPTY_GROUP_VALUES;
+                var size = 0;
                 var index = this.index;
+                resetPropertyTag();
                 while (readPropertyTag()) {
-                    var key = this.index;
-                    var value = readUnknownProperty();
-                    result.put(key, value);
+                    if(size == indexes.length) {
+                        var length = Math.max(UNKNOWN_GROUP_INITIAL_LENGTH, size << 1);
+                        indexes = Arrays.copyOf(indexes, length);
+                        values = Arrays.copyOf(values, length);
+                    }
+                    indexes[size] = this.index;
+                    values[size] = readUnknownProperty();
+                    size++;
                 }
                 readEndGroupProperty(index);
-                yield new ProtobufUnknownValue.Group(result);
+                if(size != indexes.length) {
+                    indexes = Arrays.copyOf(indexes, size);
+                    values = Arrays.copyOf(values, size);
+                }
+                yield new ProtobufUnknownValue.Group(indexes, values);
             }
             case ProtobufWireType.WIRE_TYPE_VAR_INT -> {
                 var value = readRawVarInt64();
+                resetPropertyTag();
                 yield new ProtobufUnknownValue.VarInt(value);
             }
             default -> throw ProtobufDeserializationException.invalidWireType(wireType);
@@ -437,6 +653,7 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
             }
             case ProtobufWireType.WIRE_TYPE_START_OBJECT -> {
                 var index = this.index;
+                resetPropertyTag();
                 while (readPropertyTag()) {
                     skipUnknownProperty();
                 }
@@ -456,6 +673,20 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
         throw ProtobufDeserializationException.malformedVarInt();
     }
 
+    // Byte at a time fallback used by the word based decoders when there aren't enough bytes left to perform a wide load
+    protected long readRawVarInt64Slow() {
+        var result = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            var read = readRawByte();
+            result |= (long) (read & 0x7F) << shift;
+            if ((read & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw ProtobufDeserializationException.malformedVarInt();
+    }
+
     public int readRawZigZagVarInt32() {
         var value = readRawVarInt32();
         var unsigned = Integer.toUnsignedLong(value);
@@ -493,264 +724,928 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
     public abstract ProtobufReader readRawLengthDelimited(int size);
 
+    // Bounds the reader to the next size bytes, so isFinished returns true at the end of the embedded message,
+    // and returns the previous limit. popLimit skips whatever the caller didn't read and restores that limit
+    public abstract long pushLimit(int size);
+    public abstract void popLimit(long previousLimit);
+
     public abstract boolean isFinished();
 
-    private static final class ByteArrayReader extends ProtobufReader {
-        private final byte[] buffer;
-        private final int limit;
-        private int offset;
+    // The reset methods make the reader read from a new source, so that a pooled reader can decode many messages
+    // The property tag read from the previous source, if any, is discarded
+    public void reset(byte[] bytes, int offset, int length) {
+        throw new UnsupportedOperationException("This reader can't read from a byte array");
+    }
 
-        ByteArrayReader(byte[] buffer, int offset, int limit) {
-            Objects.requireNonNull(buffer, "buffer cannot be null");
-            Objects.checkFromToIndex(offset, limit, buffer.length);
-            this.buffer = buffer;
-            this.offset = offset;
-            this.limit = limit;
-        }
+    public void reset(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("This reader can't read from a buffer");
+    }
 
-        @Override
-        public byte readRawByte() {
-            if (offset >= limit) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } else {
-                return buffer[offset++];
+    public void reset(MemorySegment segment) {
+        throw new UnsupportedOperationException("This reader can't read from a memory segment");
+    }
+
+    protected void resetState() {
+        this.wireType = -1;
+        this.index = -1;
+    }
+
+    // The lookup tables in ProtobufIO describe 128 bit shuffles: precompute them once as vector shuffles
+    // Invalid lanes are marked with -1 in the tables, so the shuffle points them at lane zero and the mask clears them
+    private static final VectorShuffle<Byte>[] QUAD_SHUFFLES = toShuffles(LOOKUP_QUAD_VEC);
+    private static final VectorMask<Byte>[] QUAD_MASKS = toMasks(LOOKUP_QUAD_VEC);
+
+    private static final int QUAD_MAX_LENGTH = 3;
+
+    @SuppressWarnings("unchecked")
+    private static VectorShuffle<Byte>[] toShuffles(int[][] table) {
+        var results = (VectorShuffle<Byte>[]) new VectorShuffle[table.length];
+        for (var i = 0; i < table.length; i++) {
+            var indexes = new int[V128.length()];
+            for (var lane = 0; lane < indexes.length; lane++) {
+                indexes[lane] = Math.max(table[i][lane], 0);
             }
+            results[i] = VectorShuffle.fromArray(V128, indexes, 0);
         }
+        return results;
+    }
 
-        @Override
-        public byte[] readRawBytes(int size) {
-            try {
-                var result = new byte[size];
-                System.arraycopy(buffer, offset, result, 0, size);
-                offset += size;
-                return result;
-            } catch (NegativeArraySizeException _) {
-                throw ProtobufDeserializationException.negativeLength(size);
-            } catch (IndexOutOfBoundsException error) {
-                throw ProtobufDeserializationException.truncatedMessage();
+    @SuppressWarnings("unchecked")
+    private static VectorMask<Byte>[] toMasks(int[][] table) {
+        var results = (VectorMask<Byte>[]) new VectorMask[table.length];
+        for (var i = 0; i < table.length; i++) {
+            var lanes = new boolean[V128.length()];
+            for (var lane = 0; lane < lanes.length; lane++) {
+                lanes[lane] = table[i][lane] >= 0;
             }
+            results[i] = VectorMask.fromArray(V128, lanes, 0);
         }
+        return results;
+    }
 
-        @Override
-        public ByteBuffer readRawBuffer(int size) {
-            try {
-                var result = ByteBuffer.wrap(buffer, offset, size);
-                offset += size;
-                return result;
-            } catch (IndexOutOfBoundsException error) {
-                if (size < 0) {
-                    throw ProtobufDeserializationException.negativeLength(size);
-                } else {
-                    throw ProtobufDeserializationException.truncatedMessage();
-                }
+    // Every var int ends with exactly one byte whose msb is clear, so counting those bytes gives the number of values
+    private static int countVarInts(MemorySegment segment) {
+        var len = segment.byteSize();
+        var count = 0;
+        var i = 0L;
+
+        if (SUPPORTS_V512) {
+            var bound512 = V512.loopBound(len);
+            for (; i < bound512; i += V512.length()) {
+                count += ByteVector.fromMemorySegment(V512, segment, i, ByteOrder.LITTLE_ENDIAN)
+                        .compare(VectorOperators.GE, (byte) 0)
+                        .trueCount();
             }
         }
 
-        @Override
-        public MemorySegment readRawMemorySegment(int size) {
-            try {
-                var result = MemorySegment.ofBuffer(ByteBuffer.wrap(buffer, offset, offset + size));
-                offset += size;
-                return result;
-            } catch (IndexOutOfBoundsException error) {
-                if (size < 0) {
-                    throw ProtobufDeserializationException.negativeLength(size);
-                } else {
-                    throw ProtobufDeserializationException.truncatedMessage();
-                }
+        if(SUPPORTS_V256) {
+            var bound256 = i + V256.loopBound(len - i);
+            for (; i < bound256; i += V256.length()) {
+                count += ByteVector.fromMemorySegment(V256, segment, i, ByteOrder.LITTLE_ENDIAN)
+                        .compare(VectorOperators.GE, (byte) 0)
+                        .trueCount();
             }
         }
 
-        @Override
-        public DataType rawDataTypePreference() {
-            return DataType.BYTE_ARRAY;
+        if(SUPPORTS_V128) {
+            var bound128 = i + V128.loopBound(len - i);
+            for (; i < bound128; i += V128.length()) {
+                count += ByteVector.fromMemorySegment(V128, segment, i, ByteOrder.LITTLE_ENDIAN)
+                        .compare(VectorOperators.GE, (byte) 0)
+                        .trueCount();
+            }
         }
 
-        @Override
-        public boolean isFinished() {
-            return offset >= limit;
+        if(SUPPORTS_V64) {
+            var bound64 = i + V64.loopBound(len - i);
+            for (; i < bound64; i += V64.length()) {
+                count += ByteVector.fromMemorySegment(V64, segment, i, ByteOrder.LITTLE_ENDIAN)
+                        .compare(VectorOperators.GE, (byte) 0)
+                        .trueCount();
+            }
         }
 
-        @Override
-        public void skipRawBytes(int size) {
-            if (size < 0) {
-                throw new IllegalArgumentException("size cannot be negative");
-            } else {
-                offset += size;
-                if (offset > limit) {
-                    throw ProtobufDeserializationException.truncatedMessage();
-                }
+        for (; i < len; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) >= 0) {
+                count++;
             }
         }
 
-        @Override
-        public int readRawFixedInt32() {
-            if (offset + Integer.BYTES > limit) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } else {
-                var result = getIntLE(buffer, offset);
-                offset += Integer.BYTES;
-                return result;
+        return count;
+    }
+
+    // Masked-VByte: the continuation bits of a 16 byte window select a shuffle from the lookup tables
+    // that spreads the next var ints into their own lanes, where they can be decoded in parallel.
+    // Runs of single byte var ints are widened directly, longer var ints are decoded one word at a time.
+    // The continuation bits are gathered with a scalar bit compress, which is cheaper than a vector mask round trip,
+    // and the helpers load and store their own vectors so that they stay intrinsified even when they can't be inlined.
+    private static int[] decodePackedVarInt32(MemorySegment source, boolean zigZag) {
+        var results = new int[countVarInts(source)];
+        var length = source.byteSize();
+        var offset = 0L;
+        var count = 0;
+        while (count < results.length) {
+            if (length - offset < V128.length()) {
+                var start = offset;
+                offset = skipVarInt(source, offset, length);
+                var value = (int) decodeVarInt(source, start);
+                results[count++] = zigZag ? decodeZigZag(value) : value;
+                continue;
             }
-        }
 
-        @Override
-        public long readRawFixedInt64() {
-            if (offset + Long.BYTES > limit) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } else {
-                var result = getLongLE(buffer, offset);
-                offset += Long.BYTES;
-                return result;
+            var continuations = getContinuationBits(source, offset);
+            if (continuations == 0) {
+                var size = widenSingleByteVarInts(source, offset, length, zigZag, results, count);
+                offset += size;
+                count += size;
+                continue;
             }
-        }
 
-        @Override
-        public float readRawFloat() {
-            if (offset + Float.BYTES > limit) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } else {
-                var result = getFloatLE(buffer, offset);
-                offset += Float.BYTES;
-                return result;
+            var quad = LOOKUP_QUAD_STEP1[(int) (continuations & 0xFFF)];
+            if (isQuad(quad)) {
+                decodeQuad(source, offset, quad, zigZag, results, count);
+                offset += getFirstLength(quad) + getSecondLength(quad) + getThirdLength(quad) + getFourthLength(quad);
+                count += 4;
+                continue;
             }
+
+            // Long var ints usually come in runs: stay on the scalar path until a short one shows up
+            long start;
+            do {
+                start = offset;
+                offset = decodeVarInt(source, offset, zigZag, results, count++);
+            } while (offset - start > QUAD_MAX_LENGTH && count < results.length && length - offset >= V128.length());
         }
 
-        @Override
-        public double readRawDouble() {
-            if (offset + Double.BYTES > limit) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } else {
-                var result = getDoubleLE(buffer, offset);
-                offset += Double.BYTES;
-                return result;
-            }
+        if (offset != length) {
+            throw ProtobufDeserializationException.truncatedMessage();
         }
 
-        @Override
-        public ByteArrayReader readRawLengthDelimited(int size) {
-            try {
-                var result = new ByteArrayReader(buffer, offset, offset + size);
+        return results;
+    }
+
+    private static long[] decodePackedVarInt64(MemorySegment source, boolean zigZag) {
+        var results = new long[countVarInts(source)];
+        var length = source.byteSize();
+        var offset = 0L;
+        var count = 0;
+        while (count < results.length) {
+            if (length - offset < V128.length()) {
+                var start = offset;
+                offset = skipVarInt(source, offset, length);
+                var value = decodeVarInt(source, start);
+                results[count++] = zigZag ? decodeZigZag(value) : value;
+                continue;
+            }
+
+            var continuations = getContinuationBits(source, offset);
+            if (continuations == 0) {
+                var size = widenSingleByteVarInts(source, offset, length, zigZag, results, count);
                 offset += size;
-                return result;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufDeserializationException.truncatedMessage();
+                count += size;
+                continue;
             }
-        }
 
-        @Override
-        public void close() {
+            var quad = LOOKUP_QUAD_STEP1[(int) (continuations & 0xFFF)];
+            if (isQuad(quad)) {
+                decodeQuad(source, offset, quad, zigZag, results, count);
+                offset += getFirstLength(quad) + getSecondLength(quad) + getThirdLength(quad) + getFourthLength(quad);
+                count += 4;
+                continue;
+            }
 
+            // Long var ints usually come in runs: stay on the scalar path until a short one shows up
+            long start;
+            do {
+                start = offset;
+                offset = decodeVarInt(source, offset, zigZag, results, count++);
+            } while (offset - start > QUAD_MAX_LENGTH && count < results.length && length - offset >= V128.length());
         }
 
-        @Override
-        public int readRawVarInt32() {
-            var value = getLongLE(buffer, offset);
-            var mostSignificantBits = ~value & ~INT64_PEXT_MASK_LOW;
-            var lengthInBits = Long.numberOfTrailingZeros(mostSignificantBits) + 1;
-            var varIntPart = value & (mostSignificantBits ^ (mostSignificantBits - 1));
-            var result = (int) Long.compress(varIntPart, INT32_PEXT_MASK);
-            offset += lengthInBits >>> 3;
-            return result;
+        if (offset != length) {
+            throw ProtobufDeserializationException.truncatedMessage();
         }
 
-        @Override
-        public long readRawVarInt64() {
-            var b0 = getLongLE(buffer, offset);
-            var b1 = getLongLE(buffer, offset + 8);
+        return results;
+    }
 
-            var msbB0 = ~b0 & ~INT64_PEXT_MASK_LOW;
-            var msbB1 = ~b1 & ~INT64_PEXT_MASK_LOW;
+    // Bools are var ints too, but only whether any of their value bits is set matters
+    private static boolean[] decodePackedBool(MemorySegment source) {
+        var results = new boolean[countVarInts(source)];
+        var length = source.byteSize();
+        var offset = 0L;
+        var count = 0;
+        while (count < results.length) {
+            if (length - offset < V128.length()) {
+                var start = offset;
+                offset = skipVarInt(source, offset, length);
+                results[count++] = decodeVarInt(source, start) != 0;
+                continue;
+            }
 
-            var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
-            var lenB1 = Long.numberOfTrailingZeros(msbB1) + 1;
+            if (getContinuationBits(source, offset) == 0) {
+                var size = widenSingleByteBools(source, offset, length, results, count);
+                offset += size;
+                count += size;
+                continue;
+            }
 
-            var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
-            var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
+            offset = decodeBool(source, offset, results, count++);
+        }
 
-            var vectorBytes = new byte[16];
-            putLongLE(vectorBytes, 0, partB0);
-            putLongLE(vectorBytes, 8, partB1);
+        if (offset != length) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        }
 
-            var x = getLongLE(vectorBytes, 0);
-            var y = getLongLE(vectorBytes, 8);
+        return results;
+    }
 
-            var result = Long.compress(x, INT64_PEXT_MASK_LOW)
-                         | (Long.compress(y, INT64_PEXT_MASK_HIGH) << 56);
+    private static int decodeZigZag(int value) {
+        return (value >>> 1) ^ (-(value & 1));
+    }
 
-            offset += (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ (-(value & 1));
+    }
 
-            return result;
-        }
+    private static IntVector decodeZigZag(IntVector values) {
+        return values.lanewise(VectorOperators.LSHR, 1)
+                .lanewise(VectorOperators.XOR, values.and(1).neg());
+    }
 
-        @Override
-        public float[] readRawPackedFloat() {
-            var length = readRawVarInt32();
-            var buffer = ByteBuffer.wrap(this.buffer, offset, offset + length)
-                    .asFloatBuffer();
-            var result = new float[buffer.remaining()];
-            buffer.get(result);
-            return result;
-        }
+    private static LongVector decodeZigZag(LongVector values) {
+        return values.lanewise(VectorOperators.LSHR, 1)
+                .lanewise(VectorOperators.XOR, values.and(1).neg());
+    }
 
-        @Override
-        public double[] readRawPackedDouble() {
-            var length = readRawVarInt32();
-            var buffer = ByteBuffer.wrap(this.buffer, offset, offset + length)
-                    .asDoubleBuffer();
-            var result = new double[buffer.remaining()];
-            buffer.get(result);
-            return result;
+    // One bit for each byte of the 16 byte window at offset, set if the byte's msb is set
+    private static int getContinuationBits(MemorySegment source, long offset) {
+        var low = Long.compress(getLongLE(source, offset), ~INT64_PEXT_MASK_LOW);
+        var high = Long.compress(getLongLE(source, offset + Long.BYTES), ~INT64_PEXT_MASK_LOW);
+        return (int) (low | (high << Long.BYTES));
+    }
+
+    // Returns the number of single byte var ints that were widened, the caller guarantees that at least 16 are available
+    private static int widenSingleByteVarInts(MemorySegment source, long offset, long length, boolean zigZag, int[] results, int count) {
+        if (SUPPORTS_V512 && length - offset >= V512.length()) {
+            var chunk = ByteVector.fromMemorySegment(V512, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                for (var part = 0; part < 4; part++) {
+                    var values = (IntVector) chunk.convertShape(VectorOperators.B2I, IntVector.SPECIES_512, part);
+                    (zigZag ? decodeZigZag(values) : values)
+                            .intoArray(results, count + part * IntVector.SPECIES_512.length());
+                }
+                return V512.length();
+            }
         }
 
-        @Override
+        if (SUPPORTS_V256 && length - offset >= V256.length()) {
+            var chunk = ByteVector.fromMemorySegment(V256, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                for (var part = 0; part < 4; part++) {
+                    var values = (IntVector) chunk.convertShape(VectorOperators.B2I, IntVector.SPECIES_256, part);
+                    (zigZag ? decodeZigZag(values) : values)
+                            .intoArray(results, count + part * IntVector.SPECIES_256.length());
+                }
+                return V256.length();
+            }
+        }
+
+        var chunk = ByteVector.fromMemorySegment(V128, source, offset, ByteOrder.LITTLE_ENDIAN);
+        for (var part = 0; part < 4; part++) {
+            var values = (IntVector) chunk.convertShape(VectorOperators.B2I, IntVector.SPECIES_128, part);
+            (zigZag ? decodeZigZag(values) : values)
+                    .intoArray(results, count + part * IntVector.SPECIES_128.length());
+        }
+        return V128.length();
+    }
+
+    private static int widenSingleByteVarInts(MemorySegment source, long offset, long length, boolean zigZag, long[] results, int count) {
+        if (SUPPORTS_V512 && length - offset >= V512.length()) {
+            var chunk = ByteVector.fromMemorySegment(V512, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                for (var part = 0; part < 8; part++) {
+                    var values = (LongVector) chunk.convertShape(VectorOperators.B2L, LongVector.SPECIES_512, part);
+                    (zigZag ? decodeZigZag(values) : values)
+                            .intoArray(results, count + part * LongVector.SPECIES_512.length());
+                }
+                return V512.length();
+            }
+        }
+
+        if (SUPPORTS_V256 && length - offset >= V256.length()) {
+            var chunk = ByteVector.fromMemorySegment(V256, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                for (var part = 0; part < 8; part++) {
+                    var values = (LongVector) chunk.convertShape(VectorOperators.B2L, LongVector.SPECIES_256, part);
+                    (zigZag ? decodeZigZag(values) : values)
+                            .intoArray(results, count + part * LongVector.SPECIES_256.length());
+                }
+                return V256.length();
+            }
+        }
+
+        var chunk = ByteVector.fromMemorySegment(V128, source, offset, ByteOrder.LITTLE_ENDIAN);
+        for (var part = 0; part < 8; part++) {
+            var values = (LongVector) chunk.convertShape(VectorOperators.B2L, LongVector.SPECIES_128, part);
+            (zigZag ? decodeZigZag(values) : values)
+                    .intoArray(results, count + part * LongVector.SPECIES_128.length());
+        }
+        return V128.length();
+    }
+
+    private static int widenSingleByteBools(MemorySegment source, long offset, long length, boolean[] results, int count) {
+        if (SUPPORTS_V512 && length - offset >= V512.length()) {
+            var chunk = ByteVector.fromMemorySegment(V512, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                chunk.compare(VectorOperators.NE, (byte) 0)
+                        .intoArray(results, count);
+                return V512.length();
+            }
+        }
+
+        if (SUPPORTS_V256 && length - offset >= V256.length()) {
+            var chunk = ByteVector.fromMemorySegment(V256, source, offset, ByteOrder.LITTLE_ENDIAN);
+            if (!chunk.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                chunk.compare(VectorOperators.NE, (byte) 0)
+                        .intoArray(results, count);
+                return V256.length();
+            }
+        }
+
+        ByteVector.fromMemorySegment(V128, source, offset, ByteOrder.LITTLE_ENDIAN)
+                .compare(VectorOperators.NE, (byte) 0)
+                .intoArray(results, count);
+        return V128.length();
+    }
+
+    // The quad table clamps each length to three bytes, so the sum check it performs isn't enough on its own
+    private static boolean isQuad(int quad) {
+        return getFirstLength(quad) <= QUAD_MAX_LENGTH
+               && getSecondLength(quad) <= QUAD_MAX_LENGTH
+               && getThirdLength(quad) <= QUAD_MAX_LENGTH
+               && getFourthLength(quad) <= QUAD_MAX_LENGTH;
+    }
+
+    private static IntVector shuffleQuad(MemorySegment source, long offset, int quad) {
+        var index = getLookupIndex(quad);
+        var lanes = ByteVector.fromMemorySegment(V128, source, offset, ByteOrder.LITTLE_ENDIAN)
+                .rearrange(QUAD_SHUFFLES[index], QUAD_MASKS[index])
+                .reinterpretAsInts();
+        return lanes.and(0x7F)
+                .or(lanes.lanewise(VectorOperators.LSHR, 1).and(0x3F80))
+                .or(lanes.lanewise(VectorOperators.LSHR, 2).and(0x1FC000));
+    }
+
+    private static void decodeQuad(MemorySegment source, long offset, int quad, boolean zigZag, int[] results, int count) {
+        var values = shuffleQuad(source, offset, quad);
+        (zigZag ? decodeZigZag(values) : values)
+                .intoArray(results, count);
+    }
+
+    // Quad values fit in 21 bits, so decoding the zig zag in the int lanes and sign extending gives the same result as doing it on longs
+    private static void decodeQuad(MemorySegment source, long offset, int quad, boolean zigZag, long[] results, int count) {
+        var values = shuffleQuad(source, offset, quad);
+        ((LongVector) (zigZag ? decodeZigZag(values) : values).convertShape(VectorOperators.I2L, LongVector.SPECIES_256, 0))
+                .intoArray(results, count);
+    }
+
+    // Decodes the var int at offset into results and returns the offset right after it
+    // The caller guarantees that 16 bytes can be read from offset
+    private static long decodeVarInt(MemorySegment source, long offset, boolean zigZag, int[] results, int count) {
+        var low = getLongLE(source, offset);
+        var lowTerminators = ~low & ~INT64_PEXT_MASK_LOW;
+        if (lowTerminators != 0) {
+            var value = (int) Long.compress(low & (lowTerminators ^ (lowTerminators - 1)), INT64_PEXT_MASK_LOW);
+            results[count] = zigZag ? decodeZigZag(value) : value;
+            return offset + ((Long.numberOfTrailingZeros(lowTerminators) + 1) >>> 3);
+        }
+
+        var high = getLongLE(source, offset + Long.BYTES);
+        var highTerminators = ~high & ~INT64_PEXT_MASK_LOW;
+        var size = Long.BYTES + ((Long.numberOfTrailingZeros(highTerminators) + 1) >>> 3);
+        if (size > MAX_VAR_INT_SIZE) {
+            throw ProtobufDeserializationException.malformedVarInt();
+        }
+
+        var value = (int) (Long.compress(low, INT64_PEXT_MASK_LOW) | (Long.compress(high & (highTerminators ^ (highTerminators - 1)), INT64_PEXT_MASK_HIGH) << 56));
+        results[count] = zigZag ? decodeZigZag(value) : value;
+        return offset + size;
+    }
+
+    private static long decodeVarInt(MemorySegment source, long offset, boolean zigZag, long[] results, int count) {
+        var low = getLongLE(source, offset);
+        var lowTerminators = ~low & ~INT64_PEXT_MASK_LOW;
+        if (lowTerminators != 0) {
+            var value = Long.compress(low & (lowTerminators ^ (lowTerminators - 1)), INT64_PEXT_MASK_LOW);
+            results[count] = zigZag ? decodeZigZag(value) : value;
+            return offset + ((Long.numberOfTrailingZeros(lowTerminators) + 1) >>> 3);
+        }
+
+        var high = getLongLE(source, offset + Long.BYTES);
+        var highTerminators = ~high & ~INT64_PEXT_MASK_LOW;
+        var size = Long.BYTES + ((Long.numberOfTrailingZeros(highTerminators) + 1) >>> 3);
+        if (size > MAX_VAR_INT_SIZE) {
+            throw ProtobufDeserializationException.malformedVarInt();
+        }
+
+        var value = Long.compress(low, INT64_PEXT_MASK_LOW) | (Long.compress(high & (highTerminators ^ (highTerminators - 1)), INT64_PEXT_MASK_HIGH) << 56);
+        results[count] = zigZag ? decodeZigZag(value) : value;
+        return offset + size;
+    }
+
+    // Same as decodeVarInt, but only checks whether the value bits up to the terminating byte are all clear
+    private static long decodeBool(MemorySegment source, long offset, boolean[] results, int count) {
+        var low = getLongLE(source, offset);
+        var lowTerminators = ~low & ~INT64_PEXT_MASK_LOW;
+        if (lowTerminators != 0) {
+            results[count] = (low & (lowTerminators ^ (lowTerminators - 1)) & INT64_PEXT_MASK_LOW) != 0;
+            return offset + ((Long.numberOfTrailingZeros(lowTerminators) + 1) >>> 3);
+        }
+
+        var high = getLongLE(source, offset + Long.BYTES);
+        var highTerminators = ~high & ~INT64_PEXT_MASK_LOW;
+        var size = Long.BYTES + ((Long.numberOfTrailingZeros(highTerminators) + 1) >>> 3);
+        if (size > MAX_VAR_INT_SIZE) {
+            throw ProtobufDeserializationException.malformedVarInt();
+        }
+
+        results[count] = (low & INT64_PEXT_MASK_LOW) != 0 || (high & (highTerminators ^ (highTerminators - 1)) & INT64_PEXT_MASK_HIGH) != 0;
+        return offset + size;
+    }
+
+    // Returns the offset right after the var int starting at offset, validating that it's complete and at most ten bytes long
+    private static long skipVarInt(MemorySegment source, long offset, long length) {
+        var limit = Math.min(length, offset + MAX_VAR_INT_SIZE);
+        while (offset < limit) {
+            if (source.get(ValueLayout.JAVA_BYTE, offset++) >= 0) {
+                return offset;
+            }
+        }
+
+        if (limit == length) {
+            throw ProtobufDeserializationException.truncatedMessage();
+        } else {
+            throw ProtobufDeserializationException.malformedVarInt();
+        }
+    }
+
+    // Must only be called on a var int that was already validated by skipVarInt
+    private static long decodeVarInt(MemorySegment source, long offset) {
+        var result = 0L;
+        for (var shift = 0; ; shift += 7) {
+            var read = source.get(ValueLayout.JAVA_BYTE, offset++);
+            result |= (long) (read & 0x7F) << shift;
+            if (read >= 0) {
+                return result;
+            }
+        }
+    }
+
+    private static final class DelimitedIterator<T> implements Iterator<T> {
+        private final ProtobufReader reader;
+        private final Function<? super ProtobufReader, ? extends T> decoder;
+
+        private DelimitedIterator(ProtobufReader reader, Function<? super ProtobufReader, ? extends T> decoder) {
+            this.reader = reader;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !reader.isFinished();
+        }
+
+        @Override
+        public T next() {
+            if (reader.isFinished()) {
+                throw new NoSuchElementException();
+            } else {
+                return reader.readDelimited(decoder);
+            }
+        }
+    }
+
+    // Splits are found by hopping over the length prefixes up to the middle of the remaining bytes, so each half starts at a frame
+    private static final class DelimitedSpliterator<T> implements Spliterator<T> {
+        private final MemorySegmentReader reader;
+        private final Function<? super ProtobufReader, ? extends T> decoder;
+
+        private DelimitedSpliterator(MemorySegmentReader reader, Function<? super ProtobufReader, ? extends T> decoder) {
+            this.reader = reader;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (reader.isFinished()) {
+                return false;
+            } else {
+                action.accept(reader.readDelimited(decoder));
+                return true;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (!reader.isFinished()) {
+                action.accept(reader.readDelimited(decoder));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (reader.isFinished()) {
+                return null;
+            }
+
+            var start = reader.position;
+            var middle = start + (reader.limit - start) / 2;
+            do {
+                reader.skipRawBytes(reader.readLengthDelimitedPropertyLength());
+            } while (reader.position < middle);
+
+            var end = reader.position;
+            if (end >= reader.limit) {
+                reader.position = start;
+                return null;
+            } else {
+                var prefix = new MemorySegmentReader(reader.segment.asSlice(start, end - start), null);
+                return new DelimitedSpliterator<>(prefix, decoder);
+            }
+        }
+
+        // The remaining bytes are an upper bound on the remaining messages, which is all the fork join splitting heuristics need
+        @Override
+        public long estimateSize() {
+            return reader.limit - reader.position;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.IMMUTABLE;
+        }
+    }
+
+    // The frames in a batch are contiguous, so a single reader decodes all of them
+    private static final class DelimitedDecodeTask extends RecursiveAction {
+        private final MemorySegment source;
+        private final Function<? super ProtobufReader, ?> decoder;
+        private final long[] offsets;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+
+        private DelimitedDecodeTask(MemorySegment source, Function<? super ProtobufReader, ?> decoder, long[] offsets, Object[] results, int from, int to, int batchSize) {
+            this.source = source;
+            this.decoder = decoder;
+            this.offsets = offsets;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > batchSize) {
+                var middle = (from + to) >>> 1;
+                invokeAll(
+                        new DelimitedDecodeTask(source, decoder, offsets, results, from, middle, batchSize),
+                        new DelimitedDecodeTask(source, decoder, offsets, results, middle, to, batchSize)
+                );
+            } else if (from < to) {
+                var reader = new MemorySegmentReader(source, null);
+                reader.position = offsets[from];
+                for (var i = from; i < to; i++) {
+                    results[i] = reader.readDelimited(decoder);
+                }
+            }
+        }
+    }
+
+    private static final class ByteArrayReader extends ProtobufReader {
+        private byte[] buffer;
+        private int limit;
+        private int offset;
+        // Whether the reader is the pooled one of its thread and is decoding a message
+        private boolean acquired;
+
+        ByteArrayReader(byte[] buffer, int offset, int limit) {
+            Objects.requireNonNull(buffer, "buffer cannot be null");
+            Objects.checkFromToIndex(offset, limit, buffer.length);
+            this.buffer = buffer;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public void reset(byte[] bytes, int offset, int length) {
+            Objects.requireNonNull(bytes, "bytes cannot be null");
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            this.buffer = bytes;
+            this.offset = offset;
+            this.limit = offset + length;
+            resetState();
+        }
+
+        @Override
+        public byte readRawByte() {
+            if (offset >= limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                return buffer[offset++];
+            }
+        }
+
+        @Override
+        public byte[] readRawBytes(int size) {
+            try {
+                if (size > limit - offset) {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+
+                var result = new byte[size];
+                System.arraycopy(buffer, offset, result, 0, size);
+                offset += size;
+                return result;
+            } catch (NegativeArraySizeException _) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } catch (IndexOutOfBoundsException error) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            }
+        }
+
+        @Override
+        public ByteBuffer readRawBuffer(int size) {
+            try {
+                if (size > limit - offset) {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+
+                var result = ByteBuffer.wrap(buffer, offset, size);
+                offset += size;
+                return result;
+            } catch (IndexOutOfBoundsException error) {
+                if (size < 0) {
+                    throw ProtobufDeserializationException.negativeLength(size);
+                } else {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+            }
+        }
+
+        @Override
+        public MemorySegment readRawMemorySegment(int size) {
+            try {
+                if (size > limit - offset) {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+
+                var result = MemorySegment.ofArray(buffer)
+                        .asSlice(offset, size);
+                offset += size;
+                return result;
+            } catch (IndexOutOfBoundsException error) {
+                if (size < 0) {
+                    throw ProtobufDeserializationException.negativeLength(size);
+                } else {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+            }
+        }
+
+        @Override
+        public DataType rawDataTypePreference() {
+            return DataType.BYTE_ARRAY;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return offset >= limit;
+        }
+
+        @Override
+        public void skipRawBytes(int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("size cannot be negative");
+            } else {
+                offset += size;
+                if (offset > limit) {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+            }
+        }
+
+        @Override
+        public int readRawFixedInt32() {
+            if (offset + Integer.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getIntLE(buffer, offset);
+                offset += Integer.BYTES;
+                return result;
+            }
+        }
+
+        @Override
+        public long readRawFixedInt64() {
+            if (offset + Long.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getLongLE(buffer, offset);
+                offset += Long.BYTES;
+                return result;
+            }
+        }
+
+        @Override
+        public float readRawFloat() {
+            if (offset + Float.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getFloatLE(buffer, offset);
+                offset += Float.BYTES;
+                return result;
+            }
+        }
+
+        @Override
+        public double readRawDouble() {
+            if (offset + Double.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getDoubleLE(buffer, offset);
+                offset += Double.BYTES;
+                return result;
+            }
+        }
+
+        @Override
+        public ByteArrayReader readRawLengthDelimited(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } else if (size > limit - offset) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = new ByteArrayReader(buffer, offset, offset + size);
+                offset += size;
+                return result;
+            }
+        }
+
+        @Override
+        public long pushLimit(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } else if (size > limit - offset) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = limit;
+                limit = offset + size;
+                return result;
+            }
+        }
+
+        @Override
+        public void popLimit(long previousLimit) {
+            offset = limit;
+            limit = (int) previousLimit;
+        }
+
+        @Override
+        public void close() {
+
+        }
+
+        @Override
+        public int readRawVarInt32() {
+            if (limit - offset < Long.BYTES) {
+                return (int) readRawVarInt64Slow();
+            }
+
+            var value = getLongLE(buffer, offset);
+            var mostSignificantBits = ~value & ~INT64_PEXT_MASK_LOW;
+            if (mostSignificantBits == 0) {
+                // Negative values are sign extended to ten bytes
+                return (int) readRawVarInt64();
+            }
+
+            var lengthInBits = Long.numberOfTrailingZeros(mostSignificantBits) + 1;
+            var varIntPart = value & (mostSignificantBits ^ (mostSignificantBits - 1));
+            var result = (int) Long.compress(varIntPart, INT32_PEXT_MASK);
+            offset += lengthInBits >>> 3;
+            return result;
+        }
+
+        @Override
+        public long readRawVarInt64() {
+            var remaining = limit - offset;
+            if (remaining < Long.BYTES) {
+                return readRawVarInt64Slow();
+            }
+
+            var b0 = getLongLE(buffer, offset);
+            var msbB0 = ~b0 & ~INT64_PEXT_MASK_LOW;
+            if (remaining < Long.BYTES * 2) {
+                if (msbB0 == 0) {
+                    return readRawVarInt64Slow();
+                }
+
+                var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+                var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+                offset += lenB0 >>> 3;
+                return Long.compress(partB0, INT64_PEXT_MASK_LOW);
+            }
+
+            var b1 = getLongLE(buffer, offset + Long.BYTES);
+            var msbB1 = ~b1 & ~INT64_PEXT_MASK_LOW;
+
+            var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+            var lenB1 = Long.numberOfTrailingZeros(msbB1) + 1;
+
+            var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+            var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
+
+            var result = Long.compress(partB0, INT64_PEXT_MASK_LOW)
+                         | (Long.compress(partB1, INT64_PEXT_MASK_HIGH) << 56);
+
+            var length = (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
+            if (length > MAX_VAR_INT_SIZE) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
+
+            offset += length;
+            return result;
+        }
+
+        @Override
+        public float[] readRawPackedFloat() {
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return toFloatArrayLE(segment);
+        }
+
+        @Override
+        public double[] readRawPackedDouble() {
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return toDoubleArrayLE(segment);
+        }
+
+        @Override
         public int[] readRawPackedVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, false);
         }
 
         @Override
         public int[] readRawPackedZigZagVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, true);
         }
 
         @Override
         public long[] readRawPackedVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, false);
         }
 
         @Override
         public long[] readRawPackedZigZagVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, true);
         }
 
         @Override
         public boolean[] readRawPackedBool() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedBool(segment);
         }
 
         @Override
         public int[] readRawPackedFixedInt32() {
             var length = readRawVarInt32();
-            var buffer = ByteBuffer.wrap(this.buffer, offset, offset + length)
-                    .asIntBuffer();
-            var result = new int[buffer.remaining()];
-            buffer.get(result);
-            return result;
+            var segment = readRawMemorySegment(length);
+            return toIntArrayLE(segment);
         }
 
         @Override
         public long[] readRawPackedFixedInt64() {
             var length = readRawVarInt32();
-            var buffer = ByteBuffer.wrap(this.buffer, offset, offset + length)
-                    .asLongBuffer();
-            var result = new long[buffer.remaining()];
-            buffer.get(result);
-            return result;
+            var segment = readRawMemorySegment(length);
+            return toLongArrayLE(segment);
         }
     }
 
     private static final class ByteBufferReader extends ProtobufReader {
-        private final ByteBuffer buffer;
+        private ByteBuffer buffer;
 
         ByteBufferReader(ByteBuffer buffer) {
             Objects.requireNonNull(buffer, "buffer cannot be null");
@@ -758,6 +1653,15 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
                     .order(ByteOrder.LITTLE_ENDIAN);
         }
 
+        // Like fromBuffer, the bytes between the position and the limit are read without moving the position of the buffer
+        @Override
+        public void reset(ByteBuffer buffer) {
+            Objects.requireNonNull(buffer, "buffer cannot be null");
+            this.buffer = buffer.duplicate()
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            resetState();
+        }
+
         @Override
         public byte readRawByte() {
             try {
@@ -866,11 +1770,34 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
                 var result = new ByteBufferReader(buffer.slice(position, size));
                 buffer.position(position + size);
                 return result;
-            } catch (IllegalArgumentException _) {
+            } catch (IndexOutOfBoundsException _) {
+                if (size < 0) {
+                    throw ProtobufDeserializationException.negativeLength(size);
+                } else {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
+            }
+        }
+
+        @Override
+        public long pushLimit(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } else if (size > buffer.remaining()) {
                 throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = buffer.limit();
+                buffer.limit(buffer.position() + size);
+                return result;
             }
         }
 
+        @Override
+        public void popLimit(long previousLimit) {
+            buffer.position(buffer.limit());
+            buffer.limit((int) previousLimit);
+        }
+
         @Override
         public void close() {
 
@@ -878,21 +1805,47 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public int readRawVarInt32() {
-            var value = getLongLE(buffer, buffer.position());
+            var position = buffer.position();
+            if (buffer.limit() - position < Long.BYTES) {
+                return (int) readRawVarInt64Slow();
+            }
+
+            var value = getLongLE(buffer, position);
             var mostSignificantBits = ~value & ~INT64_PEXT_MASK_LOW;
+            if (mostSignificantBits == 0) {
+                // Negative values are sign extended to ten bytes
+                return (int) readRawVarInt64();
+            }
+
             var lengthInBits = Long.numberOfTrailingZeros(mostSignificantBits) + 1;
             var varIntPart = value & (mostSignificantBits ^ (mostSignificantBits - 1));
             var result = (int) Long.compress(varIntPart, INT32_PEXT_MASK);
-            buffer.position(lengthInBits >>> 3);
+            buffer.position(position + (lengthInBits >>> 3));
             return result;
         }
 
         @Override
         public long readRawVarInt64() {
-            var b0 = getLongLE(buffer, buffer.position());
-            var b1 = getLongLE(buffer, buffer.position() + 8);
+            var position = buffer.position();
+            var remaining = buffer.limit() - position;
+            if (remaining < Long.BYTES) {
+                return readRawVarInt64Slow();
+            }
 
+            var b0 = getLongLE(buffer, position);
             var msbB0 = ~b0 & ~INT64_PEXT_MASK_LOW;
+            if (remaining < Long.BYTES * 2) {
+                if (msbB0 == 0) {
+                    return readRawVarInt64Slow();
+                }
+
+                var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+                var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+                buffer.position(position + (lenB0 >>> 3));
+                return Long.compress(partB0, INT64_PEXT_MASK_LOW);
+            }
+
+            var b1 = getLongLE(buffer, position + Long.BYTES);
             var msbB1 = ~b1 & ~INT64_PEXT_MASK_LOW;
 
             var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
@@ -901,18 +1854,15 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
             var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
             var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
 
-            var vectorBytes = new byte[16];
-            putLongLE(vectorBytes, 0, partB0);
-            putLongLE(vectorBytes, 8, partB1);
-
-            var x = getLongLE(vectorBytes, 0);
-            var y = getLongLE(vectorBytes, 8);
+            var result = Long.compress(partB0, INT64_PEXT_MASK_LOW)
+                         | (Long.compress(partB1, INT64_PEXT_MASK_HIGH) << 56);
 
-            var result = Long.compress(x, INT64_PEXT_MASK_LOW)
-                         | (Long.compress(y, INT64_PEXT_MASK_HIGH) << 56);
-
-            buffer.position((msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3);
+            var length = (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
+            if (length > MAX_VAR_INT_SIZE) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
 
+            buffer.position(position + length);
             return result;
         }
 
@@ -932,27 +1882,37 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public int[] readRawPackedVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, false);
         }
 
         @Override
         public int[] readRawPackedZigZagVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, true);
         }
 
         @Override
         public long[] readRawPackedVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, false);
         }
 
         @Override
         public long[] readRawPackedZigZagVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, true);
         }
 
         @Override
         public boolean[] readRawPackedBool() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedBool(segment);
         }
 
         @Override
@@ -971,59 +1931,65 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
     }
 
     private static final class MemorySegmentReader extends ProtobufReader {
-        private final MemorySegment segment;
-        private int position;
+        private MemorySegment segment;
+        private final Arena arena;
+        private long limit;
+        private long position;
+
+        // The arena, if any, is owned by the reader and closed with it
+        MemorySegmentReader(MemorySegment segment, Arena arena) {
+            Objects.requireNonNull(segment, "segment cannot be null");
+            this.segment = segment;
+            this.arena = arena;
+            this.limit = segment.byteSize();
+            this.position = 0;
+        }
 
-        MemorySegmentReader(MemorySegment segment) {
+        // A reader that owns the mapping of a file can't be reset, as the mapping is released only when the reader is closed
+        @Override
+        public void reset(MemorySegment segment) {
             Objects.requireNonNull(segment, "segment cannot be null");
+            if (arena != null) {
+                throw new UnsupportedOperationException("This reader owns the mapping of a file");
+            }
+
             this.segment = segment;
+            this.limit = segment.byteSize();
             this.position = 0;
+            resetState();
         }
 
         @Override
         public byte readRawByte() {
-            try {
-                var result = segment.get(ValueLayout.OfByte.JAVA_BYTE, position);
-                position++;
-                return result;
-            } catch (BufferUnderflowException _) {
+            if (position >= limit) {
                 throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                return segment.get(ValueLayout.OfByte.JAVA_BYTE, position++);
             }
         }
 
         @Override
         public byte[] readRawBytes(int size) {
-            try {
-                var result = segment.asSlice(position, position + size)
-                        .toArray(ValueLayout.OfByte.JAVA_BYTE);
-                position += size;
-                return result;
-            } catch (BufferUnderflowException _) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            } catch (NegativeArraySizeException _) {
-                throw new IllegalArgumentException("size cannot be negative");
-            }
+            return readRawMemorySegment(size)
+                    .toArray(ValueLayout.OfByte.JAVA_BYTE);
         }
 
         @Override
         public ByteBuffer readRawBuffer(int size) {
-            try {
-                var result = segment.asSlice(position, position + size);
-                position += size;
-                return result.asByteBuffer();
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufDeserializationException.truncatedMessage();
-            }
+            return readRawMemorySegment(size)
+                    .asByteBuffer();
         }
 
         @Override
         public MemorySegment readRawMemorySegment(int size) {
-            try {
-                var result = segment.asSlice(position, position + size);
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } else if (size > limit - position) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = segment.asSlice(position, size);
                 position += size;
                 return result;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufDeserializationException.truncatedMessage();
             }
         }
 
@@ -1034,65 +2000,155 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public boolean isFinished() {
-            return position >= segment.byteSize();
+            return position >= limit;
         }
 
         @Override
         public void skipRawBytes(int size) {
-            position += size;
-            if (position > size) {
-                throw ProtobufDeserializationException.truncatedMessage();
+            if (size < 0) {
+                throw new IllegalArgumentException("size cannot be negative");
+            } else {
+                position += size;
+                if (position > limit) {
+                    throw ProtobufDeserializationException.truncatedMessage();
+                }
             }
         }
 
         @Override
         public int readRawFixedInt32() {
-            var result = segment.getAtIndex(ValueLayout.OfInt.JAVA_INT_UNALIGNED, position);
-            position += Integer.BYTES;
-            return result;
+            if (position + Integer.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getIntLE(segment, position);
+                position += Integer.BYTES;
+                return result;
+            }
         }
 
         @Override
         public long readRawFixedInt64() {
-            var result = segment.getAtIndex(ValueLayout.OfLong.JAVA_LONG_UNALIGNED, position);
-            position += Long.BYTES;
-            return result;
+            if (position + Long.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getLongLE(segment, position);
+                position += Long.BYTES;
+                return result;
+            }
         }
 
         @Override
         public float readRawFloat() {
-            var result = segment.getAtIndex(ValueLayout.OfInt.JAVA_FLOAT_UNALIGNED, position);
-            position += Float.BYTES;
-            return result;
+            if (position + Float.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getFloatLE(segment, position);
+                position += Float.BYTES;
+                return result;
+            }
         }
 
         @Override
         public double readRawDouble() {
-            var result = segment.getAtIndex(ValueLayout.OfInt.JAVA_DOUBLE_UNALIGNED, position);
-            position += Double.BYTES;
-            return result;
+            if (position + Double.BYTES > limit) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = getDoubleLE(segment, position);
+                position += Double.BYTES;
+                return result;
+            }
         }
 
         @Override
         public MemorySegmentReader readRawLengthDelimited(int size) {
-            var result = new MemorySegmentReader(segment.asSlice(position, size));
-            position += size;
-            return result;
+            return new MemorySegmentReader(readRawMemorySegment(size), null);
         }
 
         @Override
-        public void close() {
+        public long pushLimit(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            } else if (size > limit - position) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            } else {
+                var result = limit;
+                limit = position + size;
+                return result;
+            }
+        }
+
+        @Override
+        public void popLimit(long previousLimit) {
+            position = limit;
+            limit = previousLimit;
+        }
 
+        @Override
+        public void close() {
+            if (arena != null) {
+                arena.close();
+            }
         }
 
         @Override
         public int readRawVarInt32() {
-            throw new UnsupportedOperationException();
+            if (limit - position < Long.BYTES) {
+                return (int) readRawVarInt64Slow();
+            }
+
+            var value = getLongLE(segment, position);
+            var mostSignificantBits = ~value & ~INT64_PEXT_MASK_LOW;
+            if (mostSignificantBits == 0) {
+                // Negative values are sign extended to ten bytes
+                return (int) readRawVarInt64();
+            }
+
+            var lengthInBits = Long.numberOfTrailingZeros(mostSignificantBits) + 1;
+            var varIntPart = value & (mostSignificantBits ^ (mostSignificantBits - 1));
+            var result = (int) Long.compress(varIntPart, INT32_PEXT_MASK);
+            position += lengthInBits >>> 3;
+            return result;
         }
 
         @Override
         public long readRawVarInt64() {
-            throw new UnsupportedOperationException();
+            var remaining = limit - position;
+            if (remaining < Long.BYTES) {
+                return readRawVarInt64Slow();
+            }
+
+            var b0 = getLongLE(segment, position);
+            var msbB0 = ~b0 & ~INT64_PEXT_MASK_LOW;
+            if (remaining < Long.BYTES * 2) {
+                if (msbB0 == 0) {
+                    return readRawVarInt64Slow();
+                }
+
+                var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+                var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+                position += lenB0 >>> 3;
+                return Long.compress(partB0, INT64_PEXT_MASK_LOW);
+            }
+
+            var b1 = getLongLE(segment, position + Long.BYTES);
+            var msbB1 = ~b1 & ~INT64_PEXT_MASK_LOW;
+
+            var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
+            var lenB1 = Long.numberOfTrailingZeros(msbB1) + 1;
+
+            var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
+            var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
+
+            var result = Long.compress(partB0, INT64_PEXT_MASK_LOW)
+                         | (Long.compress(partB1, INT64_PEXT_MASK_HIGH) << 56);
+
+            var length = (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
+            if (length > MAX_VAR_INT_SIZE) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
+
+            position += length;
+            return result;
         }
 
         @Override
@@ -1111,27 +2167,37 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public int[] readRawPackedVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, false);
         }
 
         @Override
         public int[] readRawPackedZigZagVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, true);
         }
 
         @Override
         public long[] readRawPackedVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, false);
         }
 
         @Override
         public long[] readRawPackedZigZagVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, true);
         }
 
         @Override
         public boolean[] readRawPackedBool() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedBool(segment);
         }
 
         @Override
@@ -1150,53 +2216,96 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
     }
 
     private static final class InputStreamReader extends ProtobufReader {
-        private static final int MAX_VAR_INT_SIZE = 10;
-
         private final InputStream inputStream;
         private final boolean autoclose;
-        private final long length;
+        private long length;
         private long position;
+        private long streamRemaining;
 
         private final byte[] buffer;
         private int bufferPosition;
         private int bufferLength;
 
-        InputStreamReader(InputStream inputStream, boolean autoclose) {
+        // The reader returned by readRawLengthDelimited for a message larger than the buffer, which shares the stream
+        private InputStreamReader child;
+
+        InputStreamReader(InputStream inputStream, boolean autoclose, int bufferSize) {
             Objects.requireNonNull(inputStream, "inputStream cannot be null");
+            if (bufferSize < MIN_STREAM_BUFFER_LENGTH) {
+                throw new IllegalArgumentException("bufferSize must be at least " + MIN_STREAM_BUFFER_LENGTH);
+            }
+
             this.inputStream = inputStream;
             this.autoclose = autoclose;
             this.length = -1;
-            this.buffer = new byte[MAX_VAR_INT_SIZE];
+            this.streamRemaining = Long.MAX_VALUE;
+            this.buffer = new byte[bufferSize];
         }
 
-        private InputStreamReader(InputStream inputStream, long length, byte[] buffer, int bufferPosition, int bufferLength) {
+        private InputStreamReader(InputStream inputStream, long length, long streamRemaining, byte[] buffer, int bufferLength) {
             this.inputStream = inputStream;
             this.autoclose = false;
             this.length = length;
+            this.streamRemaining = streamRemaining;
             this.buffer = buffer;
-            this.bufferPosition = bufferPosition;
             this.bufferLength = bufferLength;
         }
 
-        @Override
-        public byte readRawByte() {
-            position++;
-            if (bufferPosition < bufferLength) {
-                return buffer[bufferPosition++];
-            } else {
-                try {
-                    var read = inputStream.read();
+        // Whatever the child didn't read is skipped before this reader reads from the stream again,
+        // so a decoder that stops early or throws doesn't leave this reader at the wrong offset
+        // The child can't be read anymore after that
+        private void skipChild() {
+            if (child != null) {
+                var remaining = child.bufferLength - child.bufferPosition + child.streamRemaining;
+                child.skipRawBytes((int) remaining);
+                child = null;
+            }
+        }
+
+        // Compacts the buffer and reads from the stream until at least minimum bytes are buffered
+        // Each read only blocks until some data is available, so this never waits for more bytes than needed
+        private boolean refill(int minimum) {
+            skipChild();
+            var buffered = bufferLength - bufferPosition;
+            if (bufferPosition > 0) {
+                System.arraycopy(buffer, bufferPosition, buffer, 0, buffered);
+                bufferPosition = 0;
+                bufferLength = buffered;
+            }
+
+            try {
+                while (bufferLength < minimum) {
+                    if (streamRemaining == 0) {
+                        return false;
+                    }
+
+                    var read = inputStream.read(buffer, bufferLength, (int) Math.min(buffer.length - bufferLength, streamRemaining));
                     if (read == -1) {
-                        throw ProtobufDeserializationException.truncatedMessage();
-                    } else {
-                        return (byte) read;
+                        return false;
                     }
-                } catch (IOException exception) {
-                    throw ProtobufDeserializationException.truncatedMessage(exception);
+
+                    bufferLength += read;
+                    streamRemaining -= read;
                 }
+                return true;
+            } catch (IOException exception) {
+                throw ProtobufDeserializationException.truncatedMessage(exception);
+            }
+        }
+
+        private void ensureBuffered(int size) {
+            if (bufferLength - bufferPosition < size && !refill(size)) {
+                throw ProtobufDeserializationException.truncatedMessage();
             }
         }
 
+        @Override
+        public byte readRawByte() {
+            ensureBuffered(1);
+            position++;
+            return buffer[bufferPosition++];
+        }
+
         @Override
         public byte[] readRawBytes(int size) {
             try {
@@ -1204,30 +2313,30 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
                 readRawBytes(result, size);
                 return result;
             } catch (NegativeArraySizeException _) {
-                throw new IllegalArgumentException("size cannot be negative");
+                throw ProtobufDeserializationException.negativeLength(size);
             }
         }
 
+        // Large reads skip the buffer and go straight to the destination
         private void readRawBytes(byte[] output, int length) {
-            position += length;
-            var offset = 0;
-            if (length > 0 && bufferPosition < bufferLength) {
-                var bufferedLength = Math.min(bufferLength - bufferPosition, length);
-                System.arraycopy(buffer, bufferPosition, output, offset, bufferedLength);
-                offset += bufferedLength;
-                bufferPosition += bufferedLength;
-            }
-            while (offset < length) {
-                try {
-                    var read = inputStream.read(output, offset, length - offset);
+            skipChild();
+            var offset = Math.min(bufferLength - bufferPosition, length);
+            System.arraycopy(buffer, bufferPosition, output, 0, offset);
+            bufferPosition += offset;
+            position += offset;
+            try {
+                while (offset < length) {
+                    var read = streamRemaining == 0 ? -1 : inputStream.read(output, offset, (int) Math.min(length - offset, streamRemaining));
                     if (read == -1) {
                         throw ProtobufDeserializationException.truncatedMessage();
-                    } else {
-                        offset += read;
                     }
-                } catch (IOException exception) {
-                    throw ProtobufDeserializationException.truncatedMessage(exception);
+
+                    offset += read;
+                    position += read;
+                    streamRemaining -= read;
                 }
+            } catch (IOException exception) {
+                throw ProtobufDeserializationException.truncatedMessage(exception);
             }
         }
 
@@ -1252,23 +2361,8 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
         public boolean isFinished() {
             if (length != -1) {
                 return position >= length;
-            } else if (bufferPosition < bufferLength) {
-                return false;
             } else {
-                try {
-                    position++;
-                    var read = inputStream.read();
-                    if (read == -1) {
-                        return true;
-                    } else {
-                        position--;
-                        buffer[bufferPosition = 0] = (byte) read;
-                        bufferLength = 1;
-                        return false;
-                    }
-                } catch (IOException exception) {
-                    throw ProtobufDeserializationException.truncatedMessage(exception);
-                }
+                return bufferPosition >= bufferLength && !refill(1);
             }
         }
 
@@ -1278,21 +2372,28 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
                 throw new IllegalArgumentException("length cannot be negative");
             }
 
-            if (length > 0 && bufferPosition < bufferLength) {
-                var bufferedLength = Math.min(length, bufferLength - bufferPosition);
-                length -= bufferedLength;
-                position += bufferedLength;
-            }
+            skipChild();
+            var bufferedLength = Math.min(length, bufferLength - bufferPosition);
+            bufferPosition += bufferedLength;
+            position += bufferedLength;
+            length -= bufferedLength;
             while (length > 0) {
                 try {
-                    var skipped = inputStream.skip(length);
+                    var skipped = streamRemaining == 0 ? 0 : inputStream.skip(Math.min(length, streamRemaining));
                     if (skipped == 0) {
-                        if (isFinished()) {
+                        // skip can return zero before the end of the stream, so fall back to a read to tell them apart
+                        if (!refill(1)) {
                             throw ProtobufDeserializationException.truncatedMessage();
                         }
+
+                        bufferedLength = Math.min(length, bufferLength - bufferPosition);
+                        bufferPosition += bufferedLength;
+                        position += bufferedLength;
+                        length -= bufferedLength;
                     } else {
                         length -= (int) skipped;
                         position += skipped;
+                        streamRemaining -= skipped;
                     }
                 } catch (IOException exception) {
                     throw ProtobufDeserializationException.truncatedMessage(exception);
@@ -1302,35 +2403,101 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public int readRawFixedInt32() {
-            readRawBytes(buffer, Integer.BYTES);
-            return getIntLE(buffer, 0);
+            ensureBuffered(Integer.BYTES);
+            var result = getIntLE(buffer, bufferPosition);
+            bufferPosition += Integer.BYTES;
+            position += Integer.BYTES;
+            return result;
         }
 
         @Override
         public long readRawFixedInt64() {
-            readRawBytes(buffer, Long.BYTES);
-            return getLongLE(buffer, 0);
+            ensureBuffered(Long.BYTES);
+            var result = getLongLE(buffer, bufferPosition);
+            bufferPosition += Long.BYTES;
+            position += Long.BYTES;
+            return result;
         }
 
         @Override
         public float readRawFloat() {
-            readRawBytes(buffer, Float.BYTES);
-            return getFloatLE(buffer, 0);
+            ensureBuffered(Float.BYTES);
+            var result = getFloatLE(buffer, bufferPosition);
+            bufferPosition += Float.BYTES;
+            position += Float.BYTES;
+            return result;
         }
 
         @Override
         public double readRawDouble() {
-            readRawBytes(buffer, Double.BYTES);
-            return getDoubleLE(buffer, 0);
+            ensureBuffered(Double.BYTES);
+            var result = getDoubleLE(buffer, bufferPosition);
+            bufferPosition += Double.BYTES;
+            position += Double.BYTES;
+            return result;
         }
 
+        // Messages that fit in the buffer are copied out and read from memory,
+        // larger ones keep streaming: the part that wasn't read is skipped once this reader is used again
         @Override
-        public InputStreamReader readRawLengthDelimited(int size) {
-            var result = new InputStreamReader(inputStream, size, buffer, bufferPosition, bufferLength);
+        public ProtobufReader readRawLengthDelimited(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            }
+
+            skipChild();
+            if (size <= buffer.length) {
+                ensureBuffered(size);
+                var result = new ByteArrayReader(Arrays.copyOfRange(buffer, bufferPosition, bufferPosition + size), 0, size);
+                bufferPosition += size;
+                position += size;
+                return result;
+            }
+
+            var buffered = bufferLength - bufferPosition;
+            var unbuffered = size - buffered;
+            if (unbuffered > streamRemaining) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            }
+
+            var childBuffer = new byte[buffer.length];
+            System.arraycopy(buffer, bufferPosition, childBuffer, 0, buffered);
+            var result = new InputStreamReader(inputStream, size, unbuffered, childBuffer, buffered);
+            bufferPosition = bufferLength;
             position += size;
+            streamRemaining -= unbuffered;
+            child = result;
+            return result;
+        }
+
+        // Reads aren't bounds checked against the limit on the hot path:
+        // a message that overruns it is reported when the limit is popped
+        @Override
+        public long pushLimit(int size) {
+            if (size < 0) {
+                throw ProtobufDeserializationException.negativeLength(size);
+            }
+
+            var limit = position + size;
+            if (length != -1 && limit > length) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            }
+
+            var result = length;
+            length = limit;
             return result;
         }
 
+        @Override
+        public void popLimit(long previousLimit) {
+            if (position > length) {
+                throw ProtobufDeserializationException.truncatedMessage();
+            }
+
+            skipRawBytes((int) (length - position));
+            length = previousLimit;
+        }
+
         @Override
         public void close() throws IOException {
             if (autoclose) {
@@ -1338,41 +2505,55 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
             }
         }
 
+        // The word at a time fast paths need a full window, at the edge of the buffer the byte at a time path refills it
         @Override
         public int readRawVarInt32() {
-            readRawBytes(buffer, MAX_VAR_INT_SIZE);
-            var value = getLongLE(buffer, 0);
+            if (bufferLength - bufferPosition < Long.BYTES * 2) {
+                return (int) readRawVarInt64Slow();
+            }
+
+            var value = getLongLE(buffer, bufferPosition);
             var mostSignificantBits = ~value & ~INT64_PEXT_MASK_LOW;
+            if (mostSignificantBits == 0) {
+                // Negative values are sign extended to ten bytes
+                return (int) readRawVarInt64();
+            }
+
             var lengthInBits = Long.numberOfTrailingZeros(mostSignificantBits) + 1;
             var varIntPart = value & (mostSignificantBits ^ (mostSignificantBits - 1));
             var result = (int) Long.compress(varIntPart, INT32_PEXT_MASK);
             var length = lengthInBits >>> 3;
-            bufferPosition = length;
-            bufferLength = MAX_VAR_INT_SIZE;
+            bufferPosition += length;
             position += length;
             return result;
         }
 
         @Override
         public long readRawVarInt64() {
-            readRawBytes(buffer, MAX_VAR_INT_SIZE);
-            var b0 = getLongLE(buffer, 0);
-            var b1 = getLongLE(buffer, 8);
+            if (bufferLength - bufferPosition < Long.BYTES * 2) {
+                return readRawVarInt64Slow();
+            }
+
+            var b0 = getLongLE(buffer, bufferPosition);
+            var b1 = getLongLE(buffer, bufferPosition + Long.BYTES);
             var msbB0 = ~b0 & ~INT64_PEXT_MASK_LOW;
             var msbB1 = ~b1 & ~INT64_PEXT_MASK_LOW;
+
             var lenB0 = Long.numberOfTrailingZeros(msbB0) + 1;
             var lenB1 = Long.numberOfTrailingZeros(msbB1) + 1;
+
             var partB0 = b0 & (msbB0 ^ (msbB0 - 1));
             var partB1 = (b1 & (msbB1 ^ (msbB1 - 1))) * ((msbB0 == 0) ? 1L : 0L);
-            var vectorBytes = new byte[16];
-            putLongLE(vectorBytes, 0, partB0);
-            putLongLE(vectorBytes, 8, partB1);
-            var x = getLongLE(vectorBytes, 0);
-            var y = getLongLE(vectorBytes, 8);
-            var result = Long.compress(x, INT64_PEXT_MASK_LOW) | (Long.compress(y, INT64_PEXT_MASK_HIGH) << 56);
+
+            var result = Long.compress(partB0, INT64_PEXT_MASK_LOW)
+                         | (Long.compress(partB1, INT64_PEXT_MASK_HIGH) << 56);
+
             var length = (msbB0 == 0 ? lenB1 + 64 : lenB0) >>> 3;
-            bufferPosition = length;
-            bufferLength = MAX_VAR_INT_SIZE;
+            if (length > MAX_VAR_INT_SIZE) {
+                throw ProtobufDeserializationException.malformedVarInt();
+            }
+
+            bufferPosition += length;
             position += length;
             return result;
         }
@@ -1393,83 +2574,37 @@ public abstract non-sealed class ProtobufReader extends ProtobufIO {
 
         @Override
         public int[] readRawPackedVarInt32() {
-            var bufferLength = readRawVarInt32();
-            var buffer = readRawBytes(bufferLength);
-
-            var resultsCount = countVarInts(buffer);
-            var results = new int[resultsCount];
-
-            throw new UnsupportedOperationException();
-        }
-
-        private int countVarInts(byte[] segment) {
-            var len = segment.length;
-            var count = 0;
-            var i = 0;
-
-            if (SUPPORTS_V512) {
-                long bound512 = V512.loopBound(len);
-                for (; i < bound512; i += V512.length()) {
-                    count += ByteVector.fromArray(V512, segment, i)
-                            .compare(VectorOperators.GE, (byte) 0)
-                            .trueCount();
-                }
-            }
-
-            if(SUPPORTS_V256) {
-                long bound256 = i + V256.loopBound(len - i);
-                for (; i < bound256; i += V256.length()) {
-                    count += ByteVector.fromArray(V256, segment, i)
-                            .compare(VectorOperators.GE, (byte) 0)
-                            .trueCount();
-                }
-            }
-
-            if(SUPPORTS_V128) {
-                long bound128 = i + V128.loopBound(len - i);
-                for (; i < bound128; i += V128.length()) {
-                    count += ByteVector.fromArray(V128, segment, i)
-                            .compare(VectorOperators.GE, (byte) 0)
-                            .trueCount();
-                }
-            }
-
-            if(SUPPORTS_V64) {
-                long bound64 = i + V64.loopBound(len - i);
-                for (; i < bound64; i += V64.length()) {
-                    count += ByteVector.fromArray(V64, segment, i)
-                            .compare(VectorOperators.GE, (byte) 0)
-                            .trueCount();
-                }
-            }
-
-            for (; i < len; i++) {
-                if (segment[i] >= 0) {
-                    count++;
-                }
-            }
-
-            return count;
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, false);
         }
 
         @Override
         public int[] readRawPackedZigZagVarInt32() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt32(segment, true);
         }
 
         @Override
         public long[] readRawPackedVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, false);
         }
 
         @Override
         public long[] readRawPackedZigZagVarInt64() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedVarInt64(segment, true);
         }
 
         @Override
         public boolean[] readRawPackedBool() {
-            throw new UnsupportedOperationException();
+            var length = readRawVarInt32();
+            var segment = readRawMemorySegment(length);
+            return decodePackedBool(segment);
         }
 
         @Override
@@ -0,0 +1,475 @@
+package it.auties.protobuf.io;
+
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.exception.ProtobufSerializationException;
+import it.auties.protobuf.model.ProtobufWireType;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A writer that serializes Protocol Buffer encoded data back to front.
+ * <p>
+ * The buffer is filled from its end towards its start, so the properties of a message must be written
+ * in the reverse of the order they should appear in, and every property writes its value before its tag.
+ * The advantage is that the value of a length delimited property, like an embedded message,
+ * is always written before its length: no size has to be computed before encoding a message,
+ * nor any length has to be back-patched.
+ * The buffer grows as needed, so it's not necessary to know the size of the output before writing it either.
+ * </p>
+ *
+ * <h2>Embedded messages:</h2>
+ * <pre>{@code
+ * var marker = writer.writeStartLengthDelimitedProperty();
+ * // Write the properties of the embedded message, last to first
+ * writer.writeEndLengthDelimitedProperty(propertyIndex, marker);
+ * }</pre>
+ *
+ * @implNote like {@link ProtobufWriter}, this class performs no checks on whether the data it's serializing is correct.
+ *
+ * @see ProtobufWriter
+ */
+public final class ProtobufReverseWriter {
+    private static final int DEFAULT_LENGTH = 256;
+    private static final int MAX_VAR_INT_SIZE = ProtobufIO.MAX_VAR_INT_SIZE;
+    // Some virtual machines reserve a few header words in arrays
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    public static ProtobufReverseWriter toBytes() {
+        return new ProtobufReverseWriter(new byte[DEFAULT_LENGTH]);
+    }
+
+    public static ProtobufReverseWriter toBytes(int length) {
+        if(length < 0) {
+            throw new IllegalArgumentException("length must not be negative");
+        }else {
+            return new ProtobufReverseWriter(new byte[length]);
+        }
+    }
+
+    private byte[] buffer;
+    private int position;
+
+    private ProtobufReverseWriter(byte[] buffer) {
+        this.buffer = buffer;
+        this.position = buffer.length;
+    }
+
+    // The number of bytes that were written
+    public int size() {
+        return buffer.length - position;
+    }
+
+    public void writePropertyTag(long propertyIndex, int wireType) {
+        writeRawVarInt64(ProtobufWireType.makeTag(propertyIndex, wireType));
+    }
+
+    public void writeLengthDelimitedPropertyLength(int length) {
+        if(length < 0) {
+            throw ProtobufDeserializationException.negativeLength(length);
+        } else {
+            writeRawVarInt32(length);
+        }
+    }
+
+    // Returns the marker to pass to writeEndLengthDelimitedProperty once the value of the property was written
+    public long writeStartLengthDelimitedProperty() {
+        return size();
+    }
+
+    // Writes the length of everything that was written since the matching writeStartLengthDelimitedProperty and the tag of the property
+    public void writeEndLengthDelimitedProperty(long propertyIndex, long marker) {
+        writeLengthDelimitedPropertyLength((int) (size() - marker));
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+    }
+
+    // The end of a group is written first, as it comes after its properties
+    public void writeEndGroupProperty(long propertyIndex) {
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_END_OBJECT);
+    }
+
+    public void writeStartGroupProperty(long propertyIndex) {
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_START_OBJECT);
+    }
+
+    public void writeFloatProperty(long propertyIndex, Float value) {
+        if(value != null){
+            writeFloatProperty(propertyIndex, (float) value);
+        }
+    }
+
+    public void writeFloatProperty(long propertyIndex, float value) {
+        writeRawFloat(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED32);
+    }
+
+    public void writeDoubleProperty(long propertyIndex, Double value) {
+        if(value != null){
+            writeDoubleProperty(propertyIndex, (double) value);
+        }
+    }
+
+    public void writeDoubleProperty(long propertyIndex, double value) {
+        writeRawDouble(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED64);
+    }
+
+    public void writeBoolProperty(long propertyIndex, Boolean value) {
+        if(value != null){
+            writeBoolProperty(propertyIndex, (boolean) value);
+        }
+    }
+
+    public void writeBoolProperty(long propertyIndex, boolean value) {
+        writeRawByte((byte) (value ? 1 : 0));
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeInt32Property(long propertyIndex, Integer value) {
+        if(value != null){
+            writeInt32Property(propertyIndex, (int) value);
+        }
+    }
+
+    public void writeInt32Property(long propertyIndex, int value) {
+        writeRawVarInt32(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeUInt32Property(long propertyIndex, Integer value) {
+        if(value != null){
+            writeUInt32Property(propertyIndex, (int) value);
+        }
+    }
+
+    public void writeUInt32Property(long propertyIndex, int value) {
+        writeRawVarInt32(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeSInt32Property(long propertyIndex, Integer value) {
+        if(value != null){
+            writeSInt32Property(propertyIndex, (int) value);
+        }
+    }
+
+    public void writeSInt32Property(long propertyIndex, int value) {
+        writeRawZigZagVarInt32(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeInt64Property(long propertyIndex, Long value) {
+        if(value != null){
+            writeInt64Property(propertyIndex, (long) value);
+        }
+    }
+
+    public void writeInt64Property(long propertyIndex, long value) {
+        writeRawVarInt64(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeUInt64Property(long propertyIndex, Long value) {
+        if(value != null){
+            writeUInt64Property(propertyIndex, (long) value);
+        }
+    }
+
+    public void writeUInt64Property(long propertyIndex, long value) {
+        writeRawVarInt64(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeSInt64Property(long propertyIndex, Long value) {
+        if(value != null){
+            writeSInt64Property(propertyIndex, (long) value);
+        }
+    }
+
+    public void writeSInt64Property(long propertyIndex, long value) {
+        writeRawZigZagVarInt64(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_VAR_INT);
+    }
+
+    public void writeFixed32Property(long propertyIndex, Integer value) {
+        if(value != null){
+            writeFixed32(propertyIndex, value);
+        }
+    }
+
+    public void writeFixed32Property(long propertyIndex, int value) {
+        writeFixed32(propertyIndex, value);
+    }
+
+    public void writeSFixed32Property(long propertyIndex, Integer value) {
+        if(value != null){
+            writeFixed32(propertyIndex, value);
+        }
+    }
+
+    public void writeSFixed32Property(long propertyIndex, int value) {
+        writeFixed32(propertyIndex, value);
+    }
+
+    private void writeFixed32(long propertyIndex, int value) {
+        writeRawFixedInt32(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED32);
+    }
+
+    public void writeFixed64Property(long propertyIndex, Long value) {
+        if(value != null){
+            writeFixed64(propertyIndex, value);
+        }
+    }
+
+    public void writeFixed64Property(long propertyIndex, long value) {
+        writeFixed64(propertyIndex, value);
+    }
+
+    public void writeSFixed64Property(long propertyIndex, Long value) {
+        if(value != null){
+            writeFixed64(propertyIndex, value);
+        }
+    }
+
+    public void writeSFixed64Property(long propertyIndex, long value) {
+        writeFixed64(propertyIndex, value);
+    }
+
+    private void writeFixed64(long propertyIndex, long value) {
+        writeRawFixedInt64(value);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED64);
+    }
+
+    // Packed values are written last to first, so their length is known once they are all written
+    public void writePackedFloatProperty(long propertyIndex, float[] values) {
+        if(values != null){
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawFloat(values[i]);
+            }
+            writeLengthDelimitedPropertyLength(values.length * Float.BYTES);
+            writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        }
+    }
+
+    public void writePackedDoubleProperty(long propertyIndex, double[] values) {
+        if(values != null){
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawDouble(values[i]);
+            }
+            writeLengthDelimitedPropertyLength(values.length * Double.BYTES);
+            writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        }
+    }
+
+    public void writePackedInt32Property(long propertyIndex, int[] values) {
+        if(values != null){
+            var marker = writeStartLengthDelimitedProperty();
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawVarInt32(values[i]);
+            }
+            writeEndLengthDelimitedProperty(propertyIndex, marker);
+        }
+    }
+
+    public void writePackedUInt32Property(long propertyIndex, int[] values) {
+        writePackedInt32Property(propertyIndex, values);
+    }
+
+    public void writePackedSInt32Property(long propertyIndex, int[] values) {
+        if(values != null){
+            var marker = writeStartLengthDelimitedProperty();
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawZigZagVarInt32(values[i]);
+            }
+            writeEndLengthDelimitedProperty(propertyIndex, marker);
+        }
+    }
+
+    public void writePackedInt64Property(long propertyIndex, long[] values) {
+        if(values != null){
+            var marker = writeStartLengthDelimitedProperty();
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawVarInt64(values[i]);
+            }
+            writeEndLengthDelimitedProperty(propertyIndex, marker);
+        }
+    }
+
+    public void writePackedUInt64Property(long propertyIndex, long[] values) {
+        writePackedInt64Property(propertyIndex, values);
+    }
+
+    public void writePackedSInt64Property(long propertyIndex, long[] values) {
+        if(values != null){
+            var marker = writeStartLengthDelimitedProperty();
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawZigZagVarInt64(values[i]);
+            }
+            writeEndLengthDelimitedProperty(propertyIndex, marker);
+        }
+    }
+
+    public void writePackedFixed32Property(long propertyIndex, int[] values) {
+        if(values != null){
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawFixedInt32(values[i]);
+            }
+            writeLengthDelimitedPropertyLength(values.length * Integer.BYTES);
+            writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        }
+    }
+
+    public void writePackedSFixed32Property(long propertyIndex, int[] values) {
+        writePackedFixed32Property(propertyIndex, values);
+    }
+
+    public void writePackedFixed64Property(long propertyIndex, long[] values) {
+        if(values != null){
+            for (var i = values.length - 1; i >= 0; i--) {
+                writeRawFixedInt64(values[i]);
+            }
+            writeLengthDelimitedPropertyLength(values.length * Long.BYTES);
+            writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        }
+    }
+
+    public void writePackedSFixed64Property(long propertyIndex, long[] values) {
+        writePackedFixed64Property(propertyIndex, values);
+    }
+
+    public void writeRawByte(byte entry) {
+        ensureCapacity(1);
+        buffer[--position] = entry;
+    }
+
+    public void writeRawBytes(byte[] entry) {
+        writeRawBytes(entry, 0, entry.length);
+    }
+
+    public void writeRawBytes(byte[] entry, int offset, int length) {
+        if(length < 0) {
+            throw ProtobufSerializationException.negativeLength();
+        }
+
+        ensureCapacity(length);
+        System.arraycopy(entry, offset, buffer, position - length, length);
+        position -= length;
+    }
+
+    public void writeRawBuffer(ByteBuffer entry) {
+        var length = entry.remaining();
+        ensureCapacity(length);
+        entry.get(entry.position(), buffer, position - length, length);
+        position -= length;
+    }
+
+    public void writeRawMemorySegment(MemorySegment entry) {
+        var length = (int) entry.byteSize();
+        if(entry.byteSize() != length) {
+            throw ProtobufSerializationException.underflow();
+        }
+
+        ensureCapacity(length);
+        MemorySegment.copy(entry, ValueLayout.JAVA_BYTE, 0, buffer, position - length, length);
+        position -= length;
+    }
+
+    public void writeRawFixedInt32(int entry) {
+        ensureCapacity(Integer.BYTES);
+        position -= Integer.BYTES;
+        ProtobufIO.putIntLE(buffer, position, entry);
+    }
+
+    public void writeRawFixedInt64(long entry) {
+        ensureCapacity(Long.BYTES);
+        position -= Long.BYTES;
+        ProtobufIO.putLongLE(buffer, position, entry);
+    }
+
+    public void writeRawFloat(float entry) {
+        ensureCapacity(Float.BYTES);
+        position -= Float.BYTES;
+        ProtobufIO.putFloatLE(buffer, position, entry);
+    }
+
+    public void writeRawDouble(double entry) {
+        ensureCapacity(Double.BYTES);
+        position -= Double.BYTES;
+        ProtobufIO.putDoubleLE(buffer, position, entry);
+    }
+
+    // Negative int32 values are sign extended, like in ProtobufWriter
+    public void writeRawVarInt32(int entry) {
+        writeRawVarInt64(entry);
+    }
+
+    public void writeRawZigZagVarInt32(int value) {
+        var zigzag = (value << 1) ^ (value >> 31);
+        writeRawVarInt64(Integer.toUnsignedLong(zigzag));
+    }
+
+    public void writeRawZigZagVarInt64(long value) {
+        var zigzag = (value << 1) ^ (value >> 63);
+        writeRawVarInt64(zigzag);
+    }
+
+    public void writeRawVarInt64(long entry) {
+        if ((entry & ~0x7FL) == 0) {
+            writeRawByte((byte) entry);
+            return;
+        }
+
+        // There is always room for a whole word before the var int, so the bytes after it are never overwritten
+        ensureCapacity(MAX_VAR_INT_SIZE);
+        var length = ProtobufWriter.getVarIntLength(entry);
+        var encoded = ProtobufWriter.encodeVarIntLow(entry, length);
+        if (length <= Long.BYTES) {
+            ProtobufIO.putLongLE(buffer, position - Long.BYTES, encoded << ((Long.BYTES - length) * Byte.SIZE));
+            position -= length;
+        } else {
+            position -= length;
+            ProtobufIO.putLongLE(buffer, position, encoded);
+            var high = ProtobufWriter.encodeVarIntHigh(entry);
+            buffer[position + Long.BYTES] = (byte) high;
+            if (length == MAX_VAR_INT_SIZE) {
+                buffer[position + Long.BYTES + 1] = (byte) (high >>> Byte.SIZE);
+            }
+        }
+    }
+
+    // The written bytes are moved to the end of the new buffer, so the markers stay valid
+    private void ensureCapacity(int length) {
+        if (position >= length) {
+            return;
+        }
+
+        var size = size();
+        var required = (long) size + length;
+        if (required > MAX_LENGTH) {
+            throw ProtobufSerializationException.underflow();
+        }
+
+        var newLength = (int) Math.min(Math.max(buffer.length * 2L, required), MAX_LENGTH);
+        var newBuffer = new byte[newLength];
+        System.arraycopy(buffer, position, newBuffer, newLength - size, size);
+        buffer = newBuffer;
+        position = newLength - size;
+    }
+
+    // The written bytes, the buffer is returned as it is if it was filled exactly
+    public byte[] toOutput() {
+        if (position == 0) {
+            return buffer;
+        } else {
+            return Arrays.copyOfRange(buffer, position, buffer.length);
+        }
+    }
+
+    // A view of the written bytes that doesn't copy them
+    public ByteBuffer toBuffer() {
+        return ByteBuffer.wrap(buffer, position, size()).slice();
+    }
+}
@@ -0,0 +1,119 @@
+package it.auties.protobuf.io;
+
+import java.util.Arrays;
+
+/**
+ * An identity keyed table of the sizes of the messages that are being encoded.
+ * <p>
+ * The size of a message is computed recursively, so sizing every embedded message before writing its length
+ * would size the innermost messages once for every level above them.
+ * A table filled while sizing the top level message lets every length prefix be written from the size that was already computed.
+ * Messages are compared by identity, so a table is only valid until the messages it was filled with are modified:
+ * it's meant to be used for the duration of a single encoding and then cleared or discarded.
+ *
+ * @see ProtobufWriter#setSizeCache(ProtobufSizeCache)
+ */
+public final class ProtobufSizeCache {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int MISSING_SIZE = -1;
+
+    private Object[] keys;
+    private int[] sizes;
+    private int count;
+
+    public ProtobufSizeCache() {
+        this.keys = new Object[DEFAULT_CAPACITY];
+        this.sizes = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Returns the size that was stored for a message
+     *
+     * @param message the message, compared by identity
+     * @return the size of the message, or -1 if it wasn't stored
+     */
+    public int get(Object message) {
+        if (message == null) {
+            return MISSING_SIZE;
+        }
+
+        var mask = keys.length - 1;
+        for (var slot = hash(message) & mask; ; slot = (slot + 1) & mask) {
+            var key = keys[slot];
+            if (key == message) {
+                return sizes[slot];
+            } else if (key == null) {
+                return MISSING_SIZE;
+            }
+        }
+    }
+
+    /**
+     * Stores the size of a message
+     *
+     * @param message the message, compared by identity
+     * @param size the size of the message, without its tag and length prefix
+     */
+    public void put(Object message, int size) {
+        if (message == null) {
+            return;
+        }
+
+        // The load factor is kept at one half, so probe sequences stay short
+        if ((count + 1) * 2 > keys.length) {
+            resize();
+        }
+
+        var mask = keys.length - 1;
+        for (var slot = hash(message) & mask; ; slot = (slot + 1) & mask) {
+            var key = keys[slot];
+            if (key == null) {
+                keys[slot] = message;
+                sizes[slot] = size;
+                count++;
+                return;
+            } else if (key == message) {
+                sizes[slot] = size;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all the stored sizes, so that the table can be reused for another encoding
+     */
+    public void clear() {
+        if (count != 0) {
+            Arrays.fill(keys, null);
+            count = 0;
+        }
+    }
+
+    /**
+     * Returns the number of stored sizes
+     *
+     * @return a non-negative number
+     */
+    public int size() {
+        return count;
+    }
+
+    private void resize() {
+        var oldKeys = keys;
+        var oldSizes = sizes;
+        keys = new Object[oldKeys.length * 2];
+        sizes = new int[oldSizes.length * 2];
+        count = 0;
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldSizes[i]);
+            }
+        }
+    }
+
+    // Identity hash codes are not well distributed in their low bits
+    private static int hash(Object message) {
+        var hash = System.identityHashCode(message);
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -78,6 +78,11 @@ public final class ProtobufSizeCalculator {
                + length;
     }
 
+    // The size of a message written by ProtobufWriter.writeDelimited
+    public static long getDelimitedSize(long length) {
+        return getVarIntSize(length) + length;
+    }
+
     public static long getFixed32PropertySize(long fieldIndex, int ignored) {
         return getPropertyWireTagSize(fieldIndex, ProtobufWireType.WIRE_TYPE_FIXED32)
                + Integer.BYTES;
@@ -4,14 +4,24 @@ import it.auties.protobuf.exception.ProtobufDeserializationException;
 import it.auties.protobuf.exception.ProtobufSerializationException;
 import it.auties.protobuf.model.ProtobufUnknownValue;
 import it.auties.protobuf.model.ProtobufWireType;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
 
 /**
  * An abstract output stream for writing Protocol Buffer encoded data.
@@ -34,25 +44,60 @@ import java.util.Objects;
  * @see ProtobufReader
  */
 public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
+    // The largest encoded var int that is written with a single 64 bit store and, if needed, a 16 bit store
+    private static final int VAR_INT_WORDS_LENGTH = Long.BYTES + Short.BYTES;
+
+    private static final int DEFAULT_STREAM_BUFFER_LENGTH = 8192;
+    // A var int is always encoded in the buffer with whole words
+    private static final int MIN_STREAM_BUFFER_LENGTH = Long.BYTES * 2;
+    // Payloads at least this long are passed to the channel as they are instead of being copied in the staging buffer
+    private static final int MIN_GATHERED_PAYLOAD_LENGTH = 4096;
+    // Most operating systems don't gather more than 1024 buffers in a single call
+    private static final int MAX_GATHERED_BUFFERS = 1024;
+
+    // Packed var ints are sized and encoded a block of 64 bit lanes at a time, when the platform has vectors of at least two of them
+    private static final VectorSpecies<Long> VAR_INT_LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final boolean SUPPORTS_VAR_INT_VECTORS = VAR_INT_LONG_SPECIES.length() >= 2;
+    // Holds as many int32 lanes as VAR_INT_LONG_SPECIES holds int64 lanes
+    private static final VectorSpecies<Integer> VAR_INT_INT_SPECIES = SUPPORTS_VAR_INT_VECTORS
+            ? VectorSpecies.of(int.class, VectorShape.forBitSize(VAR_INT_LONG_SPECIES.vectorBitSize() / 2))
+            : IntVector.SPECIES_64;
+
+    private static final int DEFAULT_GROWABLE_LENGTH = 256;
+    // Some virtual machines reserve a few header words in arrays
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    // Returned by writeStartLengthDelimitedProperty when the length didn't need to be reserved, markers are never negative
+    private static final long WRITTEN_LENGTH_MARKER = -1;
+
+    // The continuation bits of the first eight bytes of a var int, indexed by its length
+    private static final long[] VAR_INT_CONTINUATION_BITS = new long[MAX_VAR_INT_SIZE + 1];
+    static {
+        for (var length = 2; length <= MAX_VAR_INT_SIZE; length++) {
+            var bytes = Math.min(length - 1, Long.BYTES);
+            VAR_INT_CONTINUATION_BITS[length] = bytes == Long.BYTES ? 0x8080808080808080L : 0x8080808080808080L & ((1L << (bytes * Byte.SIZE)) - 1);
+        }
+    }
+
     public static ProtobufWriter<byte[]> toBytes(int length) {
         if(length < 0) {
             throw new IllegalArgumentException("length must not be negative");
         }else {
-            return new ByteArrayWriter(new byte[length], 0);
+            return new ByteArrayWriter(new byte[length], 0, false, true);
         }
     }
 
     public static ProtobufWriter<byte[]> toBytes(byte[] bytes, int offset) {
         Objects.requireNonNull(bytes, "bytes must not be null");
-        Objects.checkIndex(offset, bytes.length);
-        return new ByteArrayWriter(bytes, offset);
+        Objects.checkFromIndexSize(offset, 0, bytes.length);
+        return new ByteArrayWriter(bytes, offset, false, false);
     }
 
     public static ProtobufWriter<ByteBuffer> toHeapBuffer(int length) {
         if(length < 0) {
             throw new IllegalArgumentException("length must not be negative");
         }else {
-            return new ByteBufferWriter(ByteBuffer.allocate(length));
+            return new ByteBufferWriter(ByteBuffer.allocate(length), false, true);
         }
     }
 
@@ -60,7 +105,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         if(length < 0) {
             throw new IllegalArgumentException("length must not be negative");
         }else {
-            return new ByteBufferWriter(ByteBuffer.allocateDirect(length));
+            return new ByteBufferWriter(ByteBuffer.allocateDirect(length), false, true);
         }
     }
 
@@ -69,21 +114,101 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         if(buffer.isReadOnly()) {
             throw new IllegalArgumentException("buffer is read-only");
         } else {
-            return new ByteBufferWriter(buffer);
+            return new ByteBufferWriter(buffer, false, false);
         }
     }
 
     public static ProtobufWriter<MemorySegment> toMemorySegment(MemorySegment segment) {
         Objects.requireNonNull(segment, "segment must not be null");
-        return new MemorySegmentWriter(segment);
+        return new MemorySegmentWriter(segment, null);
+    }
+
+    // The growable writers don't need the size of the output: their buffer expands geometrically as it's written
+    public static ProtobufWriter<byte[]> toGrowableBytes() {
+        return toGrowableBytes(DEFAULT_GROWABLE_LENGTH);
+    }
+
+    public static ProtobufWriter<byte[]> toGrowableBytes(int initialLength) {
+        if(initialLength < 0) {
+            throw new IllegalArgumentException("initialLength must not be negative");
+        }else {
+            return new ByteArrayWriter(new byte[initialLength], 0, true, true);
+        }
+    }
+
+    public static ProtobufWriter<ByteBuffer> toGrowableHeapBuffer(int initialLength) {
+        if(initialLength < 0) {
+            throw new IllegalArgumentException("initialLength must not be negative");
+        }else {
+            return new ByteBufferWriter(ByteBuffer.allocate(initialLength), true, true);
+        }
+    }
+
+    public static ProtobufWriter<ByteBuffer> toGrowableDirectBuffer(int initialLength) {
+        if(initialLength < 0) {
+            throw new IllegalArgumentException("initialLength must not be negative");
+        }else {
+            return new ByteBufferWriter(ByteBuffer.allocateDirect(initialLength), true, true);
+        }
+    }
+
+    // The output and every segment that was outgrown live until the arena is closed
+    public static ProtobufWriter<MemorySegment> toGrowableMemorySegment(Arena arena, long initialLength) {
+        Objects.requireNonNull(arena, "arena must not be null");
+        if(initialLength < 0) {
+            throw new IllegalArgumentException("initialLength must not be negative");
+        }else {
+            return new MemorySegmentWriter(arena.allocate(initialLength), arena);
+        }
+    }
+
+    // The chunked writers chain buffers of a fixed length instead of copying what was written into a larger one
+    public static ProtobufWriter<List<ByteBuffer>> toHeapBuffers(int chunkLength) {
+        return toBuffers(chunkLength, false);
+    }
+
+    public static ProtobufWriter<List<ByteBuffer>> toDirectBuffers(int chunkLength) {
+        return toBuffers(chunkLength, true);
+    }
+
+    private static ProtobufWriter<List<ByteBuffer>> toBuffers(int chunkLength, boolean direct) {
+        if(chunkLength < MIN_STREAM_BUFFER_LENGTH) {
+            throw new IllegalArgumentException("chunkLength must be at least " + MIN_STREAM_BUFFER_LENGTH);
+        }else {
+            return new ChunkedWriter(chunkLength, direct);
+        }
     }
 
     public static ProtobufWriter<OutputStream> toStream(OutputStream buffer) {
         Objects.requireNonNull(buffer, "buffer must not be null");
-        return new InputStreamWriter(buffer);
+        return new InputStreamWriter(buffer, DEFAULT_STREAM_BUFFER_LENGTH);
+    }
+
+    public static ProtobufWriter<OutputStream> toStream(OutputStream buffer, int bufferSize) {
+        Objects.requireNonNull(buffer, "buffer must not be null");
+        return new InputStreamWriter(buffer, bufferSize);
+    }
+
+    public static ProtobufWriter<GatheringByteChannel> toChannel(GatheringByteChannel channel) {
+        Objects.requireNonNull(channel, "channel must not be null");
+        return new ChannelWriter(channel, ByteBuffer.allocateDirect(DEFAULT_STREAM_BUFFER_LENGTH));
+    }
+
+    // The staging buffer can be taken from a pool, it's only used by the writer until it's closed
+    public static ProtobufWriter<GatheringByteChannel> toChannel(GatheringByteChannel channel, ByteBuffer staging) {
+        Objects.requireNonNull(channel, "channel must not be null");
+        Objects.requireNonNull(staging, "staging must not be null");
+        if(staging.isReadOnly()) {
+            throw new IllegalArgumentException("staging is read-only");
+        } else if(staging.capacity() < MIN_STREAM_BUFFER_LENGTH) {
+            throw new IllegalArgumentException("staging must have a capacity of at least " + MIN_STREAM_BUFFER_LENGTH);
+        } else {
+            return new ChannelWriter(channel, staging.clear());
+        }
     }
 
     protected long propertyIndex;
+    protected ProtobufSizeCache sizeCache;
     protected ProtobufWriter() {
         resetPropertyTag();
     }
@@ -100,13 +225,13 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         if(propertyIndex == Long.MIN_VALUE) {
             throw new IllegalStateException("No field index was set");
         }else {
-            writeRawFixedInt64(ProtobufWireType.makeTag(propertyIndex, wireType));
+            writeRawVarInt64(ProtobufWireType.makeTag(propertyIndex, wireType));
             resetPropertyTag();
         }
     }
 
     public void writePropertyTag(long propertyIndex, int wireType) {
-        writeRawFixedInt64(ProtobufWireType.makeTag(propertyIndex, wireType));
+        writeRawVarInt64(ProtobufWireType.makeTag(propertyIndex, wireType));
         resetPropertyTag();
     }
 
@@ -118,8 +243,64 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         if(length < 0) {
             throw ProtobufDeserializationException.negativeLength(length);
         } else {
-            writeRawFixedInt32(length);
+            writeRawVarInt32(length);
+        }
+    }
+
+    // Writes the tag of a length delimited property whose length isn't known yet, like an embedded message,
+    // and returns the marker to pass to writeEndLengthDelimitedProperty once its value was written
+    // The length is back-patched, so the size of the value never has to be computed before writing it
+    public long writeStartLengthDelimitedProperty(long propertyIndex) {
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        return reserveLength();
+    }
+
+    // If the size of the value was stored in the size cache while sizing the message, its length is written right away
+    // Otherwise the length is back-patched like in writeStartLengthDelimitedProperty(long)
+    public long writeStartLengthDelimitedProperty(long propertyIndex, Object value) {
+        if(sizeCache != null) {
+            var size = sizeCache.get(value);
+            if(size != -1) {
+                writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+                writeLengthDelimitedPropertyLength(size);
+                return WRITTEN_LENGTH_MARKER;
+            }
+        }
+
+        return writeStartLengthDelimitedProperty(propertyIndex);
+    }
+
+    public void writeEndLengthDelimitedProperty(long marker) {
+        if(marker != WRITTEN_LENGTH_MARKER) {
+            patchLength(marker);
+        }
+    }
+
+    public ProtobufSizeCache sizeCache() {
+        return sizeCache;
+    }
+
+    // The sizes in the cache are used by writeStartLengthDelimitedProperty(long, Object)
+    public void setSizeCache(ProtobufSizeCache sizeCache) {
+        this.sizeCache = sizeCache;
+    }
+
+    // Reserves the space for a length that will be written by patchLength
+    protected abstract long reserveLength();
+
+    // Writes the length of everything that was written since the matching reserveLength
+    protected abstract void patchLength(long marker);
+
+    // Writes a message prefixed by its length, the framing read by ProtobufReader.readDelimited
+    // Use ProtobufSizeCalculator.getDelimitedSize to size the output
+    public <T> void writeDelimited(T value, ToIntFunction<? super T> sizeOf, BiConsumer<? super T, ProtobufWriter<?>> encoder) {
+        var length = sizeOf.applyAsInt(value);
+        if(length < 0) {
+            throw ProtobufSerializationException.negativeLength();
         }
+
+        writeRawVarInt32(length);
+        encoder.accept(value, this);
     }
 
     public void writeStartGroupProperty(long propertyIndex) {
@@ -284,7 +465,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
     }
 
     private void writeFixed64(long propertyIndex, long value) {
-        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED32);
+        writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_FIXED64);
         writeRawFixedInt64(value);
     }
 
@@ -294,10 +475,10 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
             case ProtobufUnknownValue.Fixed64(var fixed64Value) -> writeFixed64(propertyIndex, fixed64Value);
 
-            case ProtobufUnknownValue.Group(var groupValue) -> {
+            case ProtobufUnknownValue.Group(var groupIndexes, var groupValues) -> {
                 writeStartGroupProperty(propertyIndex);
-                for(var entry : groupValue.entrySet()) {
-                    writeUnknownProperty(entry.getKey(), entry.getValue());
+                for(var i = 0; i < groupIndexes.length; i++) {
+                    writeUnknownProperty(groupIndexes[i], groupValues[i]);
                 }
                 writeEndGroupProperty(propertyIndex);
             }
@@ -332,9 +513,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Float.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawFloat(value);
-            }
+            writeRawFloats(values);
         }
     }
 
@@ -343,15 +522,13 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Double.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawDouble(value);
-            }
+            writeRawDoubles(values);
         }
     }
 
     public void writePackedInt32Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -362,7 +539,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedInt32Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -373,18 +550,16 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
     
     public void writePackedInt32Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt32(value);
-            }
+            writeRawVarInts(values);
         }
     }
     
     public void writePackedUInt32Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -395,7 +570,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedUInt32Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -406,18 +581,16 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedUInt32Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt32(value);
-            }
+            writeRawVarInts(values);
         }
     }
     
     public void writePackedSInt32Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -428,7 +601,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedSInt32Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -439,18 +612,16 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedSInt32Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Integer.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawZigZagVarInt32(value);
-            }
+            writeRawZigZagVarInts(values);
         }
     }
     
     public void writePackedInt64Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -461,7 +632,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedInt64Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -472,30 +643,26 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedInt64Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt64(value);
-            }
+            writeRawVarInts(values);
         }
     }
 
 
     public void writePackedInt64Property(long propertyIndex, long[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt64(value);
-            }
+            writeRawVarInts(values);
         }
     }
 
     public void writePackedUInt64Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -506,7 +673,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedUInt64Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -517,29 +684,25 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedUInt64Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt64(value);
-            }
+            writeRawVarInts(values);
         }
     }
 
     public void writePackedUInt64Property(long propertyIndex, long[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawVarInt64(value);
-            }
+            writeRawVarInts(values);
         }
     }
 
     public void writePackedSInt64Property(long propertyIndex, byte[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -550,7 +713,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedSInt64Property(long propertyIndex, short[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
             for (var value : values) {
@@ -561,23 +724,19 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
 
     public void writePackedSInt64Property(long propertyIndex, int[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawZigZagVarInt64(value);
-            }
+            writeRawZigZagVarInts(values);
         }
     }
 
     public void writePackedSInt64Property(long propertyIndex, long[] values) {
         if(values != null){
-            var size = values.length * Long.BYTES;
+            var size = getZigZagVarIntPackedLength(values);
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawZigZagVarInt64(value);
-            }
+            writeRawZigZagVarInts(values);
         }
     }
     
@@ -608,9 +767,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Integer.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawFixedInt32(value);
-            }
+            writeRawFixedInt32s(values);
         }
     }
 
@@ -641,9 +798,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Integer.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawFixedInt32(value);
-            }
+            writeRawFixedInt32s(values);
         }
     }
 
@@ -685,9 +840,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Long.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawFixedInt64(value);
-            }
+            writeRawFixedInt64s(values);
         }
     }
 
@@ -729,9 +882,7 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
             var size = values.length * Long.BYTES;
             writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
             writeLengthDelimitedPropertyLength(size);
-            for (var value : values) {
-                writeRawFixedInt64(value);
-            }
+            writeRawFixedInt64s(values);
         }
     }
 
@@ -745,16 +896,20 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
     public abstract void writeRawFixedInt64(long entry);
     public abstract void writeRawFloat(float entry);
     public abstract void writeRawDouble(double entry);
-    public abstract void writeRawVarInt32(int entry);
     public abstract void writeRawVarInt64(long entry);
 
+    // Negative int32 values are sign extended, so they always take up ten bytes like on the reference implementation
+    public void writeRawVarInt32(int entry) {
+        writeRawVarInt64(entry);
+    }
+
     public void writeRawBytes(byte[] entry) {
         writeRawBytes(entry, 0, entry.length);
     }
 
     public void writeRawZigZagVarInt32(int value) {
         var zigzag = (value << 1) ^ (value >> 31);
-        writeRawVarInt32(zigzag);
+        writeRawVarInt64(Integer.toUnsignedLong(zigzag));
     }
 
     public void writeRawZigZagVarInt64(long value) {
@@ -762,246 +917,1083 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         writeRawVarInt64(zigzag);
     }
     
-    public abstract OUTPUT toOutput();
-
-    private static final class ByteArrayWriter extends ProtobufWriter<byte[]> {
-        private final byte[] buffer;
-        private int position;
-
-        private ByteArrayWriter(byte[] buffer, int offset) {
-            this.buffer = buffer;
-            this.position = offset;
+    // Write the values of a packed var int property, backends that can encode a block of values at a time override them
+    // Int32 values are sign extended like in writeRawVarInt32
+    protected void writeRawVarInts(int[] values) {
+        for (var value : values) {
+            writeRawVarInt32(value);
         }
+    }
 
-        @Override
-        public void writeRawByte(byte entry) {
-            try {
-                buffer[position++] = entry;
-            } catch (ArrayIndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    protected void writeRawVarInts(long[] values) {
+        for (var value : values) {
+            writeRawVarInt64(value);
         }
+    }
 
-        @Override
-        public void writeRawBytes(byte[] entry, int offset, int length) {
-            try {
-                System.arraycopy(entry, offset, buffer, position, length);
-                position += length;
-            } catch (NegativeArraySizeException _) {
-                throw ProtobufSerializationException.negativeLength();
-            } catch (IndexOutOfBoundsException error) {
-                throw ProtobufSerializationException.underflow();
-            }
+    protected void writeRawZigZagVarInts(int[] values) {
+        for (var value : values) {
+            writeRawZigZagVarInt32(value);
         }
+    }
 
-        @Override
-        public void writeRawBuffer(ByteBuffer entry) {
-            var length = entry.remaining();
-            entry.get(entry.position(), buffer, position, length);
-            position += length;
+    protected void writeRawZigZagVarInts(long[] values) {
+        for (var value : values) {
+            writeRawZigZagVarInt64(value);
         }
+    }
 
-        @Override
-        public void writeRawMemorySegment(MemorySegment entry) {
-            var length = (int) entry.byteSize();
-            if(entry.byteSize() != length) {
-                throw ProtobufSerializationException.underflow();
-            }else {
-                try {
-                    MemorySegment.copy(
-                            entry,
-                            ValueLayout.JAVA_BYTE,
-                            0,
-                            buffer,
-                            position,
-                            length
-                    );
-                    position += length;
-                } catch (IndexOutOfBoundsException error) {
-                    throw ProtobufSerializationException.underflow();
-                }
-            }
+    // Write the values of a packed fixed property, backends that write to memory override them with a single bulk copy
+    protected void writeRawFixedInt32s(int[] values) {
+        for (var value : values) {
+            writeRawFixedInt32(value);
         }
+    }
 
-        @Override
-        public void writeRawFixedInt32(int value) {
-            try {
-                putIntLE(buffer, position, value);
-                position += Integer.BYTES;
-            }catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    protected void writeRawFixedInt64s(long[] values) {
+        for (var value : values) {
+            writeRawFixedInt64(value);
         }
+    }
 
-        @Override
-        public void writeRawFixedInt64(long value) {
-            try {
-                putLongLE(buffer, position, value);
-                position += Long.BYTES;
-            }catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    protected void writeRawFloats(float[] values) {
+        for (var value : values) {
+            writeRawFloat(value);
         }
+    }
 
-        @Override
-        public void writeRawFloat(float entry) {
-            try {
-                putFloatLE(buffer, position, entry);
-                position += Float.BYTES;
-            }catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    protected void writeRawDoubles(double[] values) {
+        for (var value : values) {
+            writeRawDouble(value);
         }
+    }
 
-        @Override
-        public void writeRawDouble(double entry) {
-            try {
-                putDoubleLE(buffer, position, entry);
-                position += Double.BYTES;
-            }catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    // Writes a var int a byte at a time, used when the output doesn't have room for a whole encoded word
+    protected final void writeRawVarInt64Scalar(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeRawByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
         }
+        writeRawByte((byte) value);
+    }
 
-        @Override
-        public void writeRawVarInt32(int entry) {
-            throw new UnsupportedOperationException();
+    // (bits * 9 + 64) / 64 is ceil(bits / 7) for every bit length in [1, 64]
+    // A negative value always takes up ten bytes
+    protected static int getVarIntLength(long value) {
+        return (9 * (Long.SIZE - Long.numberOfLeadingZeros(value | 1)) + 64) >>> 6;
+    }
+
+    // The reverse of the Long.compress trick used by ProtobufReader:
+    // Long.expand spreads the low 56 bits of the value over the low 7 bits of every byte,
+    // then the continuation bit is set on every byte but the last one
+    protected static long encodeVarIntLow(long value, int length) {
+        return Long.expand(value, INT64_PEXT_MASK_LOW) | VAR_INT_CONTINUATION_BITS[length];
+    }
+
+    // The ninth and tenth byte of a var int that is longer than eight bytes
+    protected static short encodeVarIntHigh(long value) {
+        return (short) (Long.expand(value >>> 56, INT64_PEXT_MASK_HIGH) | (value < 0 ? 0x80 : 0));
+    }
+
+    // The exact length stores write a var int without touching the bytes after it, for destinations whose bytes belong to the caller
+    // The low word is merged with the bytes that are already there, so the destination must have room for a whole word
+    protected static void putVarIntExact(byte[] buffer, int offset, long value, int length) {
+        putLongLE(buffer, offset, mergeVarIntLow(getLongLE(buffer, offset), value, length));
+        if (length > Long.BYTES) {
+            var high = encodeVarIntHigh(value);
+            buffer[offset + Long.BYTES] = (byte) high;
+            if (length > Long.BYTES + 1) {
+                buffer[offset + Long.BYTES + 1] = (byte) (high >>> Byte.SIZE);
+            }
         }
+    }
 
-        @Override
-        public void writeRawVarInt64(long entry) {
-            throw new UnsupportedOperationException();
+    protected static void putVarIntExact(ByteBuffer buffer, int offset, long value, int length) {
+        putLongLE(buffer, offset, mergeVarIntLow(getLongLE(buffer, offset), value, length));
+        if (length > Long.BYTES) {
+            var high = encodeVarIntHigh(value);
+            buffer.put(offset + Long.BYTES, (byte) high);
+            if (length > Long.BYTES + 1) {
+                buffer.put(offset + Long.BYTES + 1, (byte) (high >>> Byte.SIZE));
+            }
         }
+    }
 
-        @Override
-        public byte[] toOutput() {
-            if (buffer.length != position) {
-                throw ProtobufSerializationException.mismatch();
-            }else {
-                return buffer;
+    protected static void putVarIntExact(MemorySegment segment, long offset, long value, int length) {
+        putLongLE(segment, offset, mergeVarIntLow(getLongLE(segment, offset), value, length));
+        if (length > Long.BYTES) {
+            var high = encodeVarIntHigh(value);
+            segment.set(ValueLayout.JAVA_BYTE, offset + Long.BYTES, (byte) high);
+            if (length > Long.BYTES + 1) {
+                segment.set(ValueLayout.JAVA_BYTE, offset + Long.BYTES + 1, (byte) (high >>> Byte.SIZE));
             }
         }
+    }
 
-        @Override
-        public DataType rawDataTypePreference() {
-            return DataType.BYTE_ARRAY;
+    // Replaces the first length bytes of the word with the low word of the var int, keeping the others
+    private static long mergeVarIntLow(long word, long value, int length) {
+        var encoded = encodeVarIntLow(value, length);
+        if (length >= Long.BYTES) {
+            return encoded;
         }
 
-        @Override
-        public void close() {
+        var mask = (1L << (length << 3)) - 1;
+        return (word & ~mask) | encoded;
+    }
 
+    private static int getVarIntPackedLength(byte[] values) {
+        var length = 0;
+        for (var value : values) {
+            length += getVarIntLength(value);
         }
+        return length;
     }
 
-    private static final class ByteBufferWriter extends ProtobufWriter<ByteBuffer> {
-        private final ByteBuffer buffer;
-
-        private ByteBufferWriter(ByteBuffer buffer) {
-            this.buffer = buffer;
+    private static int getVarIntPackedLength(short[] values) {
+        var length = 0;
+        for (var value : values) {
+            length += getVarIntLength(value);
         }
+        return length;
+    }
 
-        @Override
-        public void writeRawByte(byte entry) {
-            try {
-                buffer.put(entry);
-            }catch (BufferOverflowException _) {
-                throw ProtobufSerializationException.underflow();
+    private static int getVarIntPackedLength(int[] values) {
+        var length = 0L;
+        var i = 0;
+        if (SUPPORTS_VAR_INT_VECTORS) {
+            for (var bound = VAR_INT_INT_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_INT_SPECIES.length()) {
+                length += getVarIntLengths(loadVarInts(values, i)).reduceLanes(VectorOperators.ADD);
             }
         }
+        for (; i < values.length; i++) {
+            length += getVarIntLength(values[i]);
+        }
+        return (int) length;
+    }
 
-        @Override
-        public void writeRawBytes(byte[] entry, int offset, int length) {
-            try {
-                buffer.put(entry, offset, length);
-            }catch (BufferOverflowException _) {
-                throw ProtobufSerializationException.underflow();
+    private static int getVarIntPackedLength(long[] values) {
+        var length = 0L;
+        var i = 0;
+        if (SUPPORTS_VAR_INT_VECTORS) {
+            for (var bound = VAR_INT_LONG_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_LONG_SPECIES.length()) {
+                length += getVarIntLengths(LongVector.fromArray(VAR_INT_LONG_SPECIES, values, i)).reduceLanes(VectorOperators.ADD);
             }
         }
+        for (; i < values.length; i++) {
+            length += getVarIntLength(values[i]);
+        }
+        return (int) length;
+    }
 
-        @Override
-        public void writeRawBuffer(ByteBuffer entry) {
-            try {
-                buffer.put(entry.duplicate());
-            } catch (BufferOverflowException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+    private static int getZigZagVarIntPackedLength(byte[] values) {
+        var length = 0;
+        for (var value : values) {
+            length += getVarIntLength((value << 1) ^ (value >> 31));
+        }
+        return length;
+    }
+
+    private static int getZigZagVarIntPackedLength(short[] values) {
+        var length = 0;
+        for (var value : values) {
+            length += getVarIntLength((value << 1) ^ (value >> 31));
         }
+        return length;
+    }
 
-        @Override
-        public void writeRawMemorySegment(MemorySegment entry) {
-            try {
-                buffer.put(entry.asByteBuffer());
-            } catch (BufferOverflowException _) {
-                throw ProtobufSerializationException.underflow();
+    private static int getZigZagVarIntPackedLength(int[] values) {
+        var length = 0L;
+        var i = 0;
+        if (SUPPORTS_VAR_INT_VECTORS) {
+            for (var bound = VAR_INT_INT_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_INT_SPECIES.length()) {
+                length += getVarIntLengths(loadZigZagVarInts(values, i)).reduceLanes(VectorOperators.ADD);
             }
         }
+        for (; i < values.length; i++) {
+            var value = values[i];
+            length += getVarIntLength(Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+        }
+        return (int) length;
+    }
 
-        @Override
-        public void writeRawFixedInt32(int value) {
-            try {
-                var position = buffer.position();
-                putIntLE(buffer, position, value);
-                buffer.position(position + Integer.BYTES);
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
+    private static int getZigZagVarIntPackedLength(long[] values) {
+        var length = 0L;
+        var i = 0;
+        if (SUPPORTS_VAR_INT_VECTORS) {
+            for (var bound = VAR_INT_LONG_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_LONG_SPECIES.length()) {
+                length += getVarIntLengths(loadZigZagVarInts(values, i)).reduceLanes(VectorOperators.ADD);
             }
         }
+        for (; i < values.length; i++) {
+            var value = values[i];
+            length += getVarIntLength((value << 1) ^ (value >> 63));
+        }
+        return (int) length;
+    }
+
+    // The vector counterparts of getVarIntLength, zigzag and encodeVarIntLow: every lane holds a value that will be written as a var int
+    // Int32 values are widened to 64 bits, sign extended like writeRawVarInt32 or zero extended after the zigzag transform
+    private static LongVector loadVarInts(int[] values, int offset) {
+        return (LongVector) IntVector.fromArray(VAR_INT_INT_SPECIES, values, offset)
+                .convertShape(VectorOperators.I2L, VAR_INT_LONG_SPECIES, 0);
+    }
+
+    private static LongVector loadZigZagVarInts(int[] values, int offset) {
+        var vector = IntVector.fromArray(VAR_INT_INT_SPECIES, values, offset);
+        var zigzag = vector.lanewise(VectorOperators.LSHL, 1)
+                .lanewise(VectorOperators.XOR, vector.lanewise(VectorOperators.ASHR, 31));
+        return ((LongVector) zigzag.convertShape(VectorOperators.I2L, VAR_INT_LONG_SPECIES, 0))
+                .and(0xFFFFFFFFL);
+    }
+
+    private static LongVector loadZigZagVarInts(long[] values, int offset) {
+        var vector = LongVector.fromArray(VAR_INT_LONG_SPECIES, values, offset);
+        return vector.lanewise(VectorOperators.LSHL, 1)
+                .lanewise(VectorOperators.XOR, vector.lanewise(VectorOperators.ASHR, 63));
+    }
+
+    private static LongVector getVarIntLengths(LongVector values) {
+        var bits = values.or(1L)
+                .lanewise(VectorOperators.LEADING_ZEROS_COUNT)
+                .neg()
+                .add(Long.SIZE);
+        return bits.mul(9)
+                .add(64)
+                .lanewise(VectorOperators.LSHR, 6);
+    }
+
+    // Encodes a block of var ints with one 64 bit store per lane, each store is overwritten past its var int by the next one
+    // Returns the offset after the block, or -1 if a var int takes up more than eight bytes, in which case nothing is written
+    // The buffer must have room for a whole word per lane. If exactTail is true, the bytes after the block are left untouched,
+    // as nothing would overwrite them
+    protected static int encodeVarIntBlock(byte[] buffer, int offset, LongVector values, long[] scratch, boolean exactTail) {
+        var lengths = getVarIntLengths(values);
+        if (lengths.compare(VectorOperators.GT, Long.BYTES).anyTrue()) {
+            return -1;
+        }
+
+        // The continuation bits of the first length - 1 bytes
+        var continuationBits = LongVector.broadcast(VAR_INT_LONG_SPECIES, -1L)
+                .lanewise(VectorOperators.LSHL, lengths.sub(1).lanewise(VectorOperators.LSHL, 3))
+                .not()
+                .and(0x8080808080808080L);
+        var encoded = values.lanewise(VectorOperators.EXPAND_BITS, INT64_PEXT_MASK_LOW)
+                .or(continuationBits);
+        var lanes = VAR_INT_LONG_SPECIES.length();
+        encoded.intoArray(scratch, 0);
+        lengths.intoArray(scratch, lanes);
+        var last = lanes - 1;
+        // Every store ends before the one of the last lane does, so the bytes it would overwrite are saved first and merged back into it
+        var tail = 0L;
+        if (exactTail) {
+            var lastOffset = offset;
+            for (var i = 0; i < last; i++) {
+                lastOffset += (int) scratch[lanes + i];
+            }
+            tail = getLongLE(buffer, lastOffset);
+        }
+        for (var i = 0; i < last; i++) {
+            putLongLE(buffer, offset, scratch[i]);
+            offset += (int) scratch[lanes + i];
+        }
+        var lastLength = (int) scratch[lanes + last];
+        putLongLE(buffer, offset, exactTail ? mergeVarIntLow(tail, values.lane(last), lastLength) : scratch[last]);
+        return offset + lastLength;
+    }
+
+    // The length of an array or buffer that has room for length more bytes after position, at least twice its current length
+    private static int getGrownLength(int capacity, int position, int length) {
+        var required = (long) position + length;
+        if (required > MAX_ARRAY_LENGTH) {
+            throw ProtobufSerializationException.underflow();
+        }
+
+        return (int) Math.min(Math.max(capacity * 2L, required), MAX_ARRAY_LENGTH);
+    }
+
+    // Writes any data buffered by the writer to its output, only the stream writer buffers data
+    public void flush() {
+
+    }
+
+    // Whether the writer keeps its output in memory, rather than sending it to a stream or a channel as it's written
+    // A back-patched length holds its message in memory until the message is complete, which only the former do anyway:
+    // generated encoders size the message first for the others, so that they keep flushing in bounded chunks
+    public boolean keepsOutputInMemory() {
+        return true;
+    }
+
+    // The number of bytes written since the writer was created or last reset
+    // Only the writers that keep their output in memory support it
+    public long writtenLength() {
+        throw new UnsupportedOperationException("This writer doesn't keep track of the written length");
+    }
+
+    // The reset methods make the writer write to a new destination, so that a pooled writer can encode many messages
+    // The size cache, if any, is cleared as the sizes it holds belong to the previous message
+    // The destination belongs to the caller, so a growable writer stops growing once it's reset and fails like a fixed one if the message doesn't fit
+    public void reset(byte[] bytes, int offset) {
+        throw new UnsupportedOperationException("This writer can't write to a byte array");
+    }
+
+    public void reset(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("This writer can't write to a buffer");
+    }
+
+    public void reset(MemorySegment segment) {
+        throw new UnsupportedOperationException("This writer can't write to a memory segment");
+    }
+
+    protected void resetState() {
+        resetPropertyTag();
+        if(sizeCache != null) {
+            sizeCache.clear();
+        }
+    }
+
+    public abstract OUTPUT toOutput();
+
+    // A growable writer starts with an array that is expanded geometrically, and trimmed by toOutput
+    // The bytes after the written ones can be used as scratch space only if the array was allocated by the writer
+    private static final class ByteArrayWriter extends ProtobufWriter<byte[]> {
+        private byte[] buffer;
+        private int offset;
+        private int position;
+        private boolean growable;
+        private boolean ownsBuffer;
+        private long[] varIntScratch;
+
+        private ByteArrayWriter(byte[] buffer, int offset, boolean growable, boolean ownsBuffer) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.position = offset;
+            this.growable = growable;
+            this.ownsBuffer = ownsBuffer;
+        }
+
+        @Override
+        public long writtenLength() {
+            return position - offset;
+        }
+
+        @Override
+        public void reset(byte[] bytes, int offset) {
+            Objects.requireNonNull(bytes, "bytes must not be null");
+            Objects.checkFromIndexSize(offset, 0, bytes.length);
+            this.buffer = bytes;
+            this.offset = offset;
+            this.position = offset;
+            this.growable = false;
+            this.ownsBuffer = false;
+            resetState();
+        }
+
+        @Override
+        public void writeRawByte(byte entry) {
+            ensureCapacity(Byte.BYTES);
+            buffer[position++] = entry;
+        }
+
+        @Override
+        public void writeRawBytes(byte[] entry, int offset, int length) {
+            if (length < 0) {
+                throw ProtobufSerializationException.negativeLength();
+            }
+
+            ensureCapacity(length);
+            System.arraycopy(entry, offset, buffer, position, length);
+            position += length;
+        }
+
+        @Override
+        public void writeRawBuffer(ByteBuffer entry) {
+            var length = entry.remaining();
+            ensureCapacity(length);
+            entry.get(entry.position(), buffer, position, length);
+            position += length;
+        }
+
+        @Override
+        public void writeRawMemorySegment(MemorySegment entry) {
+            var length = (int) entry.byteSize();
+            if(entry.byteSize() != length) {
+                throw ProtobufSerializationException.underflow();
+            }
+
+            ensureCapacity(length);
+            MemorySegment.copy(
+                    entry,
+                    ValueLayout.JAVA_BYTE,
+                    0,
+                    buffer,
+                    position,
+                    length
+            );
+            position += length;
+        }
+
+        @Override
+        public void writeRawFixedInt32(int value) {
+            ensureCapacity(Integer.BYTES);
+            putIntLE(buffer, position, value);
+            position += Integer.BYTES;
+        }
 
         @Override
         public void writeRawFixedInt64(long value) {
-            try {
+            ensureCapacity(Long.BYTES);
+            putLongLE(buffer, position, value);
+            position += Long.BYTES;
+        }
+
+        @Override
+        public void writeRawFloat(float entry) {
+            ensureCapacity(Float.BYTES);
+            putFloatLE(buffer, position, entry);
+            position += Float.BYTES;
+        }
+
+        @Override
+        public void writeRawDouble(double entry) {
+            ensureCapacity(Double.BYTES);
+            putDoubleLE(buffer, position, entry);
+            position += Double.BYTES;
+        }
+
+        @Override
+        protected void writeRawFixedInt32s(int[] values) {
+            var length = values.length * Integer.BYTES;
+            ensureCapacity(length);
+            putIntsLE(buffer, position, values);
+            position += length;
+        }
+
+        @Override
+        protected void writeRawFixedInt64s(long[] values) {
+            var length = values.length * Long.BYTES;
+            ensureCapacity(length);
+            putLongsLE(buffer, position, values);
+            position += length;
+        }
+
+        @Override
+        protected void writeRawFloats(float[] values) {
+            var length = values.length * Float.BYTES;
+            ensureCapacity(length);
+            putFloatsLE(buffer, position, values);
+            position += length;
+        }
+
+        @Override
+        protected void writeRawDoubles(double[] values) {
+            var length = values.length * Double.BYTES;
+            ensureCapacity(length);
+            putDoublesLE(buffer, position, values);
+            position += length;
+        }
+
+        @Override
+        public void writeRawVarInt64(long entry) {
+            if ((entry & ~0x7FL) == 0) {
+                writeRawByte((byte) entry);
+            } else if (buffer.length - position < VAR_INT_WORDS_LENGTH && !grow(VAR_INT_WORDS_LENGTH)) {
+                writeRawVarInt64Scalar(entry);
+            } else {
+                var length = getVarIntLength(entry);
+                if (ownsBuffer) {
+                    // The bytes past the var int are overwritten by the next write
+                    putLongLE(buffer, position, encodeVarIntLow(entry, length));
+                    if (length > Long.BYTES) {
+                        putShortLE(buffer, position + Long.BYTES, encodeVarIntHigh(entry));
+                    }
+                } else {
+                    putVarIntExact(buffer, position, entry, length);
+                }
+                position += length;
+            }
+        }
+
+        @Override
+        protected void writeRawVarInts(int[] values) {
+            var i = 0;
+            if (SUPPORTS_VAR_INT_VECTORS) {
+                for (var bound = VAR_INT_INT_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_INT_SPECIES.length()) {
+                    if (!writeVarIntBlock(loadVarInts(values, i))) {
+                        break;
+                    }
+                }
+            }
+            for (; i < values.length; i++) {
+                writeRawVarInt32(values[i]);
+            }
+        }
+
+        @Override
+        protected void writeRawVarInts(long[] values) {
+            var i = 0;
+            if (SUPPORTS_VAR_INT_VECTORS) {
+                for (var bound = VAR_INT_LONG_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_LONG_SPECIES.length()) {
+                    if (!writeVarIntBlock(LongVector.fromArray(VAR_INT_LONG_SPECIES, values, i))) {
+                        break;
+                    }
+                }
+            }
+            for (; i < values.length; i++) {
+                writeRawVarInt64(values[i]);
+            }
+        }
+
+        @Override
+        protected void writeRawZigZagVarInts(int[] values) {
+            var i = 0;
+            if (SUPPORTS_VAR_INT_VECTORS) {
+                for (var bound = VAR_INT_INT_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_INT_SPECIES.length()) {
+                    if (!writeVarIntBlock(loadZigZagVarInts(values, i))) {
+                        break;
+                    }
+                }
+            }
+            for (; i < values.length; i++) {
+                writeRawZigZagVarInt32(values[i]);
+            }
+        }
+
+        @Override
+        protected void writeRawZigZagVarInts(long[] values) {
+            var i = 0;
+            if (SUPPORTS_VAR_INT_VECTORS) {
+                for (var bound = VAR_INT_LONG_SPECIES.loopBound(values.length); i < bound; i += VAR_INT_LONG_SPECIES.length()) {
+                    if (!writeVarIntBlock(loadZigZagVarInts(values, i))) {
+                        break;
+                    }
+                }
+            }
+            for (; i < values.length; i++) {
+                writeRawZigZagVarInt64(values[i]);
+            }
+        }
+
+        // Returns false if the block doesn't fit, so that the rest of the values are written one at a time
+        // A block with a var int longer than eight bytes is written one lane at a time
+        private boolean writeVarIntBlock(LongVector values) {
+            var lanes = VAR_INT_LONG_SPECIES.length();
+            if (buffer.length - position < lanes * Long.BYTES && !grow(lanes * Long.BYTES)) {
+                return false;
+            }
+
+            if (varIntScratch == null) {
+                varIntScratch = new long[lanes * 2];
+            }
+            var offset = encodeVarIntBlock(buffer, position, values, varIntScratch, !ownsBuffer);
+            if (offset != -1) {
+                position = offset;
+            } else {
+                values.intoArray(varIntScratch, 0);
+                for (var i = 0; i < lanes; i++) {
+                    writeRawVarInt64(varIntScratch[i]);
+                }
+            }
+            return true;
+        }
+
+        // A single byte is reserved, the value is shifted if its length takes up more
+        @Override
+        protected long reserveLength() {
+            writeRawByte((byte) 0);
+            return position - 1;
+        }
+
+        @Override
+        protected void patchLength(long marker) {
+            var offset = (int) marker;
+            var length = position - offset - 1;
+            var lengthSize = getVarIntLength(length);
+            if (lengthSize > 1) {
+                ensureCapacity(lengthSize - 1);
+                System.arraycopy(buffer, offset + 1, buffer, offset + lengthSize, length);
+                position += lengthSize - 1;
+            }
+            var encoded = encodeVarIntLow(length, lengthSize);
+            for (var i = 0; i < lengthSize; i++) {
+                buffer[offset + i] = (byte) (encoded >>> (i * Byte.SIZE));
+            }
+        }
+
+        // Writing past the end of a fixed array fails, like it did when the size of the output was miscalculated
+        private void ensureCapacity(int length) {
+            if (buffer.length - position < length && !grow(length)) {
+                throw ProtobufSerializationException.underflow();
+            }
+        }
+
+        private boolean grow(int length) {
+            if (!growable) {
+                return false;
+            }
+
+            buffer = Arrays.copyOf(buffer, getGrownLength(buffer.length, position, length));
+            ownsBuffer = true;
+            return true;
+        }
+
+        @Override
+        public byte[] toOutput() {
+            if (buffer.length == position) {
+                return buffer;
+            } else if (growable) {
+                return Arrays.copyOf(buffer, position);
+            } else {
+                throw ProtobufSerializationException.mismatch();
+            }
+        }
+
+        @Override
+        public DataType rawDataTypePreference() {
+            return DataType.BYTE_ARRAY;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    // A growable writer replaces its buffer with a larger one of the same kind, heap or direct, when it's full
+    // The bytes after the written ones can be used as scratch space only if the buffer was allocated by the writer
+    private static final class ByteBufferWriter extends ProtobufWriter<ByteBuffer> {
+        private ByteBuffer buffer;
+        private int start;
+        private boolean growable;
+        private boolean ownsBuffer;
+
+        private ByteBufferWriter(ByteBuffer buffer, boolean growable, boolean ownsBuffer) {
+            this.buffer = buffer;
+            this.start = buffer.position();
+            this.growable = growable;
+            this.ownsBuffer = ownsBuffer;
+        }
+
+        @Override
+        public long writtenLength() {
+            return buffer.position() - start;
+        }
+
+        // The buffer is written from its position, which is advanced by every write
+        @Override
+        public void reset(ByteBuffer buffer) {
+            Objects.requireNonNull(buffer, "buffer must not be null");
+            if(buffer.isReadOnly()) {
+                throw new IllegalArgumentException("buffer is read-only");
+            }
+
+            this.buffer = buffer;
+            this.start = buffer.position();
+            this.growable = false;
+            this.ownsBuffer = false;
+            resetState();
+        }
+
+        @Override
+        public void writeRawByte(byte entry) {
+            ensureCapacity(Byte.BYTES);
+            buffer.put(entry);
+        }
+
+        @Override
+        public void writeRawBytes(byte[] entry, int offset, int length) {
+            if (length < 0) {
+                throw ProtobufSerializationException.negativeLength();
+            }
+
+            ensureCapacity(length);
+            buffer.put(entry, offset, length);
+        }
+
+        @Override
+        public void writeRawBuffer(ByteBuffer entry) {
+            ensureCapacity(entry.remaining());
+            buffer.put(entry.duplicate());
+        }
+
+        @Override
+        public void writeRawMemorySegment(MemorySegment entry) {
+            var length = (int) entry.byteSize();
+            if(entry.byteSize() != length) {
+                throw ProtobufSerializationException.underflow();
+            }
+
+            ensureCapacity(length);
+            buffer.put(entry.asByteBuffer());
+        }
+
+        @Override
+        public void writeRawFixedInt32(int value) {
+            ensureCapacity(Integer.BYTES);
+            var position = buffer.position();
+            putIntLE(buffer, position, value);
+            buffer.position(position + Integer.BYTES);
+        }
+
+        @Override
+        public void writeRawFixedInt64(long value) {
+            ensureCapacity(Long.BYTES);
+            var position = buffer.position();
+            putLongLE(buffer, position, value);
+            buffer.position(position + Long.BYTES);
+        }
+
+        @Override
+        public void writeRawFloat(float entry) {
+            ensureCapacity(Float.BYTES);
+            var position = buffer.position();
+            putFloatLE(buffer, position, entry);
+            buffer.position(position + Float.BYTES);
+        }
+
+        @Override
+        public void writeRawDouble(double entry) {
+            ensureCapacity(Double.BYTES);
+            var position = buffer.position();
+            putDoubleLE(buffer, position, entry);
+            buffer.position(position + Double.BYTES);
+        }
+
+        @Override
+        protected void writeRawFixedInt32s(int[] values) {
+            var length = values.length * Integer.BYTES;
+            ensureCapacity(length);
+            var position = buffer.position();
+            putIntsLE(MemorySegment.ofBuffer(buffer), 0, values);
+            buffer.position(position + length);
+        }
+
+        @Override
+        protected void writeRawFixedInt64s(long[] values) {
+            var length = values.length * Long.BYTES;
+            ensureCapacity(length);
+            var position = buffer.position();
+            putLongsLE(MemorySegment.ofBuffer(buffer), 0, values);
+            buffer.position(position + length);
+        }
+
+        @Override
+        protected void writeRawFloats(float[] values) {
+            var length = values.length * Float.BYTES;
+            ensureCapacity(length);
+            var position = buffer.position();
+            putFloatsLE(MemorySegment.ofBuffer(buffer), 0, values);
+            buffer.position(position + length);
+        }
+
+        @Override
+        protected void writeRawDoubles(double[] values) {
+            var length = values.length * Double.BYTES;
+            ensureCapacity(length);
+            var position = buffer.position();
+            putDoublesLE(MemorySegment.ofBuffer(buffer), 0, values);
+            buffer.position(position + length);
+        }
+
+        @Override
+        public void writeRawVarInt64(long entry) {
+            if ((entry & ~0x7FL) == 0) {
+                writeRawByte((byte) entry);
+            } else if (buffer.remaining() < VAR_INT_WORDS_LENGTH && !grow(VAR_INT_WORDS_LENGTH)) {
+                writeRawVarInt64Scalar(entry);
+            } else {
                 var position = buffer.position();
-                putLongLE(buffer, position, value);
-                buffer.position(position + Long.BYTES);
-            } catch (IndexOutOfBoundsException _) {
+                var length = getVarIntLength(entry);
+                if (ownsBuffer) {
+                    // The bytes past the var int are overwritten by the next write
+                    putLongLE(buffer, position, encodeVarIntLow(entry, length));
+                    if (length > Long.BYTES) {
+                        putShortLE(buffer, position + Long.BYTES, encodeVarIntHigh(entry));
+                    }
+                } else {
+                    putVarIntExact(buffer, position, entry, length);
+                }
+                buffer.position(position + length);
+            }
+        }
+
+        // A single byte is reserved, the value is shifted if its length takes up more
+        @Override
+        protected long reserveLength() {
+            writeRawByte((byte) 0);
+            return buffer.position() - 1;
+        }
+
+        @Override
+        protected void patchLength(long marker) {
+            var offset = (int) marker;
+            var length = buffer.position() - offset - 1;
+            var lengthSize = getVarIntLength(length);
+            if (lengthSize > 1) {
+                ensureCapacity(lengthSize - 1);
+                // MemorySegment.copy is the only bulk copy that supports overlapping ranges in the same buffer
+                var segment = MemorySegment.ofBuffer(buffer.duplicate().clear());
+                MemorySegment.copy(segment, offset + 1, segment, offset + lengthSize, length);
+                buffer.position(buffer.position() + lengthSize - 1);
+            }
+            var encoded = encodeVarIntLow(length, lengthSize);
+            for (var i = 0; i < lengthSize; i++) {
+                buffer.put(offset + i, (byte) (encoded >>> (i * Byte.SIZE)));
+            }
+        }
+
+        // Writing past the limit of a fixed buffer fails, like it did when the size of the output was miscalculated
+        private void ensureCapacity(int length) {
+            if (buffer.remaining() < length && !grow(length)) {
                 throw ProtobufSerializationException.underflow();
             }
         }
 
+        private boolean grow(int length) {
+            if (!growable) {
+                return false;
+            }
+
+            var grownLength = getGrownLength(buffer.capacity(), buffer.position(), length);
+            var grown = buffer.isDirect() ? ByteBuffer.allocateDirect(grownLength) : ByteBuffer.allocate(grownLength);
+            buffer = grown.put(buffer.flip());
+            ownsBuffer = true;
+            return true;
+        }
+
+        // The output of a growable writer is a view of the bytes that were written
+        @Override
+        public ByteBuffer toOutput() {
+            if (growable) {
+                return buffer.slice(0, buffer.position());
+            } else if (buffer.hasRemaining()) {
+                throw ProtobufSerializationException.mismatch();
+            } else {
+                return buffer;
+            }
+        }
+
+        @Override
+        public DataType rawDataTypePreference() {
+            return DataType.BYTE_BUFFER;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    // A growable writer allocates a larger segment from its arena when it's full
+    // The segments that were outgrown are only released when the arena is closed
+    // The bytes after the written ones can be used as scratch space only if the segment was allocated from the writer's arena
+    private static final class MemorySegmentWriter extends ProtobufWriter<MemorySegment> {
+        private MemorySegment memorySegment;
+        private long position;
+        private final Arena arena;
+        private boolean growable;
+        private boolean ownsSegment;
+
+        private MemorySegmentWriter(MemorySegment memorySegment, Arena arena) {
+            this.memorySegment = memorySegment;
+            this.arena = arena;
+            this.growable = arena != null;
+            this.ownsSegment = arena != null;
+        }
+
+        @Override
+        public long writtenLength() {
+            return position;
+        }
+
+        @Override
+        public void reset(MemorySegment segment) {
+            Objects.requireNonNull(segment, "segment must not be null");
+            this.memorySegment = segment;
+            this.position = 0;
+            this.growable = false;
+            this.ownsSegment = false;
+            resetState();
+        }
+
+        @Override
+        public void writeRawByte(byte entry) {
+            ensureCapacity(Byte.BYTES);
+            memorySegment.set(ValueLayout.JAVA_BYTE, position, entry);
+            position++;
+        }
+
+        @Override
+        public void writeRawBytes(byte[] entry, int offset, int length) {
+            if (length < 0) {
+                throw ProtobufSerializationException.negativeLength();
+            }
+
+            ensureCapacity(length);
+            MemorySegment.copy(
+                    entry,
+                    offset,
+                    memorySegment,
+                    ValueLayout.JAVA_BYTE,
+                    position,
+                    length
+            );
+            position += length;
+        }
+
+        @Override
+        public void writeRawBuffer(ByteBuffer entry) {
+            writeRawMemorySegment(MemorySegment.ofBuffer(entry));
+        }
+
+        @Override
+        public void writeRawMemorySegment(MemorySegment entry) {
+            var length = entry.byteSize();
+            ensureCapacity(length);
+            MemorySegment.copy(
+                    entry,
+                    0,
+                    memorySegment,
+                    position,
+                    length
+            );
+            position += length;
+        }
+
+        @Override
+        public void writeRawFixedInt32(int entry) {
+            ensureCapacity(Integer.BYTES);
+            putIntLE(memorySegment, position, entry);
+            position += Integer.BYTES;
+        }
+
+        @Override
+        public void writeRawFixedInt64(long entry) {
+            ensureCapacity(Long.BYTES);
+            putLongLE(memorySegment, position, entry);
+            position += Long.BYTES;
+        }
+
         @Override
         public void writeRawFloat(float entry) {
-            try {
-                var position = buffer.position();
-                putFloatLE(buffer, position, entry);
-                buffer.position(position + Float.BYTES);
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Float.BYTES);
+            putFloatLE(memorySegment, position, entry);
+            position += Float.BYTES;
         }
 
         @Override
         public void writeRawDouble(double entry) {
-            try {
-                var position = buffer.position();
-                putDoubleLE(buffer, position, entry);
-                buffer.position(position + Double.BYTES);
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Double.BYTES);
+            putDoubleLE(memorySegment, position, entry);
+            position += Double.BYTES;
+        }
+
+        @Override
+        protected void writeRawFixedInt32s(int[] values) {
+            var length = (long) values.length * Integer.BYTES;
+            ensureCapacity(length);
+            putIntsLE(memorySegment, position, values);
+            position += length;
+        }
+
+        @Override
+        protected void writeRawFixedInt64s(long[] values) {
+            var length = (long) values.length * Long.BYTES;
+            ensureCapacity(length);
+            putLongsLE(memorySegment, position, values);
+            position += length;
         }
 
         @Override
-        public void writeRawVarInt32(int entry) {
-            throw new UnsupportedOperationException();
+        protected void writeRawFloats(float[] values) {
+            var length = (long) values.length * Float.BYTES;
+            ensureCapacity(length);
+            putFloatsLE(memorySegment, position, values);
+            position += length;
+        }
+
+        @Override
+        protected void writeRawDoubles(double[] values) {
+            var length = (long) values.length * Double.BYTES;
+            ensureCapacity(length);
+            putDoublesLE(memorySegment, position, values);
+            position += length;
         }
 
         @Override
         public void writeRawVarInt64(long entry) {
-            throw new UnsupportedOperationException();
+            if ((entry & ~0x7FL) == 0) {
+                writeRawByte((byte) entry);
+            } else if (memorySegment.byteSize() - position < VAR_INT_WORDS_LENGTH && !grow(VAR_INT_WORDS_LENGTH)) {
+                writeRawVarInt64Scalar(entry);
+            } else {
+                var length = getVarIntLength(entry);
+                if (ownsSegment) {
+                    // The bytes past the var int are overwritten by the next write
+                    putLongLE(memorySegment, position, encodeVarIntLow(entry, length));
+                    if (length > Long.BYTES) {
+                        putShortLE(memorySegment, position + Long.BYTES, encodeVarIntHigh(entry));
+                    }
+                } else {
+                    putVarIntExact(memorySegment, position, entry, length);
+                }
+                position += length;
+            }
         }
 
+        // A single byte is reserved, the value is shifted if its length takes up more
         @Override
-        public ByteBuffer toOutput() {
-            if (buffer.hasRemaining()) {
-                throw ProtobufSerializationException.mismatch();
+        protected long reserveLength() {
+            writeRawByte((byte) 0);
+            return position - 1;
+        }
+
+        @Override
+        protected void patchLength(long marker) {
+            var length = position - marker - 1;
+            var lengthSize = getVarIntLength(length);
+            if (lengthSize > 1) {
+                ensureCapacity(lengthSize - 1);
+                MemorySegment.copy(memorySegment, marker + 1, memorySegment, marker + lengthSize, length);
+                position += lengthSize - 1;
+            }
+            var encoded = encodeVarIntLow(length, lengthSize);
+            for (var i = 0; i < lengthSize; i++) {
+                memorySegment.set(ValueLayout.JAVA_BYTE, marker + i, (byte) (encoded >>> (i * Byte.SIZE)));
+            }
+        }
+
+        // Writing past the end of a fixed segment fails, like it did when the size of the output was miscalculated
+        private void ensureCapacity(long length) {
+            if (memorySegment.byteSize() - position < length && !grow(length)) {
+                throw ProtobufSerializationException.underflow();
+            }
+        }
+
+        private boolean grow(long length) {
+            if (!growable) {
+                return false;
+            }
+
+            var grown = arena.allocate(Math.max(memorySegment.byteSize() * 2, position + length));
+            MemorySegment.copy(memorySegment, 0, grown, 0, position);
+            memorySegment = grown;
+            ownsSegment = true;
+            return true;
+        }
+
+        // The output of a growable writer is a slice of the bytes that were written
+        @Override
+        public MemorySegment toOutput() {
+            if (growable) {
+                return memorySegment.asSlice(0, position);
             } else {
-                return buffer;
+                return memorySegment;
             }
         }
 
         @Override
         public DataType rawDataTypePreference() {
-            return DataType.BYTE_BUFFER;
+            return DataType.MEMORY_SEGMENT;
         }
 
         @Override
@@ -1010,262 +2002,552 @@ public abstract non-sealed class ProtobufWriter<OUTPUT> extends ProtobufIO {
         }
     }
 
-    private static final class MemorySegmentWriter extends ProtobufWriter<MemorySegment> {
-        private final MemorySegment memorySegment;
-        private long position;
+    // Fields are accumulated in the buffer, which is written to the stream only when it's full or on flush
+    // While a length is waiting to be back-patched, the buffer grows instead
+    private static final class InputStreamWriter extends ProtobufWriter<OutputStream> {
+        private final OutputStream outputStream;
+        private byte[] buffer;
+        private int position;
+        private int pendingLengths;
 
-        private MemorySegmentWriter(MemorySegment memorySegment) {
-            this.memorySegment = memorySegment;
+        InputStreamWriter(OutputStream outputStream, int bufferSize) {
+            if (bufferSize < MIN_STREAM_BUFFER_LENGTH) {
+                throw new IllegalArgumentException("bufferSize must be at least " + MIN_STREAM_BUFFER_LENGTH);
+            }
+
+            this.outputStream = outputStream;
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        public boolean keepsOutputInMemory() {
+            return false;
         }
 
         @Override
         public void writeRawByte(byte entry) {
-            try {
-                memorySegment.set(ValueLayout.JAVA_BYTE, position, entry);
-                position++;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Byte.BYTES);
+            buffer[position++] = entry;
         }
 
+        // Payloads that don't fit in the buffer are written straight to the stream
         @Override
         public void writeRawBytes(byte[] entry, int offset, int length) {
-            try {
-                MemorySegment.copy(
-                        entry,
-                        offset,
-                        memorySegment,
-                        ValueLayout.JAVA_BYTE,
-                        position,
-                        length
-                );
+            if (length < 0) {
+                throw ProtobufSerializationException.negativeLength();
+            } else if (length <= buffer.length - position || pendingLengths > 0) {
+                ensureCapacity(length);
+                System.arraycopy(entry, offset, buffer, position, length);
                 position += length;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
+            } else {
+                flushBuffer();
+                if (length < buffer.length) {
+                    System.arraycopy(entry, offset, buffer, 0, length);
+                    position = length;
+                } else {
+                    try {
+                        outputStream.write(entry, offset, length);
+                    } catch (IOException e) {
+                        throw new ProtobufSerializationException("Cannot write to output stream", e);
+                    }
+                }
             }
         }
 
         @Override
         public void writeRawBuffer(ByteBuffer entry) {
-            writeRawMemorySegment(MemorySegment.ofBuffer(entry));
+            if (entry.hasArray()) {
+                writeRawBytes(entry.array(), entry.arrayOffset() + entry.position(), entry.remaining());
+            } else {
+                writeRawMemorySegment(MemorySegment.ofBuffer(entry));
+            }
         }
 
+        // Off heap payloads have to be copied anyway, so they are streamed through the buffer
         @Override
         public void writeRawMemorySegment(MemorySegment entry) {
-            try {
-                var length = entry.byteSize();
+            var offset = 0L;
+            var limit = entry.byteSize();
+            if (pendingLengths > 0) {
+                if (limit > Integer.MAX_VALUE) {
+                    throw ProtobufSerializationException.underflow();
+                }
+                ensureCapacity((int) limit);
+            }
+            while (offset < limit) {
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+
+                var writable = (int) Math.min(limit - offset, buffer.length - position);
                 MemorySegment.copy(
                         entry,
-                        0,
-                        memorySegment,
+                        ValueLayout.JAVA_BYTE,
+                        offset,
+                        buffer,
                         position,
-                        length
+                        writable
                 );
-                position += length;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
+                position += writable;
+                offset += writable;
             }
         }
 
         @Override
         public void writeRawFixedInt32(int entry) {
-            try {
-                memorySegment.set(ValueLayout.JAVA_INT_UNALIGNED, position, entry);
-                position += Integer.BYTES;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Integer.BYTES);
+            putIntLE(buffer, position, entry);
+            position += Integer.BYTES;
         }
 
         @Override
         public void writeRawFixedInt64(long entry) {
-            try {
-                memorySegment.set(ValueLayout.JAVA_LONG_UNALIGNED, position, entry);
-                position += Long.BYTES;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Long.BYTES);
+            putLongLE(buffer, position, entry);
+            position += Long.BYTES;
         }
 
         @Override
         public void writeRawFloat(float entry) {
-            try {
-                memorySegment.set(ValueLayout.JAVA_FLOAT_UNALIGNED, position, entry);
-                position += Float.BYTES;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
-            }
+            ensureCapacity(Float.BYTES);
+            putFloatLE(buffer, position, entry);
+            position += Float.BYTES;
         }
 
         @Override
         public void writeRawDouble(double entry) {
-            try {
-                memorySegment.set(ValueLayout.JAVA_DOUBLE_UNALIGNED, position, entry);
-                position += Double.BYTES;
-            } catch (IndexOutOfBoundsException _) {
-                throw ProtobufSerializationException.underflow();
+            ensureCapacity(Double.BYTES);
+            putDoubleLE(buffer, position, entry);
+            position += Double.BYTES;
+        }
+
+        @Override
+        public void writeRawVarInt64(long entry) {
+            ensureCapacity(VAR_INT_WORDS_LENGTH);
+            if ((entry & ~0x7FL) == 0) {
+                buffer[position++] = (byte) entry;
+            } else {
+                var length = getVarIntLength(entry);
+                putLongLE(buffer, position, encodeVarIntLow(entry, length));
+                if (length > Long.BYTES) {
+                    putShortLE(buffer, position + Long.BYTES, encodeVarIntHigh(entry));
+                }
+                position += length;
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (buffer.length - position >= length) {
+                return;
+            }
+
+            if (pendingLengths == 0) {
+                flushBuffer();
+            } else {
+                var required = position + length;
+                if (required < 0) {
+                    throw ProtobufSerializationException.underflow();
+                }
+                buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
             }
         }
 
+        // A single byte is reserved, the value is shifted if its length takes up more
         @Override
-        public void writeRawVarInt32(int entry) {
-            throw new UnsupportedOperationException();
+        protected long reserveLength() {
+            ensureCapacity(Byte.BYTES);
+            pendingLengths++;
+            buffer[position++] = 0;
+            return position - 1;
         }
 
         @Override
-        public void writeRawVarInt64(long entry) {
-            throw new UnsupportedOperationException();
+        protected void patchLength(long marker) {
+            var offset = (int) marker;
+            var length = position - offset - 1;
+            var lengthSize = getVarIntLength(length);
+            if (lengthSize > 1) {
+                ensureCapacity(lengthSize - 1);
+                System.arraycopy(buffer, offset + 1, buffer, offset + lengthSize, length);
+                position += lengthSize - 1;
+            }
+            var encoded = encodeVarIntLow(length, lengthSize);
+            for (var i = 0; i < lengthSize; i++) {
+                buffer[offset + i] = (byte) (encoded >>> (i * Byte.SIZE));
+            }
+            pendingLengths--;
+        }
+
+        private void flushBuffer() {
+            if (position == 0) {
+                return;
+            }
+
+            try {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            } catch (IOException e) {
+                throw new ProtobufSerializationException("Cannot write to output stream", e);
+            }
         }
 
         @Override
-        public MemorySegment toOutput() {
-            return memorySegment;
+        public void flush() {
+            if (pendingLengths > 0) {
+                throw new IllegalStateException("Cannot flush while a length delimited property is being written");
+            }
+
+            flushBuffer();
+            try {
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new ProtobufSerializationException("Cannot write to output stream", e);
+            }
         }
 
         @Override
-        public DataType rawDataTypePreference() {
-            return DataType.MEMORY_SEGMENT;
+        public OutputStream toOutput() {
+            flush();
+            return outputStream;
         }
 
         @Override
-        public void close() {
+        public DataType rawDataTypePreference() {
+            return DataType.BYTE_ARRAY;
+        }
 
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                outputStream.close();
+            }
         }
     }
 
-    private static final class InputStreamWriter extends ProtobufWriter<OutputStream> {
-        private static final int BUFFER_LENGTH = 8192;
+    // Small fields are copied in the staging buffer, while large payloads are referenced as they are:
+    // the slices of the staging buffer and the payloads are then passed to the channel in a single gathering write
+    // Fields are accumulated in chunks that are referenced by a list of buffers, instead of being copied in a single buffer
+    // A length is written in a slot of its own, so it never has to be shifted
+    private static abstract class GatheringWriter<OUTPUT> extends ProtobufWriter<OUTPUT> {
+        private static final int RESERVED_LENGTH_SIZE = 5;
 
-        private final OutputStream outputStream;
-        private final byte[] buffer;
+        protected final int chunkLength;
+        protected ByteBuffer current;
+        protected int stagingStart;
+        protected ByteBuffer[] buffers;
+        protected int buffersLength;
 
-        InputStreamWriter(OutputStream outputStream) {
-            this.outputStream = outputStream;
-            this.buffer = new byte[BUFFER_LENGTH];
+        // The number of bytes in buffers, except for the slots of the lengths that are still pending
+        protected long gatheredLength;
+        // The slot of every pending length and the value of gatheredLength when it was reserved
+        private int[] pendingSlots;
+        private long[] pendingStarts;
+        protected int pendingLengths;
+
+        private GatheringWriter(ByteBuffer current) {
+            this.chunkLength = current.capacity();
+            this.current = current;
+            this.buffers = new ByteBuffer[8];
+            this.pendingSlots = new int[8];
+            this.pendingStarts = new long[8];
         }
 
+        // Whether a payload of this length is referenced as it is instead of being copied
+        protected abstract boolean isGathered(long length);
+
+        // Called when the current chunk is full and no length is pending: returns whether the chunk can be reused
+        protected abstract boolean drainBuffers();
+
+        // Allocates the chunk that follows a full one
+        protected abstract ByteBuffer allocateChunk(int length);
 
         @Override
         public void writeRawByte(byte entry) {
-            try {
-                outputStream.write(entry);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
-            }
+            ensureCapacity(Byte.BYTES);
+            current.put(entry);
         }
 
         @Override
         public void writeRawBytes(byte[] entry, int offset, int length) {
-            try {
-                outputStream.write(entry, offset, length);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
+            if (length < 0) {
+                throw ProtobufSerializationException.negativeLength();
+            } else if (isGathered(length)) {
+                addBuffer(ByteBuffer.wrap(entry, offset, length));
+            } else {
+                ensureCapacity(length);
+                current.put(entry, offset, length);
             }
         }
 
         @Override
         public void writeRawBuffer(ByteBuffer entry) {
-            try {
-                if(entry.hasArray()) {
-                    outputStream.write(entry.array(), entry.arrayOffset() + entry.position(), entry.remaining());
-                }else {
-                    while (entry.hasRemaining()) {
-                        var readable = Math.min(entry.remaining(), buffer.length);
-                        entry.put(buffer, entry.position(), readable);
-                        outputStream.write(buffer, 0, readable);
-                    }
-                }
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
+            var length = entry.remaining();
+            if (isGathered(length)) {
+                addBuffer(entry.slice());
+            } else {
+                ensureCapacity(length);
+                var position = current.position();
+                current.put(position, entry, entry.position(), length);
+                current.position(position + length);
             }
         }
 
         @Override
         public void writeRawMemorySegment(MemorySegment entry) {
-            try {
-                var offset = 0L;
-                var limit = entry.byteSize();
-                while (offset < limit) {
-                    var readable = (int) Math.min(limit - offset, buffer.length);
-                    MemorySegment.copy(
-                            entry,
-                            ValueLayout.JAVA_BYTE,
-                            offset,
-                            buffer,
-                            0,
-                            readable
-                    );
-                    outputStream.write(buffer, 0, readable);
-                    offset += readable;
+            var length = entry.byteSize();
+            if (isGathered(length)) {
+                // A ByteBuffer can't be larger than Integer.MAX_VALUE bytes
+                for (var offset = 0L; offset < length; offset += Integer.MAX_VALUE) {
+                    addBuffer(entry.asSlice(offset, Math.min(length - offset, Integer.MAX_VALUE)).asByteBuffer());
                 }
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
+            } else {
+                ensureCapacity((int) length);
+                current.put(entry.asByteBuffer());
             }
         }
 
         @Override
         public void writeRawFixedInt32(int entry) {
-            try {
-                putIntLE(buffer, 0, entry);
-                outputStream.write(buffer, 0, Integer.BYTES);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
-            }
+            ensureCapacity(Integer.BYTES);
+            var position = current.position();
+            putIntLE(current, position, entry);
+            current.position(position + Integer.BYTES);
         }
 
         @Override
         public void writeRawFixedInt64(long entry) {
-            try {
-                putLongLE(buffer, 0, entry);
-                outputStream.write(buffer, 0, Long.BYTES);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
-            }
+            ensureCapacity(Long.BYTES);
+            var position = current.position();
+            putLongLE(current, position, entry);
+            current.position(position + Long.BYTES);
         }
 
         @Override
         public void writeRawFloat(float entry) {
-            try {
-                putFloatLE(buffer, 0, entry);
-                outputStream.write(buffer, 0, Float.BYTES);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
-            }
+            ensureCapacity(Float.BYTES);
+            var position = current.position();
+            putFloatLE(current, position, entry);
+            current.position(position + Float.BYTES);
         }
 
         @Override
         public void writeRawDouble(double entry) {
-            try {
-                putDoubleLE(buffer, 0, entry);
-                outputStream.write(buffer, 0, Double.BYTES);
-            }catch (IOException e) {
-                throw new ProtobufSerializationException("Cannot write to output stream", e);
-            }
+            ensureCapacity(Double.BYTES);
+            var position = current.position();
+            putDoubleLE(current, position, entry);
+            current.position(position + Double.BYTES);
         }
 
         @Override
-        public void writeRawVarInt32(int entry) {
-            throw new UnsupportedOperationException();
+        public void writeRawVarInt64(long entry) {
+            ensureCapacity(VAR_INT_WORDS_LENGTH);
+            if ((entry & ~0x7FL) == 0) {
+                current.put((byte) entry);
+            } else {
+                var position = current.position();
+                var length = getVarIntLength(entry);
+                putLongLE(current, position, encodeVarIntLow(entry, length));
+                if (length > Long.BYTES) {
+                    putShortLE(current, position + Long.BYTES, encodeVarIntHigh(entry));
+                }
+                current.position(position + length);
+            }
         }
 
         @Override
-        public void writeRawVarInt64(long entry) {
-            throw new UnsupportedOperationException();
+        protected long reserveLength() {
+            ensureCapacity(RESERVED_LENGTH_SIZE);
+            addStagedBuffer();
+            var position = current.position();
+            appendBuffer(current.slice(position, RESERVED_LENGTH_SIZE));
+            current.position(position + RESERVED_LENGTH_SIZE);
+            stagingStart = current.position();
+            if (pendingLengths == pendingSlots.length) {
+                pendingSlots = Arrays.copyOf(pendingSlots, pendingLengths * 2);
+                pendingStarts = Arrays.copyOf(pendingStarts, pendingLengths * 2);
+            }
+            pendingSlots[pendingLengths] = buffersLength - 1;
+            pendingStarts[pendingLengths] = gatheredLength;
+            return pendingLengths++;
         }
 
         @Override
-        public OutputStream toOutput() {
-            return outputStream;
+        protected void patchLength(long marker) {
+            if (marker != pendingLengths - 1) {
+                throw new IllegalStateException("Length delimited properties must be ended in the reverse order they were started");
+            }
+
+            addStagedBuffer();
+            var length = (int) (gatheredLength - pendingStarts[--pendingLengths]);
+            var lengthSize = getVarIntLength(length);
+            var slot = buffers[pendingSlots[pendingLengths]];
+            var encoded = encodeVarIntLow(length, lengthSize);
+            for (var i = 0; i < lengthSize; i++) {
+                slot.put(i, (byte) (encoded >>> (i * Byte.SIZE)));
+            }
+            slot.limit(lengthSize);
+            gatheredLength += lengthSize;
+        }
+
+        // Nothing can be drained while a length is pending, so a new chunk is allocated instead
+        private void ensureCapacity(int length) {
+            if (current.remaining() >= length) {
+                return;
+            }
+
+            if (pendingLengths != 0 || !drainBuffers()) {
+                addStagedBuffer();
+                current = allocateChunk(Math.max(chunkLength, length));
+                stagingStart = 0;
+            }
+        }
+
+        // Closes the slice of the current chunk that precedes the payload
+        private void addBuffer(ByteBuffer payload) {
+            addStagedBuffer();
+            if (buffersLength + 1 >= MAX_GATHERED_BUFFERS && pendingLengths == 0) {
+                drainBuffers();
+            }
+            appendBuffer(payload);
+            gatheredLength += payload.remaining();
+        }
+
+        protected void addStagedBuffer() {
+            var position = current.position();
+            if (position != stagingStart) {
+                appendBuffer(current.slice(stagingStart, position - stagingStart));
+                gatheredLength += position - stagingStart;
+                stagingStart = position;
+            }
+        }
+
+        private void appendBuffer(ByteBuffer buffer) {
+            if (buffersLength == buffers.length) {
+                buffers = Arrays.copyOf(buffers, buffersLength * 2);
+            }
+            buffers[buffersLength++] = buffer;
         }
 
         @Override
         public DataType rawDataTypePreference() {
-            return DataType.BYTE_ARRAY;
+            return DataType.BYTE_BUFFER;
+        }
+    }
+
+    // The chunks are kept until the output is requested, payloads are always copied so the output doesn't alias the input
+    private static final class ChunkedWriter extends GatheringWriter<List<ByteBuffer>> {
+        private final boolean direct;
+
+        private ChunkedWriter(int chunkLength, boolean direct) {
+            super(direct ? ByteBuffer.allocateDirect(chunkLength) : ByteBuffer.allocate(chunkLength));
+            this.direct = direct;
+        }
+
+        @Override
+        protected boolean isGathered(long length) {
+            return false;
+        }
+
+        @Override
+        protected boolean drainBuffers() {
+            return false;
+        }
+
+        @Override
+        protected ByteBuffer allocateChunk(int length) {
+            return direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        }
+
+        @Override
+        public List<ByteBuffer> toOutput() {
+            if (pendingLengths > 0) {
+                throw new IllegalStateException("Cannot get the output while a length delimited property is being written");
+            }
+
+            addStagedBuffer();
+            return List.of(Arrays.copyOf(buffers, buffersLength));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    // The staging buffer is sent to the channel, with the payloads that are referenced, whenever it's full
+    // The payloads are not copied, so they must not be modified until the writer is flushed
+    private static final class ChannelWriter extends GatheringWriter<GatheringByteChannel> {
+        private final GatheringByteChannel channel;
+        private final ByteBuffer staging;
+
+        private ChannelWriter(GatheringByteChannel channel, ByteBuffer staging) {
+            super(staging);
+            this.channel = channel;
+            this.staging = staging;
+        }
+
+        @Override
+        public boolean keepsOutputInMemory() {
+            return false;
+        }
+
+        @Override
+        protected boolean isGathered(long length) {
+            return length >= MIN_GATHERED_PAYLOAD_LENGTH || length > chunkLength;
+        }
+
+        // The extra chunks are only used while a length is pending, so they are allocated on the heap
+        @Override
+        protected ByteBuffer allocateChunk(int length) {
+            return ByteBuffer.allocate(length);
+        }
+
+        // The channel is expected to be in blocking mode, so every call writes at least one byte
+        @Override
+        protected boolean drainBuffers() {
+            addStagedBuffer();
+            try {
+                var offset = 0;
+                while (offset < buffersLength) {
+                    channel.write(buffers, offset, Math.min(buffersLength - offset, MAX_GATHERED_BUFFERS));
+                    while (offset < buffersLength && !buffers[offset].hasRemaining()) {
+                        buffers[offset++] = null;
+                    }
+                }
+            } catch (IOException e) {
+                throw new ProtobufSerializationException("Cannot write to channel", e);
+            }
+            buffersLength = 0;
+            gatheredLength = 0;
+            current = staging.clear();
+            stagingStart = 0;
+            return true;
+        }
+
+        @Override
+        public void flush() {
+            if (pendingLengths > 0) {
+                throw new IllegalStateException("Cannot flush while a length delimited property is being written");
+            }
+
+            drainBuffers();
+        }
+
+        @Override
+        public GatheringByteChannel toOutput() {
+            flush();
+            return channel;
         }
 
         @Override
         public void close() throws IOException {
-            outputStream.close();
+            try {
+                drainBuffers();
+            } finally {
+                channel.close();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+package it.auties.protobuf.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A model that represents the properties of a message, and of its embedded messages, that should be decoded
+ * The generated decode(ProtobufReader, ProtobufFieldSelection) method skips every other property without allocating,
+ * so the decoded message has the default value for the properties that weren't selected, required ones included.
+ * Selections are immutable: with returns a new selection, so they can be built once and shared between threads.
+ */
+public final class ProtobufFieldSelection {
+    // Indexes up to this value are stored in the bitmask, the others in a sorted array
+    private static final long MAX_MASK_INDEX = 4096;
+
+    private static final long MAX_INDEX = (1L << 29) - 1;
+
+    private static final ProtobufFieldSelection ALL = new ProtobufFieldSelection(null, new long[0], new long[0], new ProtobufFieldSelection[0]);
+
+    // Never has trailing zero words, so equal selections have equal masks
+    private final long[] mask;
+    private final long[] indexes;
+    private final long[] nestedIndexes;
+    private final ProtobufFieldSelection[] nestedSelections;
+
+    private ProtobufFieldSelection(long[] mask, long[] indexes, long[] nestedIndexes, ProtobufFieldSelection[] nestedSelections) {
+        this.mask = mask;
+        this.indexes = indexes;
+        this.nestedIndexes = nestedIndexes;
+        this.nestedSelections = nestedSelections;
+    }
+
+    /**
+     * Returns a selection that contains every property
+     *
+     * @return a non-null selection
+     */
+    public static ProtobufFieldSelection all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a selection that contains the properties with the provided indexes
+     * Embedded messages among them are decoded entirely
+     *
+     * @param indexes the indexes of the properties
+     * @return a non-null selection
+     * @throws IllegalArgumentException if an index isn't a valid property index
+     */
+    public static ProtobufFieldSelection of(long... indexes) {
+        Objects.requireNonNull(indexes, "indexes must not be null");
+        var result = new ProtobufFieldSelection(new long[0], new long[0], new long[0], new ProtobufFieldSelection[0]);
+        for (var index : indexes) {
+            result = result.with(index);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of this selection that also contains the property with the provided index
+     *
+     * @param index the index of the property
+     * @return a non-null selection
+     * @throws IllegalArgumentException if the index isn't a valid property index
+     */
+    public ProtobufFieldSelection with(long index) {
+        return with(index, ALL);
+    }
+
+    /**
+     * Returns a copy of this selection that also contains the embedded message with the provided index,
+     * of which only the properties in the nested selection are decoded
+     *
+     * @param index the index of the embedded message
+     * @param nested the properties of the embedded message to decode
+     * @return a non-null selection
+     * @throws IllegalArgumentException if the index isn't a valid property index
+     */
+    public ProtobufFieldSelection with(long index, ProtobufFieldSelection nested) {
+        Objects.requireNonNull(nested, "nested must not be null");
+        if(index < 1 || index > MAX_INDEX) {
+            throw new IllegalArgumentException("Invalid property index: " + index);
+        }
+
+        if(mask == null) {
+            return this;
+        }
+
+        var mask = this.mask;
+        var indexes = this.indexes;
+        if(index < MAX_MASK_INDEX) {
+            var word = (int) (index >>> 6);
+            mask = Arrays.copyOf(mask, Math.max(mask.length, word + 1));
+            mask[word] |= 1L << index;
+        } else if(Arrays.binarySearch(indexes, index) < 0) {
+            indexes = Arrays.copyOf(indexes, indexes.length + 1);
+            indexes[indexes.length - 1] = index;
+            Arrays.sort(indexes);
+        }
+
+        var nestedIndexes = this.nestedIndexes;
+        var nestedSelections = this.nestedSelections;
+        var nestedPosition = Arrays.binarySearch(nestedIndexes, index);
+        if(nestedPosition >= 0 && nested == ALL) {
+            nestedIndexes = new long[this.nestedIndexes.length - 1];
+            nestedSelections = new ProtobufFieldSelection[this.nestedSelections.length - 1];
+            System.arraycopy(this.nestedIndexes, 0, nestedIndexes, 0, nestedPosition);
+            System.arraycopy(this.nestedSelections, 0, nestedSelections, 0, nestedPosition);
+            System.arraycopy(this.nestedIndexes, nestedPosition + 1, nestedIndexes, nestedPosition, nestedIndexes.length - nestedPosition);
+            System.arraycopy(this.nestedSelections, nestedPosition + 1, nestedSelections, nestedPosition, nestedSelections.length - nestedPosition);
+        } else if(nestedPosition >= 0) {
+            nestedSelections = nestedSelections.clone();
+            nestedSelections[nestedPosition] = nested;
+        } else if(nested != ALL) {
+            var insertion = -nestedPosition - 1;
+            nestedIndexes = new long[this.nestedIndexes.length + 1];
+            nestedSelections = new ProtobufFieldSelection[this.nestedSelections.length + 1];
+            System.arraycopy(this.nestedIndexes, 0, nestedIndexes, 0, insertion);
+            System.arraycopy(this.nestedSelections, 0, nestedSelections, 0, insertion);
+            nestedIndexes[insertion] = index;
+            nestedSelections[insertion] = nested;
+            System.arraycopy(this.nestedIndexes, insertion, nestedIndexes, insertion + 1, this.nestedIndexes.length - insertion);
+            System.arraycopy(this.nestedSelections, insertion, nestedSelections, insertion + 1, this.nestedSelections.length - insertion);
+        }
+
+        return new ProtobufFieldSelection(mask, indexes, nestedIndexes, nestedSelections);
+    }
+
+    /**
+     * Returns whether the property with the provided index should be decoded
+     *
+     * @param index the index of the property
+     * @return whether the property is selected
+     */
+    public boolean contains(long index) {
+        if(mask == null) {
+            return true;
+        }
+
+        if(index >= 0 && index < MAX_MASK_INDEX) {
+            var word = (int) (index >>> 6);
+            return word < mask.length && (mask[word] & (1L << index)) != 0;
+        }
+
+        return Arrays.binarySearch(indexes, index) >= 0;
+    }
+
+    /**
+     * Returns the properties to decode in the embedded message with the provided index
+     *
+     * @param index the index of the embedded message
+     * @return the nested selection, or a selection that contains every property if none was provided
+     */
+    public ProtobufFieldSelection nested(long index) {
+        if(nestedIndexes.length == 0) {
+            return ALL;
+        }
+
+        var position = Arrays.binarySearch(nestedIndexes, index);
+        return position < 0 ? ALL : nestedSelections[position];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof ProtobufFieldSelection that
+                && Arrays.equals(mask, that.mask)
+                && Arrays.equals(indexes, that.indexes)
+                && Arrays.equals(nestedIndexes, that.nestedIndexes)
+                && Arrays.equals(nestedSelections, that.nestedSelections);
+    }
+
+    @Override
+    public int hashCode() {
+        var result = Arrays.hashCode(mask);
+        result = 31 * result + Arrays.hashCode(indexes);
+        result = 31 * result + Arrays.hashCode(nestedIndexes);
+        result = 31 * result + Arrays.hashCode(nestedSelections);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if(mask == null) {
+            return "ProtobufFieldSelection[all]";
+        }
+
+        var result = new StringBuilder("ProtobufFieldSelection[");
+        var first = true;
+        for(var word = 0; word < mask.length; word++) {
+            var bits = mask[word];
+            while (bits != 0) {
+                var index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                first = appendIndex(result, index, first);
+                bits &= bits - 1;
+            }
+        }
+        for(var index : indexes) {
+            first = appendIndex(result, index, first);
+        }
+        return result.append("]").toString();
+    }
+
+    private boolean appendIndex(StringBuilder result, long index, boolean first) {
+        if(!first) {
+            result.append(", ");
+        }
+        result.append(index);
+        var position = Arrays.binarySearch(nestedIndexes, index);
+        if(position >= 0) {
+            result.append("=").append(nestedSelections[position]);
+        }
+        return false;
+    }
+}
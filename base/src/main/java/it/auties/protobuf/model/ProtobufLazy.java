@@ -0,0 +1,148 @@
+package it.auties.protobuf.model;
+
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufWriter;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A model that represents an embedded message that is decoded only when it's first accessed
+ * When the enclosing message is decoded, only the range of the embedded message in the input is captured,
+ * so the input must not be modified while this value is reachable.
+ * As long as the message isn't decoded, encoding the enclosing message writes back the original bytes unchanged.
+ * The equals and hashCode implementations are based on the decoded message, so they decode it
+ *
+ * @param <T> the type of the embedded message
+ */
+public final class ProtobufLazy<T> {
+    private final MemorySegment encoded;
+    private final Function<? super ProtobufReader, ? extends T> decoder;
+    private final StableValue<T> decoded;
+
+    private ProtobufLazy(MemorySegment encoded, Function<? super ProtobufReader, ? extends T> decoder) {
+        this.encoded = encoded;
+        this.decoder = decoder;
+        this.decoded = StableValue.of();
+    }
+
+    /**
+     * Reads the length and the bytes of an embedded message without decoding them
+     *
+     * @param reader the reader, positioned after the tag of the embedded message, which is consumed
+     * @param decoder the function that decodes the message, usually the decode method of its Spec class
+     * @return a lazy value
+     */
+    public static <T> ProtobufLazy<T> from(ProtobufReader reader, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(decoder, "decoder must not be null");
+        if(reader.propertyWireType() != ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED) {
+            throw ProtobufDeserializationException.invalidWireType(reader.propertyWireType());
+        }
+
+        var length = reader.readLengthDelimitedPropertyLength();
+        var source = reader.readRawMemorySegment(length);
+        reader.resetPropertyTag();
+        return new ProtobufLazy<>(source, decoder);
+    }
+
+    public static <T> ProtobufLazy<T> of(MemorySegment encoded, Function<? super ProtobufReader, ? extends T> decoder) {
+        Objects.requireNonNull(encoded, "encoded must not be null");
+        Objects.requireNonNull(decoder, "decoder must not be null");
+        if(encoded.byteSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment too large");
+        }
+
+        return new ProtobufLazy<>(encoded, decoder);
+    }
+
+    public static <T> ProtobufLazy<T> of(T value) {
+        Objects.requireNonNull(value, "value must not be null");
+        var result = new ProtobufLazy<T>(null, null);
+        result.decoded.trySet(value);
+        return result;
+    }
+
+    /**
+     * Returns the embedded message, decoding it the first time this method is called
+     *
+     * @return the decoded message
+     * @throws it.auties.protobuf.exception.ProtobufDeserializationException if the embedded message is malformed
+     */
+    public T get() {
+        return decoded.orElseSet(() -> decoder.apply(ProtobufReader.fromMemorySegment(encoded)));
+    }
+
+    /**
+     * Returns whether the embedded message was decoded, or this value was created from a decoded message
+     * Once this happens, the original bytes are no longer written back as the message could have been modified
+     *
+     * @return whether the embedded message was decoded
+     */
+    public boolean isDecoded() {
+        return decoded.isSet();
+    }
+
+    /**
+     * Returns the length of the original bytes of the embedded message
+     *
+     * @return a non-negative length
+     * @throws IllegalStateException if this value was created from a decoded message
+     */
+    public int encodedLength() {
+        return (int) checkEncoded().byteSize();
+    }
+
+    /**
+     * Writes the original bytes of the embedded message as the property with the provided index
+     *
+     * @param propertyIndex the index of the property
+     * @param writer the writer
+     * @throws IllegalStateException if this value was created from a decoded message
+     */
+    public void writeTo(long propertyIndex, ProtobufWriter<?> writer) {
+        var source = checkEncoded();
+        writer.writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength((int) source.byteSize());
+        writer.writeRawMemorySegment(source);
+    }
+
+    // The reverse writer is filled back to front, so the bytes come before their length and tag
+    public void writeTo(long propertyIndex, ProtobufReverseWriter writer) {
+        var source = checkEncoded();
+        writer.writeRawMemorySegment(source);
+        writer.writeLengthDelimitedPropertyLength((int) source.byteSize());
+        writer.writePropertyTag(propertyIndex, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+    }
+
+    private MemorySegment checkEncoded() {
+        if(encoded == null) {
+            throw new IllegalStateException("This value was created from a decoded message");
+        }
+
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof ProtobufLazy<?> that
+                && Objects.equals(get(), that.get());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(get());
+    }
+
+    // Doesn't decode the message, like a debugger or a log statement would expect
+    @Override
+    public String toString() {
+        if(isDecoded()) {
+            return "ProtobufLazy[value=" + decoded.orElseThrow() + "]";
+        } else {
+            return "ProtobufLazy[encodedLength=" + encoded.byteSize() + "]";
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package it.auties.protobuf.model;
+
+import it.auties.protobuf.annotation.ProtobufUnknownFields;
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufWriter;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/**
+ * A store for unknown fields that keeps their encoded bytes instead of a ProtobufUnknownValue for each of them
+ * The fields are appended to a single byte array in the order they were read, and the generated encoder writes them back after the known properties,
+ * so a message can be forwarded without losing the fields that its model doesn't declare.
+ * The bytes are copied from the input, so it can be reused once the enclosing message is decoded.
+ * Varints are written back in their canonical form: a field whose varint was padded shrinks by the padding.
+ */
+public final class ProtobufRawUnknownFields {
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] bytes;
+    private int length;
+
+    public ProtobufRawUnknownFields() {
+        this.bytes = EMPTY;
+    }
+
+    /**
+     * Copies the property that the reader is positioned on, tag included
+     * This is the method called by the generated decoder, it doesn't create any object for the property
+     *
+     * @param reader the reader, positioned after the tag of the unknown property
+     * @throws ProtobufDeserializationException if the property is malformed
+     */
+    public void readProperty(ProtobufReader reader) {
+        var index = reader.propertyIndex();
+        var wireType = reader.propertyWireType();
+        writeVarInt((index << 3) | wireType);
+        switch (wireType) {
+            case ProtobufWireType.WIRE_TYPE_VAR_INT -> {
+                writeVarInt(reader.readRawVarInt64());
+                reader.resetPropertyTag();
+            }
+            case ProtobufWireType.WIRE_TYPE_FIXED32 -> {
+                writeFixed(reader.readRawFixedInt32(), Integer.BYTES);
+                reader.resetPropertyTag();
+            }
+            case ProtobufWireType.WIRE_TYPE_FIXED64 -> {
+                writeFixed(reader.readRawFixedInt64(), Long.BYTES);
+                reader.resetPropertyTag();
+            }
+            case ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED -> {
+                var size = reader.readLengthDelimitedPropertyLength();
+                writeVarInt(size);
+                writeSegment(reader.readRawMemorySegment(size));
+                reader.resetPropertyTag();
+            }
+            case ProtobufWireType.WIRE_TYPE_START_OBJECT -> {
+                reader.resetPropertyTag();
+                while (reader.readPropertyTag()) {
+                    readProperty(reader);
+                }
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_END_OBJECT);
+                reader.readEndGroupProperty(index);
+            }
+            default -> throw ProtobufDeserializationException.invalidWireType(wireType);
+        }
+    }
+
+    /**
+     * Encodes an unknown property that was already decoded
+     * This makes this class usable as any other unknown fields store, but the generated decoder calls readProperty instead
+     *
+     * @param index the index of the property
+     * @param value the value of the property, a ProtobufUnknownValue
+     * @throws IllegalArgumentException if the value isn't a ProtobufUnknownValue
+     */
+    @ProtobufUnknownFields.Setter
+    public void addProperty(long index, Object value) {
+        if(!(value instanceof ProtobufUnknownValue unknownValue)) {
+            throw new IllegalArgumentException("Unexpected unknown value: " + value);
+        }
+
+        switch (unknownValue) {
+            case ProtobufUnknownValue.VarInt(var varIntValue) -> {
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_VAR_INT);
+                writeVarInt(varIntValue);
+            }
+            case ProtobufUnknownValue.Fixed32(var fixed32Value) -> {
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_FIXED32);
+                writeFixed(fixed32Value, Integer.BYTES);
+            }
+            case ProtobufUnknownValue.Fixed64(var fixed64Value) -> {
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_FIXED64);
+                writeFixed(fixed64Value, Long.BYTES);
+            }
+            case ProtobufUnknownValue.LengthDelimited lengthDelimited -> {
+                var segment = switch (lengthDelimited) {
+                    case ProtobufUnknownValue.LengthDelimited.AsByteArray(var lengthDelimitedAsByteArray) -> MemorySegment.ofArray(lengthDelimitedAsByteArray);
+                    case ProtobufUnknownValue.LengthDelimited.AsByteBuffer(var lengthDelimitedAsByteBuffer) -> MemorySegment.ofBuffer(lengthDelimitedAsByteBuffer);
+                    case ProtobufUnknownValue.LengthDelimited.AsMemorySegment(var lengthDelimitedAsMemorySegment) -> lengthDelimitedAsMemorySegment;
+                };
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+                writeVarInt(segment.byteSize());
+                writeSegment(segment);
+            }
+            case ProtobufUnknownValue.Group(var groupIndexes, var groupValues) -> {
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_START_OBJECT);
+                for(var i = 0; i < groupIndexes.length; i++) {
+                    addProperty(groupIndexes[i], groupValues[i]);
+                }
+                writeVarInt((index << 3) | ProtobufWireType.WIRE_TYPE_END_OBJECT);
+            }
+        }
+    }
+
+    /**
+     * Writes the encoded unknown fields, in the order they were read
+     *
+     * @param writer the writer
+     */
+    public void writeTo(ProtobufWriter<?> writer) {
+        writer.writeRawBytes(bytes, 0, length);
+    }
+
+    // The fields are a single block of bytes, so they can be prepended as they are
+    public void writeTo(ProtobufReverseWriter writer) {
+        writer.writeRawBytes(bytes, 0, length);
+    }
+
+    /**
+     * Returns the length of the encoded unknown fields
+     *
+     * @return a non-negative length
+     */
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns a copy of the encoded unknown fields
+     *
+     * @return a non-null byte array
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void writeVarInt(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    // Fixed values are little endian
+    private void writeFixed(long value, int size) {
+        ensureCapacity(size);
+        for(var i = 0; i < size; i++) {
+            bytes[length++] = (byte) (value >>> (i << 3));
+        }
+    }
+
+    private void writeSegment(MemorySegment segment) {
+        var size = (int) segment.byteSize();
+        ensureCapacity(size);
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, 0, bytes, length, size);
+        length += size;
+    }
+
+    private void ensureCapacity(int size) {
+        var required = Math.addExact(length, size);
+        if(required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length << 1));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof ProtobufRawUnknownFields that
+                && Arrays.equals(bytes, 0, length, that.bytes, 0, that.length);
+    }
+
+    @Override
+    public int hashCode() {
+        var result = 1;
+        for(var i = 0; i < length; i++) {
+            result = 31 * result + bytes[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtobufRawUnknownFields[length=" + length + "]";
+    }
+}
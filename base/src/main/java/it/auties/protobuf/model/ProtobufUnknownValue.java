@@ -6,7 +6,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -176,15 +176,76 @@ public sealed interface ProtobufUnknownValue {
 
     /**
      * Represents an unknown field value that has {@link ProtobufWireType#WIRE_TYPE_START_OBJECT} wire type.
+     * <p>
+     * The properties of the group are stored in two parallel arrays, in the order they were read.
+     * An index appears once for each occurrence of the property, so repeated properties are preserved.
+     * The arrays are not copied: they must not be modified after the group is created.
+     *
+     * @param indexes the indexes of the properties in the group.
+     * @param values the values of the properties in the group, in the same order as their indexes.
      */
-    record Group(Map<Long, ProtobufUnknownValue> value) implements ProtobufUnknownValue {
+    record Group(long[] indexes, ProtobufUnknownValue[] values) implements ProtobufUnknownValue {
         /**
-         * Constructs a new {@code Group} record, ensuring the map is not null.
+         * Constructs a new {@code Group} record, ensuring the arrays are not null and have the same length.
          *
-         * @param value the map of field numbers to inner unknown values.
+         * @param indexes the indexes of the properties in the group.
+         * @param values the values of the properties in the group, in the same order as their indexes.
          */
         public Group {
-            Objects.requireNonNull(value, "value cannot be null");
+            Objects.requireNonNull(indexes, "indexes cannot be null");
+            Objects.requireNonNull(values, "values cannot be null");
+            if (indexes.length != values.length) {
+                throw new IllegalArgumentException("indexes and values must have the same length");
+            }
+        }
+
+        /**
+         * Returns the number of properties in the group, counting each occurrence of a repeated property.
+         *
+         * @return the number of properties.
+         */
+        public int size() {
+            return indexes.length;
+        }
+
+        /**
+         * Returns the value of the last occurrence of the property with the provided index,
+         * which is the value a parser keeps for a non-repeated property.
+         *
+         * @param index the index of the property.
+         * @return the value, or {@code null} if the group doesn't contain the property.
+         */
+        public ProtobufUnknownValue get(long index) {
+            for (var i = indexes.length - 1; i >= 0; i--) {
+                if (indexes[i] == index) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this == obj || obj instanceof Group that
+                    && Arrays.equals(indexes, that.indexes)
+                    && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(indexes) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            var result = new StringBuilder("Group[");
+            for (var i = 0; i < indexes.length; i++) {
+                if (i != 0) {
+                    result.append(", ");
+                }
+                result.append(indexes[i]).append("=").append(values[i]);
+            }
+            return result.append("]").toString();
         }
     }
 
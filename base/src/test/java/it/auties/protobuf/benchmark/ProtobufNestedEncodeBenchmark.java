@@ -0,0 +1,145 @@
+package it.auties.protobuf.benchmark;
+
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufSizeCache;
+import it.auties.protobuf.io.ProtobufSizeCalculator;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufWireType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Encodes a binary tree of messages the way the generated Spec classes do,
+// comparing the ways the length of the embedded messages can be obtained
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProtobufNestedEncodeBenchmark {
+    @Param({"5", "8", "10"})
+    private int depth;
+
+    private Node root;
+
+    private record Node(long id, String name, Node left, Node right) {
+
+    }
+
+    @Setup
+    public void setup() {
+        root = createNode(new Random(0), depth);
+    }
+
+    private static Node createNode(Random random, int depth) {
+        var left = depth == 0 ? null : createNode(random, depth - 1);
+        var right = depth == 0 ? null : createNode(random, depth - 1);
+        return new Node(random.nextLong() >>> random.nextInt(64), "node" + depth, left, right);
+    }
+
+    // What the generated code used to do: every level sizes its children again to write their length
+    @Benchmark
+    public byte[] sizedEveryLevel() {
+        var writer = ProtobufWriter.toBytes(sizeOf(root, null));
+        encodeSized(root, writer);
+        return writer.toOutput();
+    }
+
+    @Benchmark
+    public byte[] memoizedSizes() {
+        var sizeCache = new ProtobufSizeCache();
+        var writer = ProtobufWriter.toBytes(sizeOf(root, sizeCache));
+        writer.setSizeCache(sizeCache);
+        encode(root, writer);
+        return writer.toOutput();
+    }
+
+    @Benchmark
+    public byte[] backPatchedLengths() {
+        var writer = ProtobufWriter.toBytes(sizeOf(root, null));
+        encode(root, writer);
+        return writer.toOutput();
+    }
+
+    // No size is computed at all, the lengths are written after the messages
+    @Benchmark
+    public byte[] reverseWriter() {
+        var writer = ProtobufReverseWriter.toBytes();
+        encodeReverse(root, writer);
+        return writer.toOutput();
+    }
+
+    private static int sizeOf(Node node, ProtobufSizeCache sizeCache) {
+        var size = 0;
+        size += ProtobufSizeCalculator.getVarIntPropertySize(1, node.id());
+        size += ProtobufSizeCalculator.getLengthDelimitedPropertySize(2, node.name().length());
+        if (node.left() != null) {
+            size += ProtobufSizeCalculator.getLengthDelimitedPropertySize(3, sizeOf(node.left(), sizeCache));
+        }
+        if (node.right() != null) {
+            size += ProtobufSizeCalculator.getLengthDelimitedPropertySize(4, sizeOf(node.right(), sizeCache));
+        }
+        if (sizeCache != null) {
+            sizeCache.put(node, size);
+        }
+        return size;
+    }
+
+    private static void encodeSized(Node node, ProtobufWriter<?> writer) {
+        writeFields(node, writer);
+        if (node.left() != null) {
+            writer.writePropertyTag(3, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+            writer.writeLengthDelimitedPropertyLength(sizeOf(node.left(), null));
+            encodeSized(node.left(), writer);
+        }
+        if (node.right() != null) {
+            writer.writePropertyTag(4, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+            writer.writeLengthDelimitedPropertyLength(sizeOf(node.right(), null));
+            encodeSized(node.right(), writer);
+        }
+    }
+
+    private static void encode(Node node, ProtobufWriter<?> writer) {
+        writeFields(node, writer);
+        if (node.left() != null) {
+            var marker = writer.writeStartLengthDelimitedProperty(3, node.left());
+            encode(node.left(), writer);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+        if (node.right() != null) {
+            var marker = writer.writeStartLengthDelimitedProperty(4, node.right());
+            encode(node.right(), writer);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+    }
+
+    private static void encodeReverse(Node node, ProtobufReverseWriter writer) {
+        if (node.right() != null) {
+            var marker = writer.writeStartLengthDelimitedProperty();
+            encodeReverse(node.right(), writer);
+            writer.writeEndLengthDelimitedProperty(4, marker);
+        }
+        if (node.left() != null) {
+            var marker = writer.writeStartLengthDelimitedProperty();
+            encodeReverse(node.left(), writer);
+            writer.writeEndLengthDelimitedProperty(3, marker);
+        }
+        for (var i = node.name().length() - 1; i >= 0; i--) {
+            writer.writeRawByte((byte) node.name().charAt(i));
+        }
+        writer.writeLengthDelimitedPropertyLength(node.name().length());
+        writer.writePropertyTag(2, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeInt64Property(1, node.id());
+    }
+
+    private static void writeFields(Node node, ProtobufWriter<?> writer) {
+        writer.writeInt64Property(1, node.id());
+        writer.writePropertyTag(2, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(node.name().length());
+        for (var i = 0; i < node.name().length(); i++) {
+            writer.writeRawByte((byte) node.name().charAt(i));
+        }
+    }
+}
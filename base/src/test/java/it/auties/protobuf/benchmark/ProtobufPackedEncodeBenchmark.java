@@ -0,0 +1,61 @@
+package it.auties.protobuf.benchmark;
+
+import it.auties.protobuf.io.ProtobufWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Encodes packed var int properties of a few thousand values, like a message of metrics
+// The byte array writer encodes them a vector at a time, the heap buffer writer one at a time
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProtobufPackedEncodeBenchmark {
+    private static final int COUNT = 4096;
+
+    private int[] ints;
+    private long[] longs;
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        ints = new int[COUNT];
+        longs = new long[COUNT];
+        for (var i = 0; i < COUNT; i++) {
+            // Mostly small values, with a long tail of wider ones
+            ints[i] = random.nextInt() >>> (random.nextInt(4) * 8);
+            longs[i] = random.nextLong() >>> (8 + random.nextInt(7) * 8);
+        }
+        var writer = ProtobufWriter.toGrowableBytes();
+        encode(writer);
+        output = new byte[writer.toOutput().length];
+    }
+
+    private void encode(ProtobufWriter<?> writer) {
+        writer.writePackedInt32Property(1, ints);
+        writer.writePackedSInt32Property(2, ints);
+        writer.writePackedInt64Property(3, longs);
+        writer.writePackedSInt64Property(4, longs);
+    }
+
+    @Benchmark
+    public byte[] byteArray() {
+        var writer = ProtobufWriter.toBytes(output, 0);
+        encode(writer);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer heapBuffer() {
+        var buffer = ByteBuffer.wrap(output);
+        var writer = ProtobufWriter.toBuffer(buffer);
+        encode(writer);
+        return buffer;
+    }
+}
@@ -0,0 +1,71 @@
+package it.auties.protobuf.benchmark;
+
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufWireType;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Writes and reads a packed fixed64 property, like an array of timestamps or ids
+// The scalar methods write the same bytes one value at a time, which is what the bulk copy replaced
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProtobufPackedFixedBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int count;
+
+    private long[] values;
+    private byte[] output;
+    private MemorySegment segment;
+
+    @Setup
+    public void setup() {
+        values = new Random(0).longs(count).toArray();
+        var writer = ProtobufWriter.toGrowableBytes();
+        writer.writePackedFixed64Property(1, values);
+        output = writer.toOutput();
+        segment = Arena.ofAuto().allocate(output.length);
+        MemorySegment.copy(output, 0, segment, ValueLayout.JAVA_BYTE, 0, output.length);
+    }
+
+    @Benchmark
+    public byte[] writeBulk() {
+        var writer = ProtobufWriter.toBytes(output, 0);
+        writer.writePackedFixed64Property(1, values);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] writeScalar() {
+        var writer = ProtobufWriter.toBytes(output, 0);
+        writer.writePropertyTag(1, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(values.length * Long.BYTES);
+        for (var value : values) {
+            writer.writeRawFixedInt64(value);
+        }
+        return output;
+    }
+
+    @Benchmark
+    public long[] readBytes() {
+        var reader = ProtobufReader.fromBytes(output);
+        reader.readPropertyTag();
+        return reader.readPackedFixed64Property();
+    }
+
+    @Benchmark
+    public long[] readMemorySegment() {
+        var reader = ProtobufReader.fromMemorySegment(segment);
+        reader.readPropertyTag();
+        return reader.readPackedFixed64Property();
+    }
+}
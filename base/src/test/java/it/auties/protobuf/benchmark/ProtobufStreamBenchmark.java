@@ -0,0 +1,75 @@
+package it.auties.protobuf.benchmark;
+
+import it.auties.protobuf.io.ProtobufReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProtobufStreamBenchmark {
+    private static final int COUNT = 100_000;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        var random = new Random(0);
+        var output = new ByteArrayOutputStream();
+        for (var i = 0; i < COUNT; i++) {
+            var value = random.nextLong() >>> (random.nextInt(8) * 8);
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+        file = Files.createTempFile("protobuf", ".bin");
+        Files.write(file, output.toByteArray());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    // File streams are unbuffered, so every read the reader makes is a system call
+    @Benchmark
+    public long fileStream() throws IOException {
+        try (var stream = Files.newInputStream(file)) {
+            return readAll(ProtobufReader.fromStream(stream, false));
+        }
+    }
+
+    @Benchmark
+    public long fileStreamLargeBuffer() throws IOException {
+        try (var stream = Files.newInputStream(file)) {
+            return readAll(ProtobufReader.fromStream(stream, false, 65536));
+        }
+    }
+
+    @Benchmark
+    public long bufferedFileStream() throws IOException {
+        try (var stream = new BufferedInputStream(Files.newInputStream(file))) {
+            return readAll(ProtobufReader.fromStream(stream, false));
+        }
+    }
+
+    private static long readAll(ProtobufReader reader) {
+        var result = 0L;
+        for (var i = 0; i < COUNT; i++) {
+            result += reader.readRawVarInt64();
+        }
+        return result;
+    }
+}
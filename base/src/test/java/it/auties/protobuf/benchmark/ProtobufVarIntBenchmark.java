@@ -0,0 +1,111 @@
+package it.auties.protobuf.benchmark;
+
+import it.auties.protobuf.io.ProtobufReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProtobufVarIntBenchmark {
+    private static final int COUNT = 10_000;
+
+    private byte[] array;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private MemorySegment heapSegment;
+    private MemorySegment nativeSegment;
+    private byte[] packedArray;
+    private MemorySegment packedNativeSegment;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        var output = new ByteArrayOutputStream();
+        for (var i = 0; i < COUNT; i++) {
+            // Mostly small values, like tags and lengths, with a long tail of wider ones
+            var value = random.nextLong() >>> (random.nextInt(8) * 8);
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+        array = output.toByteArray();
+        heapBuffer = ByteBuffer.wrap(array);
+        directBuffer = ByteBuffer.allocateDirect(array.length)
+                .put(array)
+                .flip();
+        heapSegment = MemorySegment.ofArray(array);
+        nativeSegment = Arena.ofAuto().allocate(array.length);
+        MemorySegment.copy(array, 0, nativeSegment, ValueLayout.JAVA_BYTE, 0, array.length);
+
+        // The same values as a packed field: a var int length followed by the payload
+        var packedOutput = new ByteArrayOutputStream();
+        var length = array.length;
+        while ((length & ~0x7F) != 0) {
+            packedOutput.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        packedOutput.write(length);
+        packedOutput.writeBytes(array);
+        packedArray = packedOutput.toByteArray();
+        packedNativeSegment = Arena.ofAuto().allocate(packedArray.length);
+        MemorySegment.copy(packedArray, 0, packedNativeSegment, ValueLayout.JAVA_BYTE, 0, packedArray.length);
+    }
+
+    @Benchmark
+    public long byteArrayVarInt64() {
+        return readAll(ProtobufReader.fromBytes(array));
+    }
+
+    @Benchmark
+    public long heapBufferVarInt64() {
+        return readAll(ProtobufReader.fromBuffer(heapBuffer));
+    }
+
+    @Benchmark
+    public long directBufferVarInt64() {
+        return readAll(ProtobufReader.fromBuffer(directBuffer));
+    }
+
+    @Benchmark
+    public long heapSegmentVarInt64() {
+        return readAll(ProtobufReader.fromMemorySegment(heapSegment));
+    }
+
+    @Benchmark
+    public long nativeSegmentVarInt64() {
+        return readAll(ProtobufReader.fromMemorySegment(nativeSegment));
+    }
+
+    @Benchmark
+    public long[] byteArrayPackedVarInt64() {
+        return ProtobufReader.fromBytes(packedArray)
+                .readRawPackedVarInt64();
+    }
+
+    @Benchmark
+    public long[] nativeSegmentPackedVarInt64() {
+        return ProtobufReader.fromMemorySegment(packedNativeSegment)
+                .readRawPackedVarInt64();
+    }
+
+    private static long readAll(ProtobufReader reader) {
+        var result = 0L;
+        for (var i = 0; i < COUNT; i++) {
+            result += reader.readRawVarInt64();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,187 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufSizeCalculator;
+import it.auties.protobuf.io.ProtobufWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+
+public class ProtobufDelimitedTest {
+    // Messages of very different sizes, so that frames straddle the middle of any split
+    private static List<byte[]> createMessages() {
+        var random = new Random(0);
+        var result = new ArrayList<byte[]>();
+        for (var i = 0; i < 2048; i++) {
+            var message = new byte[random.nextInt(i % 16 == 0 ? 1024 : 16)];
+            random.nextBytes(message);
+            result.add(message);
+        }
+        return result;
+    }
+
+    private static int sizeOf(byte[] message) {
+        return message.length;
+    }
+
+    private static void encode(byte[] message, ProtobufWriter<?> writer) {
+        writer.writeRawBytes(message);
+    }
+
+    private static byte[] decode(ProtobufReader reader) {
+        var result = new ByteArrayOutputStream();
+        while (!reader.isFinished()) {
+            result.write(reader.readRawByte());
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] writeDelimited(List<byte[]> messages) {
+        var length = 0L;
+        for (var message : messages) {
+            length += ProtobufSizeCalculator.getDelimitedSize(message.length);
+        }
+        var writer = ProtobufWriter.toBytes((int) length);
+        for (var message : messages) {
+            writer.writeDelimited(message, ProtobufDelimitedTest::sizeOf, ProtobufDelimitedTest::encode);
+        }
+        return writer.toOutput();
+    }
+
+    private static void assertMessagesEquals(List<byte[]> expected, List<byte[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (var i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i), "message " + i);
+        }
+    }
+
+    @Test
+    public void testStreamWriter() {
+        var messages = createMessages();
+        var output = new ByteArrayOutputStream();
+        var writer = ProtobufWriter.toStream(output);
+        for (var message : messages) {
+            writer.writeDelimited(message, ProtobufDelimitedTest::sizeOf, ProtobufDelimitedTest::encode);
+        }
+        writer.flush();
+        Assertions.assertArrayEquals(writeDelimited(messages), output.toByteArray());
+    }
+
+    @Test
+    public void testIterator() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        var readers = List.of(
+                ProtobufReader.fromBytes(bytes),
+                ProtobufReader.fromBuffer(ByteBuffer.wrap(bytes)),
+                ProtobufReader.fromMemorySegment(MemorySegment.ofArray(bytes)),
+                ProtobufReader.fromStream(new ByteArrayInputStream(bytes), 64)
+        );
+        for (var reader : readers) {
+            var actual = new ArrayList<byte[]>();
+            reader.delimitedIterator(ProtobufDelimitedTest::decode)
+                    .forEachRemaining(actual::add);
+            assertMessagesEquals(messages, actual);
+        }
+    }
+
+    // A frame whose decoder throws is skipped, so the next ones are read from their own start
+    @Test
+    public void testIteratorRecovers() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        var readers = List.of(
+                ProtobufReader.fromBytes(bytes),
+                ProtobufReader.fromBuffer(ByteBuffer.wrap(bytes)),
+                ProtobufReader.fromMemorySegment(MemorySegment.ofArray(bytes)),
+                ProtobufReader.fromStream(new ByteArrayInputStream(bytes), 64)
+        );
+        for (var reader : readers) {
+            var count = new int[1];
+            var iterator = reader.delimitedIterator(frame -> {
+                if (count[0]++ % 3 == 0) {
+                    if (!frame.isFinished()) {
+                        frame.readRawByte();
+                    }
+                    throw new IllegalStateException("Unexpected message");
+                }
+                return decode(frame);
+            });
+            var expected = new ArrayList<byte[]>();
+            var actual = new ArrayList<byte[]>();
+            for (var i = 0; iterator.hasNext(); i++) {
+                try {
+                    actual.add(iterator.next());
+                    expected.add(messages.get(i));
+                } catch (IllegalStateException _) {
+                    // Move on to the next frame
+                }
+            }
+            assertMessagesEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testStream() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        var actual = ProtobufReader.fromStream(new ByteArrayInputStream(bytes))
+                .delimitedStream(ProtobufDelimitedTest::decode)
+                .toList();
+        assertMessagesEquals(messages, actual);
+    }
+
+    @Test
+    public void testParallelStream() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        assertMessagesEquals(messages, ProtobufReader.delimitedStream(bytes, ProtobufDelimitedTest::decode).parallel().toList());
+        assertMessagesEquals(messages, ProtobufReader.delimitedStream(ByteBuffer.wrap(bytes), ProtobufDelimitedTest::decode).parallel().toList());
+    }
+
+    @Test
+    public void testReadParallel() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        assertMessagesEquals(messages, ProtobufReader.readDelimitedParallel(bytes, ProtobufDelimitedTest::decode));
+        try (var arena = Arena.ofShared(); var pool = new ForkJoinPool(3)) {
+            var segment = arena.allocate(bytes.length);
+            MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, 0, bytes.length);
+            assertMessagesEquals(messages, ProtobufReader.readDelimitedParallel(segment, ProtobufDelimitedTest::decode, pool));
+        }
+        Assertions.assertTrue(ProtobufReader.readDelimitedParallel(new byte[0], ProtobufDelimitedTest::decode).isEmpty());
+    }
+
+    @Test
+    public void testSplit() {
+        var messages = createMessages();
+        var bytes = writeDelimited(messages);
+        var spliterators = new ArrayList<Spliterator<byte[]>>();
+        spliterators.add(ProtobufReader.delimitedSpliterator(MemorySegment.ofArray(bytes), ProtobufDelimitedTest::decode));
+        // Split every half until it's no longer possible, each part must start on a frame
+        for (var i = 0; i < spliterators.size(); i++) {
+            var prefix = spliterators.get(i).trySplit();
+            if (prefix != null) {
+                spliterators.add(i, prefix);
+                i--;
+            }
+        }
+        Assertions.assertTrue(spliterators.size() > 1);
+        var actual = new ArrayList<byte[]>();
+        for (var spliterator : spliterators) {
+            spliterator.forEachRemaining(actual::add);
+        }
+        assertMessagesEquals(messages, actual);
+    }
+}
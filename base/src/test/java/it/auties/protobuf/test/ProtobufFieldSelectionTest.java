@@ -0,0 +1,134 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufFieldSelection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Mirrors the code generated for decode(ProtobufReader, ProtobufFieldSelection)
+public class ProtobufFieldSelectionTest {
+    private record Address(int zip, long number) {
+
+    }
+
+    private record Person(long id, int age, Address address, List<Long> ids) {
+
+    }
+
+    private static byte[] encode(Person person) {
+        var writer = ProtobufWriter.toGrowableBytes();
+        writer.writeUInt64Property(1, person.id());
+        writer.writeInt32Property(2, person.age());
+        var marker = writer.writeStartLengthDelimitedProperty(3);
+        writer.writeInt32Property(1, person.address().zip());
+        writer.writeInt64Property(2, person.address().number());
+        writer.writeEndLengthDelimitedProperty(marker);
+        for (var id : person.ids()) {
+            writer.writeInt64Property(4, id);
+        }
+        writer.writeFixed64Property(5000, 1L);
+        return writer.toOutput();
+    }
+
+    private static Address decodeAddress(ProtobufReader reader, ProtobufFieldSelection selection) {
+        var zip = 0;
+        var number = 0L;
+        while (reader.readPropertyTag()) {
+            var index = reader.propertyIndex();
+            if (!selection.contains(index)) {
+                reader.skipUnknownProperty();
+                continue;
+            }
+            switch ((int) index) {
+                case 1 -> zip = reader.readInt32Property();
+                case 2 -> number = reader.readInt64Property();
+                default -> reader.skipUnknownProperty();
+            }
+        }
+        return new Address(zip, number);
+    }
+
+    private static Person decodePerson(ProtobufReader reader, ProtobufFieldSelection selection) {
+        var id = 0L;
+        var age = 0;
+        Address address = null;
+        var ids = new ArrayList<Long>();
+        while (reader.readPropertyTag()) {
+            var index = reader.propertyIndex();
+            if (!selection.contains(index)) {
+                reader.skipUnknownProperty();
+                continue;
+            }
+            switch ((int) index) {
+                case 1 -> id = reader.readUInt64Property();
+                case 2 -> age = reader.readInt32Property();
+                case 3 -> {
+                    var limit = reader.pushLengthDelimitedPropertyLimit();
+                    address = decodeAddress(reader, selection.nested(3));
+                    reader.popLimit(limit);
+                }
+                case 4 -> ids.add(reader.readInt64Property());
+                default -> reader.skipUnknownProperty();
+            }
+        }
+        return new Person(id, age, address, ids);
+    }
+
+    private static Person person() {
+        return new Person(-1L, 23, new Address(100, 12_345_678_901L), List.of(1L, Long.MAX_VALUE, -1L));
+    }
+
+    @Test
+    public void testAll() {
+        var person = person();
+        var bytes = encode(person);
+        Assertions.assertEquals(person, decodePerson(ProtobufReader.fromBytes(bytes), ProtobufFieldSelection.all()));
+    }
+
+    @Test
+    public void testProjection() {
+        var bytes = encode(person());
+        var selection = ProtobufFieldSelection.of(2, 4);
+        var expected = new Person(0L, 23, null, List.of(1L, Long.MAX_VALUE, -1L));
+        Assertions.assertEquals(expected, decodePerson(ProtobufReader.fromBytes(bytes), selection));
+    }
+
+    @Test
+    public void testNestedProjection() {
+        var bytes = encode(person());
+        var selection = ProtobufFieldSelection.of(1)
+                .with(3, ProtobufFieldSelection.of(1));
+        var expected = new Person(-1L, 0, new Address(100, 0L), List.of());
+        Assertions.assertEquals(expected, decodePerson(ProtobufReader.fromBytes(bytes), selection));
+    }
+
+    @Test
+    public void testContains() {
+        var selection = ProtobufFieldSelection.of(1, 63, 64, 4095, 4096, 536_870_911);
+        for (var index : new long[]{1, 63, 64, 4095, 4096, 536_870_911}) {
+            Assertions.assertTrue(selection.contains(index), "index " + index);
+        }
+        for (var index : new long[]{2, 62, 65, 4094, 4097, 536_870_910}) {
+            Assertions.assertFalse(selection.contains(index), "index " + index);
+        }
+        Assertions.assertTrue(ProtobufFieldSelection.all().contains(123_456));
+        Assertions.assertFalse(ProtobufFieldSelection.of().contains(1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProtobufFieldSelection.of(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProtobufFieldSelection.of(536_870_912));
+    }
+
+    @Test
+    public void testNested() {
+        var nested = ProtobufFieldSelection.of(2);
+        var selection = ProtobufFieldSelection.of(1).with(3, nested);
+        Assertions.assertTrue(selection.contains(3));
+        Assertions.assertEquals(nested, selection.nested(3));
+        Assertions.assertEquals(ProtobufFieldSelection.all(), selection.nested(1));
+        Assertions.assertEquals(ProtobufFieldSelection.of(1, 3), selection.with(3));
+        Assertions.assertEquals(selection, ProtobufFieldSelection.of(3, 1).with(3, ProtobufFieldSelection.of(2)));
+    }
+}
@@ -0,0 +1,159 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.io.ProtobufIncrementalReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProtobufIncrementalReaderTest {
+    private static void writeVarInt(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    // Field 2 is decoded as an embedded message, field 3 is received as raw bytes
+    private static byte[] createMessage() {
+        var nested = new ByteArrayOutputStream();
+        writeVarInt(nested, 1 << 3);
+        writeVarInt(nested, Long.MIN_VALUE);
+        writeVarInt(nested, (2 << 3) | 5);
+        nested.writeBytes(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(-7).array());
+        writeVarInt(nested, (4 << 3) | 2);
+        writeVarInt(nested, 0);
+
+        var message = new ByteArrayOutputStream();
+        writeVarInt(message, 1 << 3);
+        writeVarInt(message, 300);
+        writeVarInt(message, (2 << 3) | 2);
+        writeVarInt(message, nested.size());
+        message.writeBytes(nested.toByteArray());
+        writeVarInt(message, (3 << 3) | 2);
+        writeVarInt(message, 200);
+        for (var i = 0; i < 200; i++) {
+            message.write(i);
+        }
+        writeVarInt(message, (5 << 3) | 3);
+        writeVarInt(message, (6 << 3) | 1);
+        message.writeBytes(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(Long.MAX_VALUE).array());
+        writeVarInt(message, (5 << 3) | 4);
+        return message.toByteArray();
+    }
+
+    private static final class RecordingListener implements ProtobufIncrementalReader.Listener {
+        private final List<String> events = new ArrayList<>();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        @Override
+        public void onVarInt(long index, long value) {
+            events.add(index + ":varint:" + value);
+        }
+
+        @Override
+        public void onFixed32(long index, int value) {
+            events.add(index + ":fixed32:" + value);
+        }
+
+        @Override
+        public void onFixed64(long index, long value) {
+            events.add(index + ":fixed64:" + value);
+        }
+
+        @Override
+        public boolean onLengthDelimitedStart(long index, int length) {
+            events.add(index + ":start:" + length);
+            return index != 3;
+        }
+
+        @Override
+        public void onLengthDelimitedData(long index, ByteBuffer chunk) {
+            while (chunk.hasRemaining()) {
+                data.write(chunk.get());
+            }
+        }
+
+        @Override
+        public void onLengthDelimitedEnd(long index) {
+            events.add(index + ":end");
+        }
+
+        @Override
+        public void onStartGroup(long index) {
+            events.add(index + ":group");
+        }
+
+        @Override
+        public void onEndGroup(long index) {
+            events.add(index + ":endgroup");
+        }
+    }
+
+    @Test
+    public void testChunks() {
+        var message = createMessage();
+        var expected = List.of(
+                "1:varint:300",
+                "2:start:18",
+                "1:varint:" + Long.MIN_VALUE,
+                "2:fixed32:-7",
+                "4:start:0",
+                "4:end",
+                "2:end",
+                "3:start:200",
+                "3:end",
+                "5:group",
+                "6:fixed64:" + Long.MAX_VALUE,
+                "5:endgroup"
+        );
+        var expectedData = new byte[200];
+        for (var i = 0; i < expectedData.length; i++) {
+            expectedData[i] = (byte) i;
+        }
+
+        // Every chunk size cuts the fields at different points
+        for (var chunkSize = 1; chunkSize <= message.length; chunkSize++) {
+            var listener = new RecordingListener();
+            var reader = new ProtobufIncrementalReader(listener);
+            for (var offset = 0; offset < message.length; offset += chunkSize) {
+                reader.feed(ByteBuffer.wrap(message, offset, Math.min(chunkSize, message.length - offset)));
+            }
+            reader.finish();
+            Assertions.assertEquals(expected, listener.events, "chunk size " + chunkSize);
+            Assertions.assertArrayEquals(expectedData, listener.data.toByteArray(), "chunk size " + chunkSize);
+            Assertions.assertEquals(message.length, reader.position());
+        }
+    }
+
+    @Test
+    public void testTruncated() {
+        var message = createMessage();
+        for (var length = 1; length < message.length; length++) {
+            var listener = new RecordingListener();
+            var reader = new ProtobufIncrementalReader(listener);
+            reader.feed(ByteBuffer.wrap(message, 0, length));
+            if (!reader.isAtFieldBoundary()) {
+                Assertions.assertThrows(ProtobufDeserializationException.class, reader::finish, "length " + length);
+            }
+        }
+    }
+
+    @Test
+    public void testOverrunningEmbeddedMessage() {
+        // The embedded message declares two bytes but its only field takes three
+        var message = new ByteArrayOutputStream();
+        writeVarInt(message, (1 << 3) | 2);
+        writeVarInt(message, 2);
+        writeVarInt(message, 1 << 3);
+        writeVarInt(message, 300);
+        var reader = new ProtobufIncrementalReader(new RecordingListener());
+        Assertions.assertThrows(ProtobufDeserializationException.class, () -> reader.feed(ByteBuffer.wrap(message.toByteArray())));
+    }
+}
@@ -0,0 +1,119 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufLazy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mirrors the code generated for a message with a header and a ProtobufLazy<Payload> property
+public class ProtobufLazyTest {
+    private record Payload(long id, List<Integer> values) {
+
+    }
+
+    private record Envelope(int header, ProtobufLazy<Payload> payload) {
+
+    }
+
+    private static void encodePayload(Payload payload, ProtobufWriter<?> writer) {
+        writer.writeInt64Property(1, payload.id());
+        for (var value : payload.values()) {
+            writer.writeSInt32Property(2, value);
+        }
+    }
+
+    private static Payload decodePayload(ProtobufReader reader) {
+        var id = 0L;
+        var values = new ArrayList<Integer>();
+        while (reader.readPropertyTag()) {
+            switch ((int) reader.propertyIndex()) {
+                case 1 -> id = reader.readInt64Property();
+                case 2 -> values.add(reader.readSInt32Property());
+                default -> reader.skipUnknownProperty();
+            }
+        }
+        return new Payload(id, values);
+    }
+
+    private static byte[] encode(Envelope envelope) {
+        var writer = ProtobufWriter.toGrowableBytes();
+        writer.writeInt32Property(1, envelope.header());
+        var payload = envelope.payload();
+        if (!payload.isDecoded()) {
+            payload.writeTo(2, writer);
+        } else {
+            var marker = writer.writeStartLengthDelimitedProperty(2);
+            encodePayload(payload.get(), writer);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+        return writer.toOutput();
+    }
+
+    private static Envelope decode(byte[] bytes, AtomicInteger decodes) {
+        var reader = ProtobufReader.fromBytes(bytes);
+        var header = 0;
+        ProtobufLazy<Payload> payload = null;
+        while (reader.readPropertyTag()) {
+            switch ((int) reader.propertyIndex()) {
+                case 1 -> header = reader.readInt32Property();
+                case 2 -> payload = ProtobufLazy.from(reader, source -> {
+                    decodes.incrementAndGet();
+                    return decodePayload(source);
+                });
+                default -> reader.skipUnknownProperty();
+            }
+        }
+        return new Envelope(header, payload);
+    }
+
+    private static Payload payload() {
+        var values = new ArrayList<Integer>();
+        for (var i = -500; i < 500; i++) {
+            values.add(i * 31);
+        }
+        return new Payload(Long.MAX_VALUE, values);
+    }
+
+    @Test
+    public void testDecodedOnFirstAccess() {
+        var expected = new Envelope(7, ProtobufLazy.of(payload()));
+        var decodes = new AtomicInteger();
+        var envelope = decode(encode(expected), decodes);
+        Assertions.assertEquals(7, envelope.header());
+        Assertions.assertFalse(envelope.payload().isDecoded());
+        Assertions.assertEquals(0, decodes.get());
+        Assertions.assertEquals(expected.payload().get(), envelope.payload().get());
+        Assertions.assertTrue(envelope.payload().isDecoded());
+        envelope.payload().get();
+        Assertions.assertEquals(1, decodes.get());
+    }
+
+    @Test
+    public void testForwardedUnchanged() {
+        var bytes = encode(new Envelope(7, ProtobufLazy.of(payload())));
+        var decodes = new AtomicInteger();
+        var envelope = decode(bytes, decodes);
+        Assertions.assertArrayEquals(bytes, encode(envelope));
+        Assertions.assertEquals(0, decodes.get());
+
+        var reverse = ProtobufReverseWriter.toBytes();
+        envelope.payload().writeTo(2, reverse);
+        reverse.writeInt32Property(1, envelope.header());
+        Assertions.assertArrayEquals(bytes, reverse.toOutput());
+        Assertions.assertEquals(0, decodes.get());
+    }
+
+    @Test
+    public void testCreatedFromValue() {
+        var lazy = ProtobufLazy.of(payload());
+        Assertions.assertTrue(lazy.isDecoded());
+        Assertions.assertThrows(IllegalStateException.class, lazy::encodedLength);
+        Assertions.assertThrows(IllegalStateException.class, () -> lazy.writeTo(1, ProtobufWriter.toGrowableBytes()));
+    }
+}
@@ -0,0 +1,107 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufRawUnknownFields;
+import it.auties.protobuf.model.ProtobufWireType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+// Mirrors the code generated for a message with a known property and a ProtobufRawUnknownFields store
+public class ProtobufRawUnknownFieldsTest {
+    private record Message(int id, ProtobufRawUnknownFields unknownFields) {
+
+    }
+
+    // Every wire type, including a group that contains an embedded message
+    private static byte[] encodeWithUnknownFields() {
+        var writer = ProtobufWriter.toGrowableBytes();
+        writer.writeInt32Property(1, 42);
+        writer.writeInt64Property(2, -1L);
+        writer.writeFixed32Property(3, 0xCAFEBABE);
+        writer.writeFixed64Property(4, Long.MIN_VALUE);
+        writer.writePropertyTag(5, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        var text = "a value that isn't in the model".getBytes(StandardCharsets.UTF_8);
+        writer.writeLengthDelimitedPropertyLength(text.length);
+        writer.writeRawBytes(text);
+        writer.writeStartGroupProperty(6);
+        writer.writeSInt32Property(1, -7);
+        var marker = writer.writeStartLengthDelimitedProperty(2);
+        writer.writeUInt64Property(1, Long.MAX_VALUE);
+        writer.writeEndLengthDelimitedProperty(marker);
+        writer.writeEndGroupProperty(6);
+        writer.writeInt32Property(1_000_000, 1);
+        return writer.toOutput();
+    }
+
+    private static Message decode(ProtobufReader reader) {
+        var id = 0;
+        var unknownFields = new ProtobufRawUnknownFields();
+        while (reader.readPropertyTag()) {
+            switch ((int) reader.propertyIndex()) {
+                case 1 -> id = reader.readInt32Property();
+                default -> unknownFields.readProperty(reader);
+            }
+        }
+        return new Message(id, unknownFields);
+    }
+
+    private static byte[] encode(Message message) {
+        var writer = ProtobufWriter.toGrowableBytes();
+        writer.writeInt32Property(1, message.id());
+        message.unknownFields().writeTo(writer);
+        return writer.toOutput();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        var bytes = encodeWithUnknownFields();
+        var message = decode(ProtobufReader.fromBytes(bytes));
+        Assertions.assertEquals(42, message.id());
+        Assertions.assertArrayEquals(bytes, encode(message));
+    }
+
+    @Test
+    public void testRoundTripReversed() {
+        var bytes = encodeWithUnknownFields();
+        var message = decode(ProtobufReader.fromBytes(bytes));
+        var writer = ProtobufReverseWriter.toBytes();
+        message.unknownFields().writeTo(writer);
+        writer.writeInt32Property(1, message.id());
+        Assertions.assertArrayEquals(bytes, writer.toOutput());
+    }
+
+    @Test
+    public void testCopiedFromInput() {
+        var bytes = encodeWithUnknownFields();
+        try (var arena = Arena.ofConfined()) {
+            var segment = arena.allocate(bytes.length);
+            MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, 0, bytes.length);
+            var message = decode(ProtobufReader.fromMemorySegment(segment));
+            segment.fill((byte) 0);
+            Assertions.assertArrayEquals(bytes, encode(message));
+        }
+    }
+
+    @Test
+    public void testDecodedValues() {
+        var bytes = encodeWithUnknownFields();
+        var expected = decode(ProtobufReader.fromBytes(bytes)).unknownFields();
+        var reader = ProtobufReader.fromBytes(bytes);
+        var actual = new ProtobufRawUnknownFields();
+        while (reader.readPropertyTag()) {
+            switch ((int) reader.propertyIndex()) {
+                case 1 -> reader.readInt32Property();
+                default -> actual.addProperty(reader.propertyIndex(), reader.readUnknownProperty());
+            }
+        }
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> actual.addProperty(1, "value"));
+    }
+}
@@ -0,0 +1,557 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.model.ProtobufUnknownValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ProtobufReaderTest {
+    private static final long[] VALUES = {
+            0, 1, 127, 128, 300, 16_383, 16_384, 2_097_151, 2_097_152,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, -1, 1L << 35, 1L << 49, 1L << 56, 1L << 63,
+            Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+    // Encodes var ints without going through ProtobufWriter so that the reader is tested in isolation
+    private static byte[] encodeVarInts(long... values) {
+        var output = new ByteArrayOutputStream();
+        for (var value : values) {
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+        return output.toByteArray();
+    }
+
+    // Prefixes the encoded values with their length, like a packed field on the wire
+    private static byte[] encodePackedVarInts(long... values) {
+        var payload = encodeVarInts(values);
+        var length = encodeVarInts(payload.length);
+        var result = new byte[length.length + payload.length];
+        System.arraycopy(length, 0, result, 0, length.length);
+        System.arraycopy(payload, 0, result, length.length, payload.length);
+        return result;
+    }
+
+    // Every distribution exercises a different path of the vectorized decoder
+    private static List<long[]> packedValues() {
+        var random = new Random(0);
+        var singleBytes = new long[1024];
+        var shortValues = new long[1024];
+        var mixedValues = new long[1024];
+        var smallSigned = new long[1024];
+        for (var i = 0; i < 1024; i++) {
+            singleBytes[i] = random.nextInt(128);
+            smallSigned[i] = random.nextInt(128) - 64;
+            shortValues[i] = random.nextInt(1 << 21);
+            mixedValues[i] = random.nextLong() >>> random.nextInt(64);
+        }
+        return List.of(new long[0], VALUES, singleBytes, shortValues, mixedValues, smallSigned);
+    }
+
+    private static List<ProtobufReader> readers(byte[] bytes) {
+        var directBuffer = ByteBuffer.allocateDirect(bytes.length);
+        directBuffer.put(bytes);
+        directBuffer.flip();
+        var nativeSegment = Arena.ofAuto().allocate(bytes.length);
+        MemorySegment.copy(bytes, 0, nativeSegment, ValueLayout.JAVA_BYTE, 0, bytes.length);
+        return List.of(
+                ProtobufReader.fromBytes(bytes),
+                ProtobufReader.fromBuffer(ByteBuffer.wrap(bytes)),
+                ProtobufReader.fromBuffer(directBuffer),
+                ProtobufReader.fromMemorySegment(MemorySegment.ofArray(bytes)),
+                ProtobufReader.fromMemorySegment(nativeSegment),
+                ProtobufReader.fromStream(new ByteArrayInputStream(bytes)),
+                ProtobufReader.fromStream(new ByteArrayInputStream(bytes), 16),
+                ProtobufReader.fromStream(new TrickleInputStream(bytes), 16)
+        );
+    }
+
+    // Returns a single byte for every read, like a slow socket would
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+        private TrickleInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+
+        @Override
+        public synchronized long skip(long n) {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testVarInt64() {
+        for (var reader : readers(encodeVarInts(VALUES))) {
+            for (var value : VALUES) {
+                Assertions.assertEquals(value, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+            }
+            Assertions.assertTrue(reader.isFinished());
+        }
+    }
+
+    @Test
+    public void testVarInt32() {
+        for (var reader : readers(encodeVarInts(VALUES))) {
+            for (var value : VALUES) {
+                Assertions.assertEquals((int) value, reader.readRawVarInt32(), reader.getClass().getSimpleName());
+            }
+            Assertions.assertTrue(reader.isFinished());
+        }
+    }
+
+    @Test
+    public void testVarIntAtEnd() {
+        // Every value is the last one in its source, so only the tail path can decode it
+        for (var value : VALUES) {
+            for (var reader : readers(encodeVarInts(value))) {
+                Assertions.assertEquals(value, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomVarInts() {
+        var random = new Random(0);
+        var values = new long[4096];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >>> random.nextInt(64);
+        }
+        for (var reader : readers(encodeVarInts(values))) {
+            for (var value : values) {
+                Assertions.assertEquals(value, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+            }
+            Assertions.assertTrue(reader.isFinished());
+        }
+    }
+
+    @Test
+    public void testTruncatedVarInt() {
+        var truncated = new byte[]{(byte) 0x80, (byte) 0x80};
+        for (var reader : readers(truncated)) {
+            Assertions.assertThrows(ProtobufDeserializationException.class, reader::readRawVarInt64, reader.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testPackedVarInt64() {
+        for (var values : packedValues()) {
+            for (var reader : readers(encodePackedVarInts(values))) {
+                Assertions.assertArrayEquals(values, reader.readRawPackedVarInt64(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    @Test
+    public void testPackedVarInt32() {
+        for (var values : packedValues()) {
+            var expected = new int[values.length];
+            for (var i = 0; i < values.length; i++) {
+                expected[i] = (int) values[i];
+            }
+            for (var reader : readers(encodePackedVarInts(values))) {
+                Assertions.assertArrayEquals(expected, reader.readRawPackedVarInt32(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    @Test
+    public void testPackedZigZagVarInt64() {
+        for (var values : packedValues()) {
+            var encoded = new long[values.length];
+            for (var i = 0; i < values.length; i++) {
+                encoded[i] = (values[i] << 1) ^ (values[i] >> 63);
+            }
+            for (var reader : readers(encodePackedVarInts(encoded))) {
+                Assertions.assertArrayEquals(values, reader.readRawPackedZigZagVarInt64(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    @Test
+    public void testPackedZigZagVarInt32() {
+        for (var values : packedValues()) {
+            var expected = new int[values.length];
+            var encoded = new long[values.length];
+            for (var i = 0; i < values.length; i++) {
+                expected[i] = (int) values[i];
+                encoded[i] = Integer.toUnsignedLong((expected[i] << 1) ^ (expected[i] >> 31));
+            }
+            for (var reader : readers(encodePackedVarInts(encoded))) {
+                Assertions.assertArrayEquals(expected, reader.readRawPackedZigZagVarInt32(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    @Test
+    public void testPackedBool() {
+        for (var values : packedValues()) {
+            var expected = new boolean[values.length];
+            for (var i = 0; i < values.length; i++) {
+                expected[i] = values[i] != 0;
+            }
+            for (var reader : readers(encodePackedVarInts(values))) {
+                Assertions.assertArrayEquals(expected, reader.readRawPackedBool(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    // Fixed values are copied in bulk, one length prefixed run per type
+    @Test
+    public void testPackedFixed() {
+        var random = new Random(0);
+        for (var length : new int[]{0, 1, 1000}) {
+            var longs = random.longs(length).toArray();
+            var ints = random.ints(length).toArray();
+            var doubles = random.doubles(length).toArray();
+            var floats = new float[length];
+            for (var i = 0; i < length; i++) {
+                floats[i] = random.nextFloat();
+            }
+
+            var output = new ByteArrayOutputStream();
+            var payload = ByteBuffer.allocate(length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asLongBuffer().put(longs);
+            output.writeBytes(encodeVarInts(payload.capacity()));
+            output.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asIntBuffer().put(ints);
+            output.writeBytes(encodeVarInts(payload.capacity()));
+            output.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asDoubleBuffer().put(doubles);
+            output.writeBytes(encodeVarInts(payload.capacity()));
+            output.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asFloatBuffer().put(floats);
+            output.writeBytes(encodeVarInts(payload.capacity()));
+            output.writeBytes(payload.array());
+            for (var reader : readers(output.toByteArray())) {
+                var name = reader.getClass().getSimpleName();
+                Assertions.assertArrayEquals(longs, reader.readRawPackedFixedInt64(), name);
+                Assertions.assertArrayEquals(ints, reader.readRawPackedFixedInt32(), name);
+                Assertions.assertArrayEquals(doubles, reader.readRawPackedDouble(), name);
+                Assertions.assertArrayEquals(floats, reader.readRawPackedFloat(), name);
+                Assertions.assertTrue(reader.isFinished(), name);
+            }
+        }
+    }
+
+    @Test
+    public void testMisalignedPackedFixed() {
+        var bytes = new byte[]{6, 1, 2, 3, 4, 5, 6};
+        for (var reader : readers(bytes)) {
+            Assertions.assertThrows(ProtobufDeserializationException.class, reader::readRawPackedFixedInt32, reader.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testTruncatedPackedVarInt() {
+        var payload = encodeVarInts(VALUES);
+        var truncated = new byte[payload.length + 1];
+        truncated[0] = (byte) payload.length;
+        System.arraycopy(payload, 0, truncated, 1, payload.length);
+        truncated[truncated.length - 1] |= (byte) 0x80;
+        for (var reader : readers(truncated)) {
+            Assertions.assertThrows(ProtobufDeserializationException.class, reader::readRawPackedVarInt64, reader.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testLengthDelimited() {
+        // Nested messages both smaller and larger than the stream buffer
+        for (var size : new int[]{4, 100}) {
+            var payload = new long[size];
+            for (var i = 0; i < size; i++) {
+                payload[i] = i;
+            }
+            var nested = encodeVarInts(payload);
+            var message = new ByteArrayOutputStream();
+            message.writeBytes(encodeVarInts(nested.length));
+            message.writeBytes(nested);
+            message.writeBytes(encodeVarInts(Long.MAX_VALUE));
+            for (var reader : readers(message.toByteArray())) {
+                var child = reader.readRawLengthDelimited(reader.readRawVarInt32());
+                for (var value : payload) {
+                    Assertions.assertEquals(value, child.readRawVarInt64(), reader.getClass().getSimpleName());
+                }
+                Assertions.assertTrue(child.isFinished());
+                Assertions.assertEquals(Long.MAX_VALUE, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        }
+    }
+
+    // A nested message larger than the stream buffer that isn't read completely is skipped by the next read of its parent
+    @Test
+    public void testAbandonedLengthDelimited() {
+        var payload = new long[100];
+        for (var i = 0; i < payload.length; i++) {
+            payload[i] = i;
+        }
+        var nested = encodeVarInts(payload);
+        var outer = new ByteArrayOutputStream();
+        outer.writeBytes(encodeVarInts(nested.length));
+        outer.writeBytes(nested);
+        var message = new ByteArrayOutputStream();
+        message.writeBytes(encodeVarInts(outer.size()));
+        message.writeBytes(outer.toByteArray());
+        message.writeBytes(encodeVarInts(Long.MAX_VALUE));
+        for (var reader : readers(message.toByteArray())) {
+            var child = reader.readRawLengthDelimited(reader.readRawVarInt32());
+            var grandchild = child.readRawLengthDelimited(child.readRawVarInt32());
+            Assertions.assertEquals(0, grandchild.readRawVarInt64(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(1, grandchild.readRawVarInt64(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(Long.MAX_VALUE, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+            Assertions.assertTrue(reader.isFinished(), reader.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testLimits() {
+        // Field 1 holds a message whose field 2 holds another message, followed by a field 3 var int
+        var inner = new ByteArrayOutputStream();
+        inner.writeBytes(encodeVarInts(1 << 3, 300, 2 << 3, Long.MAX_VALUE));
+        var middle = new ByteArrayOutputStream();
+        middle.writeBytes(encodeVarInts(1 << 3, 7, (2 << 3) | 2, inner.size()));
+        middle.writeBytes(inner.toByteArray());
+        var message = new ByteArrayOutputStream();
+        message.writeBytes(encodeVarInts((1 << 3) | 2, middle.size()));
+        message.writeBytes(middle.toByteArray());
+        message.writeBytes(encodeVarInts(3 << 3, 42));
+        for (var reader : readers(message.toByteArray())) {
+            var name = reader.getClass().getSimpleName();
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            var middleLimit = reader.pushLengthDelimitedPropertyLimit();
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            Assertions.assertEquals(7, reader.readInt64Property(), name);
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            var innerLimit = reader.pushLengthDelimitedPropertyLimit();
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            Assertions.assertEquals(300, reader.readInt64Property(), name);
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            Assertions.assertEquals(Long.MAX_VALUE, reader.readInt64Property(), name);
+            Assertions.assertFalse(reader.readPropertyTag(), name);
+            reader.popLimit(innerLimit);
+            Assertions.assertFalse(reader.readPropertyTag(), name);
+            reader.popLimit(middleLimit);
+            Assertions.assertTrue(reader.readPropertyTag(), name);
+            Assertions.assertEquals(3, reader.propertyIndex(), name);
+            Assertions.assertEquals(42, reader.readInt64Property(), name);
+            Assertions.assertFalse(reader.readPropertyTag(), name);
+        }
+    }
+
+    @Test
+    public void testPartiallyReadLimit() {
+        // Popping a limit skips whatever the nested message didn't read
+        var nested = encodeVarInts(VALUES);
+        var message = new ByteArrayOutputStream();
+        message.writeBytes(encodeVarInts(nested.length));
+        message.writeBytes(nested);
+        message.writeBytes(encodeVarInts(300));
+        for (var reader : readers(message.toByteArray())) {
+            var limit = reader.pushLimit(reader.readRawVarInt32());
+            Assertions.assertEquals(VALUES[0], reader.readRawVarInt64(), reader.getClass().getSimpleName());
+            Assertions.assertFalse(reader.isFinished(), reader.getClass().getSimpleName());
+            reader.popLimit(limit);
+            Assertions.assertEquals(300, reader.readRawVarInt64(), reader.getClass().getSimpleName());
+            Assertions.assertTrue(reader.isFinished(), reader.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testTruncatedLimit() {
+        var message = encodeVarInts(100, 1, 2, 3);
+        for (var reader : readers(message)) {
+            var size = reader.readRawVarInt32();
+            var limit = reader.pushLimit(1);
+            Assertions.assertThrows(ProtobufDeserializationException.class, () -> reader.pushLimit(size), reader.getClass().getSimpleName());
+            reader.popLimit(limit);
+        }
+    }
+
+    @Test
+    public void testFromFile() throws Exception {
+        var values = encodeVarInts(VALUES);
+        var message = new ByteArrayOutputStream();
+        message.writeBytes(values);
+        message.writeBytes(encodePackedVarInts(VALUES));
+        var file = Files.createTempFile("protobuf", ".bin");
+        try {
+            Files.write(file, message.toByteArray());
+            try (var reader = ProtobufReader.fromFile(file)) {
+                for (var value : VALUES) {
+                    Assertions.assertEquals(value, reader.readRawVarInt64());
+                }
+                var length = reader.readRawVarInt32();
+                var slice = reader.readRawMemorySegment(length);
+                Assertions.assertArrayEquals(values, slice.toArray(ValueLayout.JAVA_BYTE));
+                Assertions.assertTrue(reader.isFinished());
+            }
+
+            try (var arena = Arena.ofConfined()) {
+                var reader = ProtobufReader.fromFile(file, arena);
+                reader.skipRawBytes(values.length);
+                Assertions.assertArrayEquals(VALUES, reader.readRawPackedVarInt64());
+                Assertions.assertTrue(reader.isFinished());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFixedAndSkip() {
+        var message = new byte[64];
+        for (var i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+        var buffer = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+        for (var reader : readers(message)) {
+            reader.skipRawBytes(13);
+            Assertions.assertEquals(buffer.getLong(13), reader.readRawFixedInt64(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(buffer.getInt(21), reader.readRawFixedInt32(), reader.getClass().getSimpleName());
+            reader.skipRawBytes(30);
+            Assertions.assertEquals(message[55], reader.readRawByte(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(buffer.getLong(56), reader.readRawFixedInt64(), reader.getClass().getSimpleName());
+            Assertions.assertTrue(reader.isFinished());
+        }
+    }
+
+    @Test
+    public void testUnknownGroup() {
+        var message = new byte[]{
+                27, // Start of group 3
+                8, 5, // Property 1
+                21, 1, 0, 0, 0, // Property 2
+                8, 7, // Property 1 again
+                35, 8, 9, 36, // Group 4 with property 1
+                28, // End of group 3
+                16, 1 // Property 2 after the group
+        };
+        var expected = new ProtobufUnknownValue.Group(
+                new long[]{1, 2, 1, 4},
+                new ProtobufUnknownValue[]{
+                        new ProtobufUnknownValue.VarInt(5),
+                        new ProtobufUnknownValue.Fixed32(1),
+                        new ProtobufUnknownValue.VarInt(7),
+                        new ProtobufUnknownValue.Group(new long[]{1}, new ProtobufUnknownValue[]{new ProtobufUnknownValue.VarInt(9)})
+                }
+        );
+        for (var reader : readers(message)) {
+            Assertions.assertTrue(reader.readPropertyTag());
+            var group = Assertions.assertInstanceOf(ProtobufUnknownValue.Group.class, reader.readUnknownProperty());
+            Assertions.assertEquals(expected, group, reader.getClass().getSimpleName());
+            Assertions.assertEquals(4, group.size());
+            Assertions.assertEquals(new ProtobufUnknownValue.VarInt(7), group.get(1));
+            Assertions.assertNull(group.get(3));
+            Assertions.assertTrue(reader.readPropertyTag());
+            Assertions.assertEquals(new ProtobufUnknownValue.VarInt(1), reader.readUnknownProperty());
+            Assertions.assertFalse(reader.readPropertyTag());
+        }
+        for (var reader : readers(message)) {
+            Assertions.assertTrue(reader.readPropertyTag());
+            reader.skipUnknownProperty();
+            Assertions.assertTrue(reader.readPropertyTag());
+            Assertions.assertEquals(1, reader.readInt32Property());
+            Assertions.assertFalse(reader.readPropertyTag());
+        }
+
+        // An empty group and a group that fills its arrays exactly
+        var full = new ByteArrayOutputStream();
+        full.writeBytes(new byte[]{27, 28, 27});
+        for (var i = 0; i < 8; i++) {
+            full.writeBytes(new byte[]{8, (byte) i});
+        }
+        full.write(28);
+        for (var reader : readers(full.toByteArray())) {
+            Assertions.assertTrue(reader.readPropertyTag());
+            var empty = Assertions.assertInstanceOf(ProtobufUnknownValue.Group.class, reader.readUnknownProperty());
+            Assertions.assertEquals(0, empty.size(), reader.getClass().getSimpleName());
+            Assertions.assertTrue(reader.readPropertyTag());
+            var group = Assertions.assertInstanceOf(ProtobufUnknownValue.Group.class, reader.readUnknownProperty());
+            Assertions.assertEquals(8, group.size(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(new ProtobufUnknownValue.VarInt(7), group.get(1));
+            Assertions.assertFalse(reader.readPropertyTag());
+        }
+    }
+
+    // A single reader decodes every message from the same pooled buffer
+    @Test
+    public void testReset() {
+        var first = new byte[]{16, 5};
+        var second = new byte[]{8, (byte) 172, 2};
+        var padded = new byte[second.length + 4];
+        System.arraycopy(second, 0, padded, 2, second.length);
+        for (var reader : List.of(ProtobufReader.fromBytes(first), ProtobufReader.fromBuffer(ByteBuffer.wrap(first)), ProtobufReader.fromMemorySegment(MemorySegment.ofArray(first)))) {
+            // The tag of the first message is discarded without reading its value
+            Assertions.assertTrue(reader.readPropertyTag(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(2, reader.propertyIndex());
+            switch (reader.getClass().getSimpleName()) {
+                case "ByteArrayReader" -> reader.reset(padded, 2, second.length);
+                case "ByteBufferReader" -> reader.reset(ByteBuffer.wrap(padded, 2, second.length));
+                default -> reader.reset(MemorySegment.ofArray(padded).asSlice(2, second.length));
+            }
+            Assertions.assertTrue(reader.readPropertyTag(), reader.getClass().getSimpleName());
+            Assertions.assertEquals(1, reader.propertyIndex());
+            Assertions.assertEquals(300, reader.readInt32Property(), reader.getClass().getSimpleName());
+            Assertions.assertFalse(reader.readPropertyTag(), reader.getClass().getSimpleName());
+        }
+
+        var stream = ProtobufReader.fromStream(new ByteArrayInputStream(first));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> stream.reset(first, 0, first.length));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ProtobufReader.fromBytes(first).reset(first, 1, first.length));
+    }
+
+    @Test
+    public void testDecodePooled() throws Exception {
+        var message = new byte[]{8, (byte) 172, 2};
+        var readers = new ArrayList<ProtobufReader>();
+        for (var i = 0; i < 4; i++) {
+            var value = ProtobufReader.decodePooled(message, 0, message.length, reader -> {
+                readers.add(reader);
+                Assertions.assertTrue(reader.readPropertyTag());
+                return reader.readInt32Property();
+            });
+            Assertions.assertEquals(300, value);
+        }
+        Assertions.assertTrue(readers.stream().allMatch(reader -> reader == readers.getFirst()));
+
+        // A nested decode can't take the reader that is already in use
+        var nested = ProtobufReader.decodePooled(message, 0, message.length, outer ->
+                ProtobufReader.decodePooled(message, 1, 2, inner -> {
+                    Assertions.assertNotSame(outer, inner);
+                    return inner.readRawVarInt32();
+                }));
+        Assertions.assertEquals(300, nested);
+
+        var virtual = Thread.ofVirtual().start(() -> Assertions.assertNotSame(readers.getFirst(), ProtobufReader.decodePooled(message, 0, message.length, reader -> reader)));
+        virtual.join();
+    }
+}
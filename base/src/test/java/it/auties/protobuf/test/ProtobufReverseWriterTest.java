@@ -0,0 +1,114 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufWireType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ProtobufReverseWriterTest {
+    private static final long[] VALUES = {
+            0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, 0xFFFFFFFFL,
+            1L << 48, (1L << 56) - 1, 1L << 56, (1L << 63) - 1, Long.MIN_VALUE, -1, -300
+    };
+
+    // The same properties, in the reverse order for the reverse writer
+    @Test
+    public void testProperties() {
+        var reverse = ProtobufReverseWriter.toBytes(1);
+        for (var i = VALUES.length - 1; i >= 0; i--) {
+            reverse.writeBoolProperty(i + 1, VALUES[i] > 0);
+            reverse.writeFloatProperty(i + 1, (float) VALUES[i]);
+            reverse.writeFixed64Property(i + 1, VALUES[i]);
+            reverse.writeSInt32Property(i + 1, (int) VALUES[i]);
+            reverse.writeInt64Property(i + 1, VALUES[i]);
+        }
+        var forward = ProtobufWriter.toBytes(reverse.size());
+        for (var i = 0; i < VALUES.length; i++) {
+            forward.writeInt64Property(i + 1, VALUES[i]);
+            forward.writeSInt32Property(i + 1, (int) VALUES[i]);
+            forward.writeFixed64Property(i + 1, VALUES[i]);
+            forward.writeFloatProperty(i + 1, (float) VALUES[i]);
+            forward.writeBoolProperty(i + 1, VALUES[i] > 0);
+        }
+        var expected = forward.toOutput();
+        Assertions.assertArrayEquals(expected, reverse.toOutput());
+        Assertions.assertEquals(ByteBuffer.wrap(expected), reverse.toBuffer());
+    }
+
+    @Test
+    public void testPacked() {
+        var random = new Random(0);
+        var values = new long[1024];
+        var signedValues = new int[1024];
+        var doubles = new double[100];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >> random.nextInt(64);
+            signedValues[i] = random.nextInt() >> random.nextInt(32);
+        }
+        for (var i = 0; i < doubles.length; i++) {
+            doubles[i] = random.nextDouble();
+        }
+
+        var reverse = ProtobufReverseWriter.toBytes();
+        reverse.writePackedFixed32Property(4, signedValues);
+        reverse.writePackedDoubleProperty(3, doubles);
+        reverse.writePackedSInt32Property(2, signedValues);
+        reverse.writePackedInt64Property(1, values);
+        var forward = ProtobufWriter.toBytes(reverse.size());
+        forward.writePackedInt64Property(1, values);
+        forward.writePackedSInt32Property(2, signedValues);
+        forward.writePackedDoubleProperty(3, doubles);
+        forward.writePackedFixed32Property(4, signedValues);
+        Assertions.assertArrayEquals(forward.toOutput(), reverse.toOutput());
+    }
+
+    private static byte[] nestedPayload(int depth) {
+        var payload = new byte[(depth * 37) % 3 == 0 ? depth * 4099 : depth];
+        Arrays.fill(payload, (byte) depth);
+        return payload;
+    }
+
+    private static void writeNested(ProtobufWriter<?> writer, int depth) {
+        writer.writeInt32Property(1, depth);
+        if (depth > 0) {
+            var marker = writer.writeStartLengthDelimitedProperty(2);
+            writeNested(writer, depth - 1);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+        writer.writeStartGroupProperty(3);
+        writer.writePropertyTag(4, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(nestedPayload(depth).length);
+        writer.writeRawBytes(nestedPayload(depth));
+        writer.writeEndGroupProperty(3);
+    }
+
+    private static void writeNested(ProtobufReverseWriter writer, int depth) {
+        writer.writeEndGroupProperty(3);
+        writer.writeRawBytes(nestedPayload(depth));
+        writer.writeLengthDelimitedPropertyLength(nestedPayload(depth).length);
+        writer.writePropertyTag(4, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeStartGroupProperty(3);
+        if (depth > 0) {
+            var marker = writer.writeStartLengthDelimitedProperty();
+            writeNested(writer, depth - 1);
+            writer.writeEndLengthDelimitedProperty(2, marker);
+        }
+        writer.writeInt32Property(1, depth);
+    }
+
+    @Test
+    public void testNested() {
+        for (var depth = 0; depth < 8; depth++) {
+            var reverse = ProtobufReverseWriter.toBytes(0);
+            writeNested(reverse, depth);
+            var forward = ProtobufWriter.toBytes(reverse.size());
+            writeNested(forward, depth);
+            Assertions.assertArrayEquals(forward.toOutput(), reverse.toOutput());
+        }
+    }
+}
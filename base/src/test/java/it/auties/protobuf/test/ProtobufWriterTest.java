@@ -0,0 +1,677 @@
+package it.auties.protobuf.test;
+
+import it.auties.protobuf.exception.ProtobufSerializationException;
+import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufSizeCache;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.model.ProtobufWireType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+public class ProtobufWriterTest {
+    private static final long[] VALUES = {
+            0, 1, 127, 128, 300, 16_383, 16_384, 2_097_151, 2_097_152,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, -1, 1L << 35, 1L << 49, (1L << 56) - 1, 1L << 56, 1L << 62, 1L << 63,
+            Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+    // Encodes var ints without going through ProtobufWriter so that the writer is tested in isolation
+    private static byte[] encodeVarInts(long... values) {
+        var output = new ByteArrayOutputStream();
+        for (var value : values) {
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+        return output.toByteArray();
+    }
+
+    // Writes the same data with every backend, the exact output length makes the last values take the scalar path
+    private static void assertWrites(byte[] expected, Consumer<ProtobufWriter<?>> writer) {
+        var bytes = ProtobufWriter.toBytes(expected.length);
+        writer.accept(bytes);
+        Assertions.assertArrayEquals(expected, bytes.toOutput(), "bytes");
+
+        var heapBuffer = ProtobufWriter.toHeapBuffer(expected.length);
+        writer.accept(heapBuffer);
+        Assertions.assertArrayEquals(expected, heapBuffer.toOutput().array(), "heap buffer");
+
+        var directBuffer = ProtobufWriter.toDirectBuffer(expected.length);
+        writer.accept(directBuffer);
+        var directBytes = new byte[expected.length];
+        directBuffer.toOutput().get(0, directBytes);
+        Assertions.assertArrayEquals(expected, directBytes, "direct buffer");
+
+        var segment = ProtobufWriter.toMemorySegment(MemorySegment.ofArray(new byte[expected.length]));
+        writer.accept(segment);
+        Assertions.assertArrayEquals(expected, segment.toOutput().toArray(ValueLayout.JAVA_BYTE), "memory segment");
+
+        var output = new ByteArrayOutputStream();
+        var stream = ProtobufWriter.toStream(output);
+        writer.accept(stream);
+        stream.flush();
+        Assertions.assertArrayEquals(expected, output.toByteArray(), "stream");
+
+        // The smallest buffer flushes in the middle of most fields
+        var smallOutput = new ByteArrayOutputStream();
+        var smallStream = ProtobufWriter.toStream(smallOutput, 16);
+        writer.accept(smallStream);
+        smallStream.flush();
+        Assertions.assertArrayEquals(expected, smallOutput.toByteArray(), "small stream");
+
+        var channel = new RecordingChannel();
+        var channelWriter = ProtobufWriter.toChannel(channel, ByteBuffer.allocate(16));
+        writer.accept(channelWriter);
+        channelWriter.flush();
+        Assertions.assertArrayEquals(expected, channel.output.toByteArray(), "channel");
+
+        // The growable writers start empty, so they grow in the middle of most fields
+        var growableBytes = ProtobufWriter.toGrowableBytes(0);
+        writer.accept(growableBytes);
+        Assertions.assertArrayEquals(expected, growableBytes.toOutput(), "growable bytes");
+
+        var growableHeapBuffer = ProtobufWriter.toGrowableHeapBuffer(0);
+        writer.accept(growableHeapBuffer);
+        Assertions.assertEquals(ByteBuffer.wrap(expected), growableHeapBuffer.toOutput(), "growable heap buffer");
+
+        var growableDirectBuffer = ProtobufWriter.toGrowableDirectBuffer(1);
+        writer.accept(growableDirectBuffer);
+        Assertions.assertEquals(ByteBuffer.wrap(expected), growableDirectBuffer.toOutput(), "growable direct buffer");
+
+        try (var arena = Arena.ofConfined()) {
+            var growableSegment = ProtobufWriter.toGrowableMemorySegment(arena, 0);
+            writer.accept(growableSegment);
+            Assertions.assertArrayEquals(expected, growableSegment.toOutput().toArray(ValueLayout.JAVA_BYTE), "growable memory segment");
+        }
+
+        var heapBuffers = ProtobufWriter.toHeapBuffers(16);
+        writer.accept(heapBuffers);
+        Assertions.assertArrayEquals(expected, concat(heapBuffers.toOutput()), "heap buffers");
+
+        var directBuffers = ProtobufWriter.toDirectBuffers(16);
+        writer.accept(directBuffers);
+        Assertions.assertArrayEquals(expected, concat(directBuffers.toOutput()), "direct buffers");
+    }
+
+    private static byte[] concat(List<ByteBuffer> buffers) {
+        var output = new ByteArrayOutputStream();
+        for (var buffer : buffers) {
+            var bytes = new byte[buffer.remaining()];
+            buffer.get(buffer.position(), bytes);
+            output.writeBytes(bytes);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testVarInt64() {
+        assertWrites(encodeVarInts(VALUES), writer -> {
+            for (var value : VALUES) {
+                writer.writeRawVarInt64(value);
+            }
+        });
+    }
+
+    @Test
+    public void testVarInt32() {
+        var values = new long[VALUES.length];
+        for (var i = 0; i < VALUES.length; i++) {
+            values[i] = (int) VALUES[i];
+        }
+        assertWrites(encodeVarInts(values), writer -> {
+            for (var value : values) {
+                writer.writeRawVarInt32((int) value);
+            }
+        });
+    }
+
+    @Test
+    public void testRandomVarInts() {
+        var random = new Random(0);
+        var values = new long[4096];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >>> random.nextInt(64);
+        }
+        assertWrites(encodeVarInts(values), writer -> {
+            for (var value : values) {
+                writer.writeRawVarInt64(value);
+            }
+        });
+    }
+
+    @Test
+    public void testProperties() {
+        var expected = new ByteArrayOutputStream();
+        expected.writeBytes(encodeVarInts(1 << 3, -1));
+        expected.writeBytes(encodeVarInts(300L << 3, 150));
+        expected.writeBytes(encodeVarInts((3 << 3) | 1));
+        expected.writeBytes(new byte[]{1, 0, 0, 0, 0, 0, 0, 0});
+        expected.writeBytes(encodeVarInts(4 << 3, 3));
+        expected.writeBytes(encodeVarInts((5 << 3) | 2, 3, 1, 128));
+        assertWrites(expected.toByteArray(), writer -> {
+            writer.writeInt32Property(1, -1);
+            writer.writeUInt64Property(300, 150);
+            writer.writeFixed64Property(3, 1L);
+            writer.writeSInt32Property(4, -2);
+            writer.writePackedInt32Property(5, new int[]{1, 128});
+        });
+    }
+
+    private static byte[] encodePacked(int index, long[] varInts) {
+        var payload = encodeVarInts(varInts);
+        var output = new ByteArrayOutputStream();
+        output.writeBytes(encodeVarInts(((long) index << 3) | 2, payload.length));
+        output.writeBytes(payload);
+        return output.toByteArray();
+    }
+
+    // Blocks of short values are encoded with vectors, blocks with a value longer than eight bytes one at a time
+    @Test
+    public void testPackedVarInts() {
+        var random = new Random(0);
+        for (var length : new int[]{0, 1, 7, 8, 9, 31, 1000}) {
+            var values = new long[length];
+            var intValues = new int[length];
+            for (var i = 0; i < length; i++) {
+                values[i] = i % 97 == 0 ? -random.nextLong(1000) : random.nextLong() >>> (1 + random.nextInt(63));
+                intValues[i] = i % 89 == 0 ? -random.nextInt(1000) : random.nextInt() >>> random.nextInt(32);
+            }
+
+            var signExtended = new long[length];
+            var intZigZag = new long[length];
+            var longZigZag = new long[length];
+            for (var i = 0; i < length; i++) {
+                signExtended[i] = intValues[i];
+                intZigZag[i] = Integer.toUnsignedLong((intValues[i] << 1) ^ (intValues[i] >> 31));
+                longZigZag[i] = (values[i] << 1) ^ (values[i] >> 63);
+            }
+
+            var expected = new ByteArrayOutputStream();
+            expected.writeBytes(encodePacked(1, signExtended));
+            expected.writeBytes(encodePacked(2, values));
+            expected.writeBytes(encodePacked(3, intZigZag));
+            expected.writeBytes(encodePacked(4, longZigZag));
+            expected.writeBytes(encodePacked(5, signExtended));
+            assertWrites(expected.toByteArray(), writer -> {
+                writer.writePackedInt32Property(1, intValues);
+                writer.writePackedUInt64Property(2, values);
+                writer.writePackedSInt32Property(3, intValues);
+                writer.writePackedSInt64Property(4, values);
+                writer.writePackedInt64Property(5, intValues);
+            });
+        }
+    }
+
+    private static final byte SENTINEL = (byte) 0xA5;
+
+    // The bytes after the written ones belong to the caller, so they must never be overwritten by a var int store
+    @Test
+    public void testCallerBytesPreserved() {
+        var expected = encodeVarInts(VALUES);
+        var bufferBytes = new byte[expected.length + 64];
+        Arrays.fill(bufferBytes, SENTINEL);
+        var buffer = ByteBuffer.wrap(bufferBytes);
+        var bufferWriter = ProtobufWriter.toBuffer(buffer);
+        var segmentBytes = new byte[expected.length + 64];
+        Arrays.fill(segmentBytes, SENTINEL);
+        var segmentWriter = ProtobufWriter.toMemorySegment(MemorySegment.ofArray(segmentBytes));
+        for (var value : VALUES) {
+            bufferWriter.writeRawVarInt64(value);
+            assertSentinel(bufferBytes, (int) bufferWriter.writtenLength(), "buffer");
+            segmentWriter.writeRawVarInt64(value);
+            assertSentinel(segmentBytes, (int) segmentWriter.writtenLength(), "memory segment");
+        }
+        Assertions.assertArrayEquals(expected, Arrays.copyOf(bufferBytes, expected.length), "buffer");
+        Assertions.assertArrayEquals(expected, Arrays.copyOf(segmentBytes, expected.length), "memory segment");
+    }
+
+    private static void assertSentinel(byte[] bytes, int from, String name) {
+        for (var i = from; i < bytes.length; i++) {
+            Assertions.assertEquals(SENTINEL, bytes[i], name + " at " + i);
+        }
+    }
+
+    // Fixed values are copied in bulk by the backends that write to memory and one at a time by the others
+    @Test
+    public void testPackedFixed() {
+        var random = new Random(0);
+        for (var length : new int[]{0, 1, 1000}) {
+            var ints = random.ints(length).toArray();
+            var longs = random.longs(length).toArray();
+            var floats = new float[length];
+            var doubles = random.doubles(length).toArray();
+            for (var i = 0; i < length; i++) {
+                floats[i] = random.nextFloat();
+            }
+
+            var expected = new ByteArrayOutputStream();
+            var payload = ByteBuffer.allocate(length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asIntBuffer().put(ints);
+            expected.writeBytes(encodeVarInts((1 << 3) | 2, payload.capacity()));
+            expected.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asLongBuffer().put(longs);
+            expected.writeBytes(encodeVarInts((2 << 3) | 2, payload.capacity()));
+            expected.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asFloatBuffer().put(floats);
+            expected.writeBytes(encodeVarInts((3 << 3) | 2, payload.capacity()));
+            expected.writeBytes(payload.array());
+            payload = ByteBuffer.allocate(length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payload.asDoubleBuffer().put(doubles);
+            expected.writeBytes(encodeVarInts((4 << 3) | 2, payload.capacity()));
+            expected.writeBytes(payload.array());
+            assertWrites(expected.toByteArray(), writer -> {
+                writer.writePackedSFixed32Property(1, ints);
+                writer.writePackedFixed64Property(2, longs);
+                writer.writePackedFloatProperty(3, floats);
+                writer.writePackedDoubleProperty(4, doubles);
+            });
+        }
+    }
+
+    @Test
+    public void testPackedRoundTrip() {
+        var random = new Random(0);
+        var values = new long[1024];
+        var signedValues = new int[1024];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = random.nextLong() >> random.nextInt(64);
+            signedValues[i] = random.nextInt() >> random.nextInt(32);
+        }
+
+        var output = new ByteArrayOutputStream();
+        var writer = ProtobufWriter.toStream(output);
+        writer.writePackedInt64Property(1, values);
+        writer.writePackedSInt32Property(2, signedValues);
+        writer.flush();
+
+        var reader = ProtobufReader.fromBuffer(ByteBuffer.wrap(output.toByteArray()));
+        Assertions.assertTrue(reader.readPropertyTag());
+        Assertions.assertEquals(1, reader.propertyIndex());
+        Assertions.assertArrayEquals(values, reader.readPackedInt64Property());
+        Assertions.assertTrue(reader.readPropertyTag());
+        Assertions.assertEquals(2, reader.propertyIndex());
+        Assertions.assertArrayEquals(signedValues, reader.readPackedSInt32Property());
+        Assertions.assertFalse(reader.readPropertyTag());
+    }
+
+    // Every level has a payload that makes its length take up a different number of bytes
+    private static byte[] encodeNested(int depth) {
+        var output = new ByteArrayOutputStream();
+        output.writeBytes(encodeVarInts(1 << 3, depth));
+        if (depth > 0) {
+            var nested = encodeNested(depth - 1);
+            output.writeBytes(encodeVarInts((2 << 3) | 2, nested.length));
+            output.writeBytes(nested);
+        }
+        output.writeBytes(encodeVarInts((3 << 3) | 2, nestedPayload(depth).length));
+        output.writeBytes(nestedPayload(depth));
+        return output.toByteArray();
+    }
+
+    private static byte[] nestedPayload(int depth) {
+        var payload = new byte[(depth * 37) % 3 == 0 ? depth * 4099 : depth];
+        Arrays.fill(payload, (byte) depth);
+        return payload;
+    }
+
+    private static void writeNested(ProtobufWriter<?> writer, int depth) {
+        writer.writeInt32Property(1, depth);
+        if (depth > 0) {
+            var marker = writer.writeStartLengthDelimitedProperty(2);
+            writeNested(writer, depth - 1);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+        writer.writePropertyTag(3, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(nestedPayload(depth).length);
+        writer.writeRawBytes(nestedPayload(depth));
+    }
+
+    @Test
+    public void testBackPatchedLengths() {
+        for (var depth = 0; depth < 8; depth++) {
+            var nested = depth;
+            assertWrites(encodeNested(depth), writer -> writeNested(writer, nested));
+        }
+    }
+
+    // The lengths of the odd levels are in the cache and written right away, the ones of the even levels are back-patched
+    private static void writeNestedCached(ProtobufWriter<?> writer, Object[] levels, int depth) {
+        writer.writeInt32Property(1, depth);
+        if (depth > 0) {
+            var marker = writer.writeStartLengthDelimitedProperty(2, levels[depth - 1]);
+            writeNestedCached(writer, levels, depth - 1);
+            writer.writeEndLengthDelimitedProperty(marker);
+        }
+        writer.writePropertyTag(3, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(nestedPayload(depth).length);
+        writer.writeRawBytes(nestedPayload(depth));
+    }
+
+    @Test
+    public void testSizeCache() {
+        var depth = 7;
+        var levels = new Object[depth];
+        var sizeCache = new ProtobufSizeCache();
+        for (var i = 0; i < depth; i++) {
+            levels[i] = new Object();
+            if (i % 2 == 1) {
+                sizeCache.put(levels[i], encodeNested(i).length);
+            }
+        }
+        Assertions.assertEquals(depth / 2, sizeCache.size());
+        assertWrites(encodeNested(depth), writer -> {
+            writer.setSizeCache(sizeCache);
+            writeNestedCached(writer, levels, depth);
+        });
+    }
+
+    @Test
+    public void testSizeCacheResize() {
+        var sizeCache = new ProtobufSizeCache();
+        var keys = new ArrayList<Object>();
+        for (var i = 0; i < 1000; i++) {
+            var key = new Object();
+            keys.add(key);
+            sizeCache.put(key, i);
+        }
+        sizeCache.put(keys.getFirst(), -2);
+        Assertions.assertEquals(1000, sizeCache.size());
+        for (var i = 1; i < keys.size(); i++) {
+            Assertions.assertEquals(i, sizeCache.get(keys.get(i)));
+        }
+        Assertions.assertEquals(-2, sizeCache.get(keys.getFirst()));
+        Assertions.assertEquals(-1, sizeCache.get(new Object()));
+        sizeCache.clear();
+        Assertions.assertEquals(0, sizeCache.size());
+        Assertions.assertEquals(-1, sizeCache.get(keys.get(1)));
+    }
+
+    @Test
+    public void testGrowableWriters() {
+        var bytes = ProtobufWriter.toGrowableBytes();
+        Assertions.assertArrayEquals(new byte[0], bytes.toOutput());
+        bytes.writeRawBytes(new byte[1000]);
+        bytes.writeRawVarInt64(-1);
+        Assertions.assertEquals(1010, bytes.toOutput().length);
+
+        // A fixed writer still rejects writes past its end
+        var fixed = ProtobufWriter.toBytes(4);
+        Assertions.assertThrows(ProtobufSerializationException.class, () -> fixed.writeRawFixedInt64(1));
+        var fixedBuffer = ProtobufWriter.toHeapBuffer(4);
+        Assertions.assertThrows(ProtobufSerializationException.class, () -> fixedBuffer.writeRawBytes(new byte[5]));
+
+        var buffers = ProtobufWriter.toHeapBuffers(16);
+        buffers.writeRawBytes(new byte[100]);
+        var marker = buffers.writeStartLengthDelimitedProperty(1);
+        Assertions.assertThrows(IllegalStateException.class, buffers::toOutput);
+        buffers.writeEndLengthDelimitedProperty(marker);
+        Assertions.assertEquals(102, concat(buffers.toOutput()).length);
+    }
+
+    private static final long[] TRAILING_VALUES = {1L << 49, 16_384, 1L << 35, 2_097_152, 1, 127, 128, 300};
+
+    // Ends with var ints, so that a store past the last one would reach the bytes after the message
+    private static void writeFrame(ProtobufWriter<?> writer, int depth) {
+        writeNested(writer, depth);
+        writer.writeUInt64Property(4, Long.MIN_VALUE);
+        writer.writePackedUInt64Property(5, TRAILING_VALUES);
+    }
+
+    private static byte[] encodeFrame(int depth) {
+        var output = new ByteArrayOutputStream();
+        output.writeBytes(encodeNested(depth));
+        output.writeBytes(encodeVarInts(4 << 3, Long.MIN_VALUE));
+        output.writeBytes(encodePacked(5, TRAILING_VALUES));
+        return output.toByteArray();
+    }
+
+    // A single writer encodes every message into the same pooled buffer, the bytes around the message are left untouched
+    @Test
+    public void testReset() {
+        var pooled = new byte[65536];
+        var writer = ProtobufWriter.toBytes(pooled, 0);
+        var sizeCache = new ProtobufSizeCache();
+        writer.setSizeCache(sizeCache);
+        for (var depth = 0; depth < 8; depth++) {
+            Arrays.fill(pooled, SENTINEL);
+            sizeCache.put(new Object(), depth);
+            writer.reset(pooled, 3);
+            Assertions.assertEquals(0, sizeCache.size());
+            writeFrame(writer, depth);
+            var expected = encodeFrame(depth);
+            Assertions.assertEquals(expected.length, writer.writtenLength());
+            Assertions.assertArrayEquals(expected, Arrays.copyOfRange(pooled, 3, 3 + expected.length));
+            assertSentinel(Arrays.copyOf(pooled, 3), 0, "bytes");
+            assertSentinel(pooled, 3 + expected.length, "bytes");
+        }
+
+        var buffer = ByteBuffer.allocate(65536);
+        var bufferWriter = ProtobufWriter.toBuffer(buffer);
+        for (var depth = 0; depth < 8; depth++) {
+            Arrays.fill(buffer.array(), SENTINEL);
+            buffer.clear().position(5);
+            bufferWriter.reset(buffer);
+            writeFrame(bufferWriter, depth);
+            var expected = encodeFrame(depth);
+            Assertions.assertEquals(expected.length, bufferWriter.writtenLength());
+            Assertions.assertEquals(5 + expected.length, buffer.position());
+            Assertions.assertArrayEquals(expected, Arrays.copyOfRange(buffer.array(), 5, 5 + expected.length));
+            assertSentinel(buffer.array(), 5 + expected.length, "buffer");
+        }
+
+        // A writer that allocated its buffer doesn't own the one it's reset to
+        var frame = encodeFrame(2);
+        var owned = new byte[frame.length + 64];
+        Arrays.fill(owned, SENTINEL);
+        var growable = ProtobufWriter.toGrowableBytes();
+        growable.reset(owned, 0);
+        writeFrame(growable, 2);
+        Assertions.assertArrayEquals(frame, Arrays.copyOf(owned, frame.length));
+        assertSentinel(owned, frame.length, "growable bytes");
+
+        // Once it's reset to memory of the caller, a growable writer fails like a fixed one if the message doesn't fit
+        var small = frame.length / 2;
+        var growableBytes = ProtobufWriter.toGrowableBytes();
+        growableBytes.reset(new byte[small + 4], 4);
+        Assertions.assertThrows(ProtobufSerializationException.class, () -> writeFrame(growableBytes, 2), "growable bytes");
+        var growableBuffer = ProtobufWriter.toGrowableHeapBuffer(16);
+        growableBuffer.reset(ByteBuffer.allocate(small + 4).position(4));
+        Assertions.assertThrows(ProtobufSerializationException.class, () -> writeFrame(growableBuffer, 2), "growable buffer");
+        try (var arena = Arena.ofConfined()) {
+            var growableSegment = ProtobufWriter.toGrowableMemorySegment(arena, 16);
+            growableSegment.reset(MemorySegment.ofArray(new byte[small]));
+            Assertions.assertThrows(ProtobufSerializationException.class, () -> writeFrame(growableSegment, 2), "growable memory segment");
+        }
+
+        // An empty message can be written at the end of the array
+        var end = ProtobufWriter.toBytes(pooled, pooled.length);
+        Assertions.assertEquals(0, end.writtenLength());
+        end.reset(pooled, pooled.length);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> end.reset(pooled, pooled.length + 1));
+
+        var segmentWriter = ProtobufWriter.toMemorySegment(MemorySegment.ofArray(new byte[0]));
+        var segment = MemorySegment.ofArray(new byte[64]);
+        segmentWriter.reset(segment);
+        segmentWriter.writeRawVarInt64(300);
+        Assertions.assertEquals(2, segmentWriter.writtenLength());
+
+        var stream = ProtobufWriter.toStream(new ByteArrayOutputStream());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> stream.reset(pooled, 0));
+    }
+
+    @Test
+    public void testStreamBuffering() {
+        var output = new CountingOutputStream();
+        var writer = ProtobufWriter.toStream(output, 64);
+        for (var i = 1; i <= 16; i++) {
+            writer.writeInt32Property(i, i);
+        }
+        Assertions.assertEquals(0, output.writes, "small fields are buffered");
+
+        var payload = new byte[256];
+        Arrays.fill(payload, (byte) 1);
+        writer.writePropertyTag(17, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+        writer.writeLengthDelimitedPropertyLength(payload.length);
+        writer.writeRawBytes(payload);
+        Assertions.assertEquals(2, output.writes, "large payloads are written straight through");
+
+        writer.writeRawMemorySegment(MemorySegment.ofArray(payload));
+        writer.writeRawBuffer(ByteBuffer.allocateDirect(payload.length).put(payload).flip());
+        writer.flush();
+        Assertions.assertEquals(1, output.flushes);
+
+        var expected = new ByteArrayOutputStream();
+        for (var i = 1; i <= 16; i++) {
+            expected.writeBytes(encodeVarInts((long) i << 3, i));
+        }
+        expected.writeBytes(encodeVarInts((17 << 3) | 2, payload.length));
+        expected.writeBytes(payload);
+        expected.writeBytes(payload);
+        expected.writeBytes(payload);
+        Assertions.assertArrayEquals(expected.toByteArray(), output.toByteArray());
+    }
+
+    // Generated encoders size the message first for the writers that don't keep their output in memory,
+    // so the length of an embedded message comes from the size cache and the message is flushed as it's written
+    @Test
+    public void testStreamSizedLengths() {
+        Assertions.assertTrue(ProtobufWriter.toGrowableBytes().keepsOutputInMemory());
+        Assertions.assertFalse(ProtobufWriter.toChannel(new RecordingChannel(), ByteBuffer.allocate(16)).keepsOutputInMemory());
+        var output = new CountingOutputStream();
+        var writer = ProtobufWriter.toStream(output, 64);
+        Assertions.assertFalse(writer.keepsOutputInMemory());
+        var message = new Object();
+        var expected = new ByteArrayOutputStream();
+        for (var i = 1; i <= 256; i++) {
+            expected.writeBytes(encodeVarInts((long) i << 3, i));
+        }
+        var sizeCache = new ProtobufSizeCache();
+        sizeCache.put(message, expected.size());
+        writer.setSizeCache(sizeCache);
+        var marker = writer.writeStartLengthDelimitedProperty(1, message);
+        for (var i = 1; i <= 256; i++) {
+            writer.writeInt32Property(i, i);
+        }
+        Assertions.assertTrue(output.size() > expected.size() - 64, "the embedded message is flushed as it's written");
+        writer.writeEndLengthDelimitedProperty(marker);
+        writer.flush();
+        var payload = expected.toByteArray();
+        expected.reset();
+        expected.writeBytes(encodeVarInts((1 << 3) | 2, payload.length));
+        expected.writeBytes(payload);
+        Assertions.assertArrayEquals(expected.toByteArray(), output.toByteArray());
+    }
+
+    private static final class CountingOutputStream extends ByteArrayOutputStream {
+        private int writes;
+        private int flushes;
+
+        @Override
+        public void write(int b) {
+            writes++;
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    @Test
+    public void testChannel() throws Exception {
+        var blob = new byte[1 << 16];
+        new Random(0).nextBytes(blob);
+        var directBlob = ByteBuffer.allocateDirect(blob.length).put(blob).flip();
+        Consumer<ProtobufWriter<?>> writer = output -> {
+            for (var i = 1; i <= 512; i++) {
+                output.writeInt64Property(i, -i);
+            }
+            output.writePropertyTag(600, ProtobufWireType.WIRE_TYPE_LENGTH_DELIMITED);
+            output.writeLengthDelimitedPropertyLength(blob.length);
+            output.writeRawBytes(blob);
+            output.writeFixed32Property(601, 7);
+            output.writeRawBuffer(directBlob);
+            output.writeRawMemorySegment(MemorySegment.ofArray(blob));
+            output.writeRawBytes(blob, 0, 100);
+        };
+        var expected = new ByteArrayOutputStream();
+        var expectedWriter = ProtobufWriter.toStream(expected);
+        writer.accept(expectedWriter);
+        expectedWriter.flush();
+
+        var channel = new RecordingChannel();
+        try (var channelWriter = ProtobufWriter.toChannel(channel, ByteBuffer.allocate(1024))) {
+            writer.accept(channelWriter);
+            channelWriter.flush();
+            Assertions.assertArrayEquals(expected.toByteArray(), channel.output.toByteArray());
+        }
+        Assertions.assertFalse(channel.isOpen());
+        Assertions.assertTrue(channel.gathered.stream().anyMatch(buffer -> buffer.hasArray() && buffer.array() == blob), "large arrays are not copied");
+        Assertions.assertTrue(channel.gathered.stream().anyMatch(buffer -> buffer.isDirect() && buffer.capacity() == blob.length), "large buffers are not copied");
+        Assertions.assertEquals(blob.length, directBlob.remaining());
+    }
+
+    private static final class RecordingChannel implements GatheringByteChannel {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final List<ByteBuffer> gathered = new ArrayList<>();
+        private boolean open = true;
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            var result = 0L;
+            for (var i = offset; i < offset + length; i++) {
+                gathered.add(sources[i].duplicate());
+                result += write(sources[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            var result = source.remaining();
+            while (source.hasRemaining()) {
+                output.write(source.get());
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
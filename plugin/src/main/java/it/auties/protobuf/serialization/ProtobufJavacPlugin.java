@@ -3,6 +3,7 @@ package it.auties.protobuf.serialization;
 import com.sun.source.tree.*;
 import com.sun.source.util.Trees;
 import it.auties.protobuf.annotation.*;
+import it.auties.protobuf.model.ProtobufRawUnknownFields;
 import it.auties.protobuf.model.ProtobufType;
 import it.auties.protobuf.serialization.generator.*;
 import it.auties.protobuf.serialization.graph.ProtobufConverterGraph;
@@ -505,7 +506,32 @@ public class ProtobufJavacPlugin extends AbstractProcessor {
     private ProtobufUnknownFieldsElement createUnknownFieldsElement(VariableElement variableElement, DeclaredType variableType, ExecutableElement setterElement, TypeMirror unknownFieldsType, List<TypeElement> mixins) {
         var defaultValue = getDefaultValue(variableElement, unknownFieldsType, mixins)
                 .orElse("new %s()".formatted(variableType)); // For now, could be improved to check if the constructor exists
-        return new ProtobufUnknownFieldsElement(variableType, defaultValue, setterElement);
+        var accessor = getUnknownFieldsAccessor(variableElement)
+                .orElse(null);
+        if(accessor == null && isRawUnknownFields(variableType)) {
+            messages.printError("Missing accessor: raw unknown fields are written back by the serializer, so a non-private getter/accessor must be declared, or the field must have non-private visibility.", variableElement);
+        }
+        return new ProtobufUnknownFieldsElement(variableType, defaultValue, setterElement, accessor);
+    }
+
+    private Optional<? extends Element> getUnknownFieldsAccessor(VariableElement fieldElement) {
+        if(!fieldElement.getModifiers().contains(Modifier.PRIVATE)) {
+            return Optional.of(fieldElement);
+        }
+
+        var methods = fieldElement.getEnclosingElement()
+                .getEnclosedElements()
+                .stream()
+                .filter(entry -> entry instanceof ExecutableElement)
+                .map(entry -> (ExecutableElement) entry)
+                .filter(element -> !element.getModifiers().contains(Modifier.PRIVATE))
+                .toList();
+        return inferAccessor(fieldElement, methods);
+    }
+
+    private boolean isRawUnknownFields(DeclaredType type) {
+        return type.asElement() instanceof TypeElement typeElement
+                && typeElement.getQualifiedName().contentEquals(ProtobufRawUnknownFields.class.getName());
     }
 
     private ExecutableElement findUnknownFieldsSetterInType(DeclaredType unknownFieldsDeclaredType) {
@@ -1,6 +1,7 @@
 package it.auties.protobuf.serialization.generator;
 
 import com.palantir.javapoet.CodeBlock;
+import it.auties.protobuf.model.ProtobufLazy;
 import it.auties.protobuf.model.ProtobufType;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufPropertyType;
@@ -13,6 +14,8 @@ import java.util.List;
 public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGenerator {
     public static final String METHOD_NAME = "decode";
     private static final String INPUT_STREAM_NAME = "protoInputStream";
+    protected static final String FIELD_SELECTION_NAME = "protoFieldSelection";
+    private static final String LAZY_INPUT_STREAM_NAME = "protoLazyInputStream";
 
     public ProtobufDeserializationGenerator(ProtobufObjectElement element) {
         super(element);
@@ -20,28 +23,31 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
 
     // Generates a switch case block that deserializes a map field from the protobuf stream
     //
+    // The entry is read on the same stream by bounding it to the entry's length, so no stream is allocated per entry
+    //
     // Example generated block for input name = "scores":
-    //   var scoresInputStream = protoInputStream.readLengthDelimited();
+    //   var scoresLimit = protoInputStream.pushLengthDelimitedPropertyLimit();
     //   String scoresKey = null;
     //   Integer scoresValue = null;
-    //   while (scoresInputStream.readTag()) {
-    //      switch (scoresInputStream.index()) {
+    //   while (protoInputStream.readTag()) {
+    //      switch (protoInputStream.index()) {
     //         case 1L:
-    //            scoresKey = scoresInputStream.readString();
+    //            scoresKey = protoInputStream.readString();
     //            break;
     //         case 2L:
-    //            scoresValue = scoresInputStream.readInt32();
+    //            scoresValue = protoInputStream.readInt32();
     //            break;
     //      }
     //   }
+    //   protoInputStream.popLimit(scoresLimit);
     //   scores.put(scoresKey, scoresValue);
     //   break;
     protected CodeBlock writeMapDeserializer(String name, ProtobufPropertyType.MapType mapType) {
         var caseBlock = CodeBlock.builder();
 
-        // Read the length-delimited map entry into a new stream
-        var streamName = "%sInputStream".formatted(name);
-        caseBlock.addStatement("var $L = $L.readLengthDelimited()", streamName, INPUT_STREAM_NAME);
+        // Bound the stream to the length-delimited map entry
+        var limitName = "%sLimit".formatted(name);
+        caseBlock.addStatement("var $L = $L.pushLengthDelimitedPropertyLimit()", limitName, INPUT_STREAM_NAME);
 
         // Declare key and value variables
         var keyTypeName = getQualifiedName(mapType.keyType().accessorType());
@@ -53,23 +59,24 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
 
         // Get the read methods and conversion chains for key and value
         var keyReadMethod = getDeserializerStreamMethod(mapType.keyType(), false);
-        var keyReadFunction = getConvertedValue(streamName, mapType.keyType(), keyReadMethod);
+        var keyReadFunction = getConvertedValue(INPUT_STREAM_NAME, mapType.keyType(), keyReadMethod, null);
         var valueReadMethod = getDeserializerStreamMethod(mapType.valueType(), false);
-        var valueReadFunction = getConvertedValue(streamName, mapType.valueType(), valueReadMethod);
+        var valueReadFunction = getConvertedValue(INPUT_STREAM_NAME, mapType.valueType(), valueReadMethod, null);
 
-        // Read the map entry stream (field 1 = key, field 2 = value)
-        caseBlock.beginControlFlow("while ($L.readTag())", streamName);
-        caseBlock.beginControlFlow("switch ($L.index())", streamName);
+        // Read the map entry (field 1 = key, field 2 = value)
+        caseBlock.beginControlFlow("while ($L.readTag())", INPUT_STREAM_NAME);
+        caseBlock.beginControlFlow("switch ($L.index())", INPUT_STREAM_NAME);
         caseBlock.add("case 1L:\n").indent();
-        caseBlock.addStatement("$L = $L", keyName, keyReadFunction);
+        writeReadStatement(caseBlock, keyName, mapType.keyType(), "%s = %s".formatted(keyName, keyReadFunction));
         caseBlock.addStatement("break");
         caseBlock.unindent();
         caseBlock.add("case 2L:\n").indent();
-        caseBlock.addStatement("$L = $L", valueName, valueReadFunction);
+        writeReadStatement(caseBlock, valueName, mapType.valueType(), "%s = %s".formatted(valueName, valueReadFunction));
         caseBlock.addStatement("break");
         caseBlock.unindent();
         caseBlock.endControlFlow();
         caseBlock.endControlFlow();
+        caseBlock.addStatement("$L.popLimit($L)", INPUT_STREAM_NAME, limitName);
 
         // Put the deserialized entry into the map
         caseBlock.addStatement("$L.put($L, $L)", name, keyName, valueName);
@@ -88,21 +95,82 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
     // Generated code:
     //       numbers.add(protoInputStream.readInt32());
     //       break;
-    protected CodeBlock writeDeserializer(String name, ProtobufPropertyType type, boolean repeated, boolean packed) {
+    //
+    // Example for message field: Address address;
+    // Generated code:
+    //       var addressLimit = protoInputStream.pushLengthDelimitedPropertyLimit();
+    //       address = AddressSpec.decode(protoInputStream);
+    //       protoInputStream.popLimit(addressLimit);
+    //       break;
+    //
+    // Example for lazy message field: ProtobufLazy<Payload> payload;
+    // Generated code:
+    //       payload = it.auties.protobuf.model.ProtobufLazy.from(protoInputStream, PayloadSpec::decode);
+    //       break;
+    //
+    // Example for message field in a projected decoder, where index = 3:
+    // Generated code:
+    //       var addressLimit = protoInputStream.pushLengthDelimitedPropertyLimit();
+    //       address = AddressSpec.decode(protoInputStream, protoFieldSelection.nested(3L));
+    //       protoInputStream.popLimit(addressLimit);
+    //       break;
+    protected CodeBlock writeDeserializer(String name, long index, ProtobufPropertyType type, boolean repeated, boolean packed) {
+        // The selection of an embedded message's properties is forwarded to the decode method of its Spec class
+        var selection = projected() ? "%s.nested(%sL)".formatted(FIELD_SELECTION_NAME, index) : null;
+
+        if (isLazyMessage(type)) {
+            return writeLazyDeserializer(name, type, repeated, selection);
+        }
+
         // Get the stream read method (e.g., "readString", "readInt32", "readInt32Packed")
         var readMethod = getDeserializerStreamMethod(type, packed);
 
         // Build the complete read expression with custom deserializers applied
-        var readFunction = getConvertedValue(INPUT_STREAM_NAME, type, readMethod);
+        var readFunction = getConvertedValue(INPUT_STREAM_NAME, type, readMethod, selection);
 
         // Generate the assignment (direct assignment vs add/addAll for collections)
         var readAssignment = getReadAssignment(name, repeated, packed, readFunction);
 
         // Create the case block
-        return CodeBlock.builder()
-                .addStatement("$L", readAssignment)
-                .addStatement("break")
-                .build();
+        var caseBlock = CodeBlock.builder();
+        writeReadStatement(caseBlock, name, type, readAssignment);
+        caseBlock.addStatement("break");
+        return caseBlock.build();
+    }
+
+    // The bytes of the embedded message are captured without decoding them, the decode method of its Spec class is called on first access
+    // In a projected decoder, the selection is captured by a lambda instead of a method reference
+    private CodeBlock writeLazyDeserializer(String name, ProtobufPropertyType type, boolean repeated, String selection) {
+        var decoder = type.deserializers().getFirst().delegate();
+        var decodeFunction = selection == null
+                ? "%s::%s".formatted(decoder.ownerName(), decoder.name())
+                : "%s -> %s.%s(%s, %s)".formatted(LAZY_INPUT_STREAM_NAME, decoder.ownerName(), decoder.name(), LAZY_INPUT_STREAM_NAME, selection);
+        var readFunction = "%s.from(%s, %s)".formatted(ProtobufLazy.class.getName(), INPUT_STREAM_NAME, decodeFunction);
+        var caseBlock = CodeBlock.builder();
+        caseBlock.addStatement("$L", getReadAssignment(name, repeated, false, readFunction));
+        caseBlock.addStatement("break");
+        return caseBlock.build();
+    }
+
+    // The deserializers of a lazy message are the decode method of the message's Spec class and LazyMixin.ofLazy
+    // If the message has custom deserializers, the chain is longer and the message is decoded eagerly through the mixin instead
+    private boolean isLazyMessage(ProtobufPropertyType type) {
+        return type.protobufType() == ProtobufType.MESSAGE
+                && isLazy(type.descriptorElementType())
+                && type.deserializers().size() == 2;
+    }
+
+    // Embedded messages are decoded from the same stream, bounded to their length for the duration of the read
+    private void writeReadStatement(CodeBlock.Builder caseBlock, String name, ProtobufPropertyType type, String readStatement) {
+        if (type.protobufType() != ProtobufType.MESSAGE) {
+            caseBlock.addStatement("$L", readStatement);
+            return;
+        }
+
+        var limitName = "%sLimit".formatted(name);
+        caseBlock.addStatement("var $L = $L.pushLengthDelimitedPropertyLimit()", limitName, INPUT_STREAM_NAME);
+        caseBlock.addStatement("$L", readStatement);
+        caseBlock.addStatement("$L.popLimit($L)", INPUT_STREAM_NAME, limitName);
     }
 
     // Generates the assignment statement for reading a value
@@ -125,16 +193,11 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
     //   Returns: "MyConverter.fromProto(protoInputStream.readInt64())"
     //
     // Flow:
-    //   1. Start with "protoInputStream"
-    //   2. For MESSAGE: wrap in readLengthDelimited() -> "protoInputStream.readLengthDelimited()"
-    //   3. Add stream method: "protoInputStream.readLengthDelimited().readInt64()"
-    //   4. Chain deserializers: "MyConverter.fromProto(protoInputStream.readInt64())"
-    private String getConvertedValue(String value, ProtobufPropertyType implementation, String readMethod) {
-        // For MESSAGE types, read the length-delimited nested message first
-        if (implementation.protobufType() == ProtobufType.MESSAGE) {
-            value = "%s.readLengthDelimited()".formatted(value);
-        }
-
+    //   1. Start with "protoInputStream", MESSAGE types decode from it directly as writeReadStatement bounds it
+    //   2. Add stream method: "protoInputStream.readInt64()"
+    //   3. Chain deserializers: "MyConverter.fromProto(protoInputStream.readInt64())"
+    //   4. If a selection is provided, pass it to the decode method of the message's Spec class, the synthetic first deserializer
+    private String getConvertedValue(String value, ProtobufPropertyType implementation, String readMethod, String selection) {
         // Append the stream read method if it exists (empty for MESSAGE/GROUP)
         if(!readMethod.isEmpty()) {
             value = "%s.%s()".formatted(value, readMethod);
@@ -143,14 +206,18 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
         // Apply each custom deserializer in the chain
         for (var i = 0; i < implementation.deserializers().size(); i++) {
             var deserializer = implementation.deserializers().get(i);
-            value = "%s.%s(%s)".formatted(deserializer.delegate().ownerName(), deserializer.delegate().name(), value);
+            if(i == 0 && selection != null && implementation.protobufType() == ProtobufType.MESSAGE && deserializer.delegate().element().isEmpty()) {
+                value = "%s.%s(%s, %s)".formatted(deserializer.delegate().ownerName(), deserializer.delegate().name(), value, selection);
+            } else {
+                value = "%s.%s(%s)".formatted(deserializer.delegate().ownerName(), deserializer.delegate().name(), value);
+            }
         }
 
         return value;
     }
 
     // Maps protobuf types to their corresponding ProtobufInputStream read method names
-    // Returns empty string for MESSAGE/GROUP (handled separately with readLengthDelimited)
+    // Returns empty string for MESSAGE/GROUP (handled separately with pushLengthDelimitedPropertyLimit)
     // Packed variants return collections (e.g., readInt32Packed returns List<Integer>)
     private String getDeserializerStreamMethod(ProtobufPropertyType type, boolean packed) {
         return switch (type.protobufType()) {
@@ -169,6 +236,11 @@ public abstract class ProtobufDeserializationGenerator extends ProtobufMethodGen
         };
     }
 
+    // Whether the generated method takes a ProtobufFieldSelection and decodes only the selected properties
+    protected boolean projected() {
+        return false;
+    }
+
     @Override
     protected List<Modifier> modifiers() {
         return List.of(Modifier.PUBLIC, Modifier.STATIC);
@@ -4,6 +4,8 @@ import com.palantir.javapoet.*;
 import it.auties.protobuf.annotation.ProtobufEnum;
 import it.auties.protobuf.annotation.ProtobufGroup;
 import it.auties.protobuf.annotation.ProtobufMessage;
+import it.auties.protobuf.model.ProtobufLazy;
+import it.auties.protobuf.model.ProtobufRawUnknownFields;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 
 import javax.lang.model.element.*;
@@ -159,6 +161,18 @@ public abstract class ProtobufMethodGenerator {
                 && declaredType.asElement().getAnnotation(ProtobufGroup.class) != null;
     }
 
+    // ProtobufLazy wraps an embedded message that is decoded only when it's first accessed
+    protected boolean isLazy(TypeMirror type) {
+        return getQualifiedName(type).equals(ProtobufLazy.class.getName());
+    }
+
+    // ProtobufRawUnknownFields keeps the encoded unknown fields: the decoder copies them and the encoder writes them back
+    protected boolean hasRawUnknownFields() {
+        return objectElement.unknownFieldsElement()
+                .filter(element -> getQualifiedName(element.type()).equals(ProtobufRawUnknownFields.class.getName()))
+                .isPresent();
+    }
+
     protected boolean isEnum(TypeMirror deserializedType) {
         return deserializedType instanceof DeclaredType declaredType
                 && declaredType.asElement().getAnnotation(ProtobufEnum.class) != null;
@@ -6,6 +6,7 @@ import com.palantir.javapoet.MethodSpec;
 import com.palantir.javapoet.TypeName;
 import com.palantir.javapoet.TypeSpec;
 import it.auties.protobuf.exception.ProtobufDeserializationException;
+import it.auties.protobuf.model.ProtobufFieldSelection;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
 import it.auties.protobuf.serialization.model.ProtobufPropertyElement;
@@ -68,7 +69,7 @@ import java.util.List;
 //         - Normal fields: read directly from stream
 //         - Repeated fields: add to collection
 //         - Map fields: read key-value pair and add to map
-//         - Unknown fields: skip or store if unknown fields handler exists
+//         - Unknown fields: skip or store if unknown fields handler exists, a ProtobufRawUnknownFields store copies their bytes
 //      g. Assert group is closed (if group type)
 //      h. Validate all required fields are non-null
 //      i. Construct and return object using deserialized values
@@ -110,6 +111,8 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
             return List.of(ClassName.get(Integer.class), ClassName.get(objectElement.typeElement()));
         } else if(objectElement.type() == Type.GROUP) {
             return List.of(TypeName.LONG, ClassName.get(ProtobufReader.class));
+        } else if(projected()) {
+            return List.of(ClassName.get(ProtobufReader.class), ClassName.get(ProtobufFieldSelection.class));
         } else {
             return List.of(ClassName.get(ProtobufReader.class));
         }
@@ -121,6 +124,8 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
             return List.of(ENUM_INDEX_PARAMETER, ENUM_DEFAULT_VALUE_PARAMETER);
         } else if(objectElement.type() == Type.GROUP) {
             return List.of(GROUP_INDEX_PARAMETER, INPUT_STREAM_NAME);
+        } else if(projected()) {
+            return List.of(INPUT_STREAM_NAME, FIELD_SELECTION_NAME);
         } else {
             return List.of(INPUT_STREAM_NAME);
         }
@@ -174,6 +179,12 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
         methodBuilder.beginControlFlow("while ($L.readTag())", INPUT_STREAM_NAME);
         methodBuilder.addStatement("var $L = $L.index()", FIELD_INDEX_VARIABLE, INPUT_STREAM_NAME);
         checkPropertyIndex(methodBuilder, FIELD_INDEX_VARIABLE);
+        if(projected()) {
+            methodBuilder.beginControlFlow("if (!$L.contains($L))", FIELD_SELECTION_NAME, FIELD_INDEX_VARIABLE);
+            methodBuilder.addStatement("$L.skipUnknown()", INPUT_STREAM_NAME);
+            methodBuilder.addStatement("continue");
+            methodBuilder.endControlFlow();
+        }
 
         var switchCases = new ArrayList<CodeBlock>();
         var switchIndexes = new ArrayList<String>();
@@ -185,8 +196,8 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
             switchIndexes.add(property.index() + "L");
             var branch = switch (property.type()) {
                 case ProtobufPropertyType.MapType mapType -> writeMapDeserializer(property.name(), mapType);
-                case ProtobufPropertyType.CollectionType collectionType -> writeDeserializer(property.name(), collectionType.valueType(), true, property.packed());
-                default -> writeDeserializer(property.name(), property.type(), false, property.packed());
+                case ProtobufPropertyType.CollectionType collectionType -> writeDeserializer(property.name(), property.index(), collectionType.valueType(), true, property.packed());
+                default -> writeDeserializer(property.name(), property.index(), property.type(), false, property.packed());
             };
             switchCases.add(branch);
 
@@ -239,6 +250,13 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
             return caseBlock.build();
         }
 
+        // The raw store copies the encoded property, so no value is created for it
+        if(hasRawUnknownFields()) {
+            caseBlock.addStatement("$L.readProperty($L)", DEFAULT_UNKNOWN_FIELDS, INPUT_STREAM_NAME);
+            caseBlock.addStatement("break");
+            return caseBlock.build();
+        }
+
         var setter = unknownFieldsElement.setter();
         var value = "%s.readUnknown()".formatted(INPUT_STREAM_NAME);
         if(setter.getModifiers().contains(Modifier.STATIC)) {
@@ -251,14 +269,22 @@ public class ProtobufObjectDeserializationGenerator extends ProtobufDeserializat
         return caseBlock.build();
     }
 
+    // A projected decoder only checks the required properties that were selected
     private void checkRequiredProperty(MethodSpec.Builder methodBuilder, ProtobufPropertyElement property) {
+        if(projected()) {
+            methodBuilder.beginControlFlow("if ($L.contains($LL))", FIELD_SELECTION_NAME, property.index());
+        }
+
         if (!(property.type() instanceof ProtobufPropertyType.CollectionType)) {
             methodBuilder.addStatement("Objects.requireNonNull($L, $S)", property.name(), "Missing required property: " + property.name());
-            return;
+        } else {
+            methodBuilder.beginControlFlow("if (!$L.isEmpty())", property.name());
+            methodBuilder.addStatement("throw new NullPointerException($S)", "Missing required property: " + property.name());
+            methodBuilder.endControlFlow();
         }
 
-        methodBuilder.beginControlFlow("if (!$L.isEmpty())", property.name());
-        methodBuilder.addStatement("throw new NullPointerException($S)", "Missing required property: " + property.name());
-        methodBuilder.endControlFlow();
+        if(projected()) {
+            methodBuilder.endControlFlow();
+        }
     }
 }
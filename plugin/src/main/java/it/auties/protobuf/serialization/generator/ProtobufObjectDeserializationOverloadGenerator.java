@@ -21,7 +21,7 @@ import java.util.List;
 //       if (protoInputObject == null) {
 //           return null;
 //       }
-//       return decode(ProtobufInputStream.fromBytes(protoInputObject, 0, protoInputObject.length));
+//       return ProtobufInputStream.decodePooled(protoInputObject, 0, protoInputObject.length, protoInputStream -> decode(protoInputStream));
 //   }
 //
 // Example Input (Enum):
@@ -36,8 +36,8 @@ import java.util.List;
 // Execution Flow:
 //   For Messages/Groups:
 //     1. Check if byte array is null, return null if so
-//     2. Create ProtobufInputStream from byte array
-//     3. Delegate to main decode(stream) method
+//     2. Delegate to main decode(stream) method through the reader pool,
+//        so decoding a byte array doesn't allocate a ProtobufInputStream on platform threads
 //   For Enums:
 //     1. Directly call main decode(index, defaultValue) with null default
 public class ProtobufObjectDeserializationOverloadGenerator extends ProtobufDeserializationGenerator {
@@ -63,9 +63,9 @@ public class ProtobufObjectDeserializationOverloadGenerator extends ProtobufDese
 
         // Return the result
         if(objectElement.type() == Type.GROUP) {
-            methodBuilder.addStatement("return $L($L, ProtobufInputStream.fromBytes($L, 0, $L.length))", name(), GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, INPUT_OBJECT_PARAMETER);
+            methodBuilder.addStatement("return ProtobufInputStream.decodePooled($L, 0, $L.length, protoInputStream -> $L($L, protoInputStream))", INPUT_OBJECT_PARAMETER, INPUT_OBJECT_PARAMETER, name(), GROUP_INDEX_PARAMETER);
         }else {
-            methodBuilder.addStatement("return $L(ProtobufInputStream.fromBytes($L, 0, $L.length))", name(), INPUT_OBJECT_PARAMETER, INPUT_OBJECT_PARAMETER);
+            methodBuilder.addStatement("return ProtobufInputStream.decodePooled($L, 0, $L.length, protoInputStream -> $L(protoInputStream))", INPUT_OBJECT_PARAMETER, INPUT_OBJECT_PARAMETER, name());
         }
     }
 
@@ -0,0 +1,62 @@
+package it.auties.protobuf.serialization.generator;
+
+import it.auties.protobuf.serialization.model.ProtobufObjectElement;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
+
+// Generates an overload of the deserialization method that decodes only the properties in a ProtobufFieldSelection
+//
+// Example Input:
+//   @ProtobufMessage
+//   public record Person(
+//       @ProtobufProperty(index = 1) String name,
+//       @ProtobufProperty(index = 2) Address address
+//   ) {}
+//
+// Example Output:
+//   public static Person decode(ProtobufInputStream protoInputStream, ProtobufFieldSelection protoFieldSelection) {
+//       String name = null;
+//       Address address = null;
+//       while (protoInputStream.readTag()) {
+//           var protoFieldIndex = protoInputStream.index();
+//           if (!protoFieldSelection.contains(protoFieldIndex)) {
+//               protoInputStream.skipUnknown();
+//               continue;
+//           }
+//           switch (protoFieldIndex) {
+//               case 1L:
+//                   name = protoInputStream.readString();
+//                   break;
+//               case 2L:
+//                   var addressLimit = protoInputStream.pushLengthDelimitedPropertyLimit();
+//                   address = AddressSpec.decode(protoInputStream, protoFieldSelection.nested(2L));
+//                   protoInputStream.popLimit(addressLimit);
+//                   break;
+//               default:
+//                   protoInputStream.skipUnknown();
+//                   break;
+//           }
+//       }
+//       return new Person(name, address);
+//   }
+//
+// Execution Flow:
+//   Same as ProtobufObjectDeserializationGenerator, but properties that weren't selected are skipped before the switch,
+//   so they keep their default value and are never passed to the unknown fields handler.
+//   Required properties are checked only if they were selected.
+//   Embedded messages are decoded by the same overload of their own Spec class, with the nested selection for their index.
+//   Map values and groups are decoded entirely.
+public class ProtobufObjectProjectionDeserializationGenerator extends ProtobufObjectDeserializationGenerator {
+    public ProtobufObjectProjectionDeserializationGenerator(ProtobufObjectElement element) {
+        super(element);
+    }
+
+    @Override
+    public boolean shouldInstrument() {
+        return objectElement.type() == Type.MESSAGE;
+    }
+
+    @Override
+    protected boolean projected() {
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package it.auties.protobuf.serialization.generator;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.TypeName;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
+
+// Generates an overload of the serialization method that writes a protobuf object to a ProtobufReverseWriter
+//
+// Example Input:
+//   @ProtobufMessage
+//   public record Person(
+//       @ProtobufProperty(index = 1) String name,
+//       @ProtobufProperty(index = 2) Address address
+//   ) {}
+//
+// Example Output:
+//   public static void encode(Person protoInputObject, ProtobufReverseWriter protoOutputStream) {
+//       if (protoInputObject == null) {
+//           return;
+//       }
+//       var address = protoInputObject.address();
+//       if (address != null) {
+//           var addressMarker = protoOutputStream.writeStartLengthDelimitedProperty();
+//           AddressSpec.encode(address, protoOutputStream);
+//           protoOutputStream.writeEndLengthDelimitedProperty(2, addressMarker);
+//       }
+//       var name = protoInputObject.name();
+//       if (name != null) {
+//           protoOutputStream.writeString(1, name);
+//       }
+//   }
+//
+// Execution Flow:
+//   Same as ProtobufObjectSerializationGenerator, but the properties, the elements of repeated fields
+//   and the key and value of map entries are written last to first.
+//   The length of an embedded message is written after the message itself, so sizeOf is never called.
+//   Embedded messages are encoded by the same overload of their own Spec class, which is picked by the type of the writer.
+public class ProtobufObjectReverseSerializationGenerator extends ProtobufObjectSerializationGenerator {
+    public ProtobufObjectReverseSerializationGenerator(ProtobufObjectElement element) {
+        super(element);
+    }
+
+    @Override
+    public boolean shouldInstrument() {
+        return objectElement.type() != Type.ENUM;
+    }
+
+    @Override
+    protected boolean reversed() {
+        return true;
+    }
+
+    @Override
+    protected TypeName writerType() {
+        return ClassName.get(ProtobufReverseWriter.class);
+    }
+}
@@ -0,0 +1,103 @@
+package it.auties.protobuf.serialization.generator;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
+
+import javax.lang.model.element.Modifier;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Generates an overload of the serialization method that writes a protobuf object into a buffer owned by the caller
+//
+// Example Input:
+//   @ProtobufMessage
+//   public record Person(String name, int age) {}
+//
+// Example Output:
+//   public static int encode(Person protoInputObject, ByteBuffer protoOutputBuffer) {
+//       if (protoInputObject == null) {
+//           return 0;
+//       }
+//       var stream = ProtobufWriter.toBuffer(protoOutputBuffer);
+//       encode(protoInputObject, stream);
+//       return (int) stream.writtenLength();
+//   }
+//
+// Execution Flow:
+//   1. Check if input is null, nothing is written if so
+//   2. Create a writer that starts at the position of the buffer, the buffer must have enough bytes remaining for the object
+//   3. Call the main encode(object, stream) method to serialize, which advances the position of the buffer
+//   4. Return the number of bytes that were written
+public class ProtobufObjectSerializationBufferGenerator extends ProtobufMethodGenerator {
+    private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
+    private static final String GROUP_INDEX_PARAMETER = "protoGroupIndex";
+    private static final String OUTPUT_BUFFER_PARAMETER = "protoOutputBuffer";
+
+    public ProtobufObjectSerializationBufferGenerator(ProtobufObjectElement element) {
+        super(element);
+    }
+
+    @Override
+    protected void doInstrumentation(TypeSpec.Builder classBuilder, MethodSpec.Builder methodBuilder) {
+        // Check if the input is null
+        methodBuilder.beginControlFlow("if ($L == null)", INPUT_OBJECT_PARAMETER);
+        methodBuilder.addStatement("return 0");
+        methodBuilder.endControlFlow();
+
+        // Write the object starting from the position of the buffer
+        methodBuilder.addStatement("var stream = $T.toBuffer($L)", ProtobufWriter.class, OUTPUT_BUFFER_PARAMETER);
+        if(objectElement.type() == Type.GROUP) {
+            methodBuilder.addStatement("encode($L, $L, stream)", GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
+        }else {
+            methodBuilder.addStatement("encode($L, stream)", INPUT_OBJECT_PARAMETER);
+        }
+
+        // Return the written length
+        methodBuilder.addStatement("return (int) stream.writtenLength()");
+    }
+
+    @Override
+    public boolean shouldInstrument() {
+        return objectElement.type() != Type.ENUM;
+    }
+
+    @Override
+    protected List<Modifier> modifiers() {
+        return List.of(Modifier.PUBLIC, Modifier.STATIC);
+    }
+
+    @Override
+    protected TypeName returnType() {
+        return TypeName.INT;
+    }
+
+    @Override
+    public String name() {
+        return "encode";
+    }
+
+    @Override
+    protected List<TypeName> parametersTypes() {
+        var objectType = ClassName.get(objectElement.typeElement());
+        var bufferType = ClassName.get(ByteBuffer.class);
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(TypeName.INT, objectType, bufferType);
+        }else {
+            return List.of(objectType, bufferType);
+        }
+    }
+
+    @Override
+    protected List<String> parametersNames() {
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, OUTPUT_BUFFER_PARAMETER);
+        }else {
+            return List.of(INPUT_OBJECT_PARAMETER, OUTPUT_BUFFER_PARAMETER);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package it.auties.protobuf.serialization.generator;
+
+import com.palantir.javapoet.ArrayTypeName;
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import it.auties.protobuf.io.ProtobufWriter;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+// Generates an overload of the serialization method that writes a protobuf object into an array owned by the caller
+//
+// Example Input:
+//   @ProtobufMessage
+//   public record Person(String name, int age) {}
+//
+// Example Output:
+//   public static int encode(Person protoInputObject, byte[] protoOutputBytes, int protoOutputOffset) {
+//       if (protoInputObject == null) {
+//           return 0;
+//       }
+//       var stream = ProtobufWriter.toBytes(protoOutputBytes, protoOutputOffset);
+//       encode(protoInputObject, stream);
+//       return (int) stream.writtenLength();
+//   }
+//
+// Execution Flow:
+//   1. Check if input is null, nothing is written if so
+//   2. Create a writer that starts at the offset of the array, the array must be large enough for the object
+//      The bytes after the written ones are left untouched, so the object can be encoded in the middle of a larger frame
+//   3. Call the main encode(object, stream) method to serialize, the lengths of the embedded messages are back-patched so sizeOf is never called
+//   4. Return the number of bytes that were written
+public class ProtobufObjectSerializationBytesGenerator extends ProtobufMethodGenerator {
+    private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
+    private static final String GROUP_INDEX_PARAMETER = "protoGroupIndex";
+    private static final String OUTPUT_BYTES_PARAMETER = "protoOutputBytes";
+    private static final String OUTPUT_OFFSET_PARAMETER = "protoOutputOffset";
+
+    public ProtobufObjectSerializationBytesGenerator(ProtobufObjectElement element) {
+        super(element);
+    }
+
+    @Override
+    protected void doInstrumentation(TypeSpec.Builder classBuilder, MethodSpec.Builder methodBuilder) {
+        // Check if the input is null
+        methodBuilder.beginControlFlow("if ($L == null)", INPUT_OBJECT_PARAMETER);
+        methodBuilder.addStatement("return 0");
+        methodBuilder.endControlFlow();
+
+        // Write the object starting from the offset
+        methodBuilder.addStatement("var stream = $T.toBytes($L, $L)", ProtobufWriter.class, OUTPUT_BYTES_PARAMETER, OUTPUT_OFFSET_PARAMETER);
+        if(objectElement.type() == Type.GROUP) {
+            methodBuilder.addStatement("encode($L, $L, stream)", GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
+        }else {
+            methodBuilder.addStatement("encode($L, stream)", INPUT_OBJECT_PARAMETER);
+        }
+
+        // Return the written length
+        methodBuilder.addStatement("return (int) stream.writtenLength()");
+    }
+
+    @Override
+    public boolean shouldInstrument() {
+        return objectElement.type() != Type.ENUM;
+    }
+
+    @Override
+    protected List<Modifier> modifiers() {
+        return List.of(Modifier.PUBLIC, Modifier.STATIC);
+    }
+
+    @Override
+    protected TypeName returnType() {
+        return TypeName.INT;
+    }
+
+    @Override
+    public String name() {
+        return "encode";
+    }
+
+    @Override
+    protected List<TypeName> parametersTypes() {
+        var objectType = ClassName.get(objectElement.typeElement());
+        var bytesType = ArrayTypeName.of(TypeName.BYTE);
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(TypeName.INT, objectType, bytesType, TypeName.INT);
+        }else {
+            return List.of(objectType, bytesType, TypeName.INT);
+        }
+    }
+
+    @Override
+    protected List<String> parametersNames() {
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, OUTPUT_BYTES_PARAMETER, OUTPUT_OFFSET_PARAMETER);
+        }else {
+            return List.of(INPUT_OBJECT_PARAMETER, OUTPUT_BYTES_PARAMETER, OUTPUT_OFFSET_PARAMETER);
+        }
+    }
+}
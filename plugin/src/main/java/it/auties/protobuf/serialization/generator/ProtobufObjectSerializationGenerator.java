@@ -8,6 +8,7 @@ import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
 import it.auties.protobuf.serialization.model.ProtobufPropertyElement;
 import it.auties.protobuf.serialization.model.ProtobufPropertyType;
+import it.auties.protobuf.io.ProtobufSizeCache;
 import it.auties.protobuf.io.ProtobufWriter;
 
 import javax.lang.model.element.Element;
@@ -29,6 +30,17 @@ import java.util.NoSuchElementException;
 //       if (protoInputObject == null) {
 //           return;
 //       }
+//       if (protoOutputStream.sizeCache() == null && !protoOutputStream.keepsOutputInMemory()) {
+//           var protoSizeCache = new ProtobufSizeCache();
+//           sizeOf(protoInputObject, protoSizeCache);
+//           protoOutputStream.setSizeCache(protoSizeCache);
+//           try {
+//               encode(protoInputObject, protoOutputStream);
+//           } finally {
+//               protoOutputStream.setSizeCache(null);
+//           }
+//           return;
+//       }
 //       Objects.requireNonNull(protoInputObject.name(), "Missing required property: name");
 //       var name = protoInputObject.name();
 //       if (name != null) {
@@ -50,17 +62,23 @@ import java.util.NoSuchElementException;
 //   1. Return early if input is null
 //   2. For enums: return the ordinal or custom field value
 //   3. For messages/groups:
-//      a. Write group start marker (if group type)
-//      b. Validate required properties are not null
-//      c. Iterate through each property and serialize based on type:
+//      a. If the writer sends its output to a stream or a channel and has no size cache, size the object into a new one and encode again:
+//         the lengths of the embedded messages are then written from the cache, so the writer keeps flushing in bounded chunks
+//         instead of holding every embedded message in memory until its length is back-patched.
+//         Writers that keep their output in memory back-patch the lengths instead, which saves sizing the message
+//      b. Write group start marker (if group type)
+//      c. Validate required properties are not null
+//      d. Iterate through each property and serialize based on type:
 //         - Normal fields: write directly to stream
 //         - Repeated fields: iterate and write each element
 //         - Map fields: iterate entries and write key-value pairs
-//      d. Write group end marker (if group type)
+//      e. Write the bytes of a ProtobufRawUnknownFields store, if the object has one
+//      f. Write group end marker (if group type)
 public class ProtobufObjectSerializationGenerator extends ProtobufSerializationGenerator {
     private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
     private static final String OUTPUT_OBJECT_PARAMETER = "protoOutputStream";
     private static final String GROUP_INDEX_PARAMETER = "protoGroupIndex";
+    private static final String UNKNOWN_FIELDS_NAME = "protoUnknownFields";
 
     public ProtobufObjectSerializationGenerator(ProtobufObjectElement element) {
         super(element);
@@ -96,12 +114,17 @@ public class ProtobufObjectSerializationGenerator extends ProtobufSerializationG
         if (objectElement.type() == Type.ENUM) {
             return List.of(objectType);
         }else if(objectElement.type() == Type.GROUP) {
-            return List.of(TypeName.INT, objectType, ClassName.get(ProtobufWriter.class));
+            return List.of(TypeName.INT, objectType, writerType());
         }else {
-            return List.of(objectType, ClassName.get(ProtobufWriter.class));
+            return List.of(objectType, writerType());
         }
     }
 
+    // The type of the writer the generated method serializes to
+    protected TypeName writerType() {
+        return ClassName.get(ProtobufWriter.class);
+    }
+
     @Override
     protected List<String> parametersNames() {
         if (objectElement.type() == Type.ENUM) {
@@ -133,12 +156,25 @@ public class ProtobufObjectSerializationGenerator extends ProtobufSerializationG
         methodBuilder.addStatement("return");
         methodBuilder.endControlFlow();
 
+        // The reverse writer keeps its output in memory
+        if(!reversed()) {
+            writeSizedEncode(methodBuilder);
+        }
+
+        // When writing in reverse, the end of the group comes first
         if(objectElement.type() == Type.GROUP) {
-            methodBuilder.addStatement("$L.writeGroupStart($L)", OUTPUT_OBJECT_PARAMETER, GROUP_INDEX_PARAMETER);
+            methodBuilder.addStatement("$L.$L($L)", OUTPUT_OBJECT_PARAMETER, reversed() ? "writeGroupEnd" : "writeGroupStart", GROUP_INDEX_PARAMETER);
         }
 
         createRequiredPropertiesNullCheck(methodBuilder);
-        for(var property : objectElement.properties()) {
+
+        // The unknown fields come after the known properties, so in reverse they are written first
+        if(reversed()) {
+            writeRawUnknownFields(methodBuilder);
+        }
+
+        var properties = reversed() ? objectElement.properties().reversed() : objectElement.properties();
+        for(var property : properties) {
             switch (property.type()) {
                 case ProtobufPropertyType.CollectionType collectionType -> writeRepeatedSerializer(methodBuilder, property.index(), property.name(), getAccessorCall(property.accessor()), collectionType, property.packed(), true, false);
                 case ProtobufPropertyType.MapType mapType -> writeMapSerializer(methodBuilder, property.index(), property.name(), getAccessorCall(property.accessor()), mapType);
@@ -146,11 +182,56 @@ public class ProtobufObjectSerializationGenerator extends ProtobufSerializationG
             }
         }
 
+        if(!reversed()) {
+            writeRawUnknownFields(methodBuilder);
+        }
+
         if(objectElement.type() == Type.GROUP) {
-            methodBuilder.addStatement("$L.writeGroupEnd($L)", OUTPUT_OBJECT_PARAMETER, GROUP_INDEX_PARAMETER);
+            methodBuilder.addStatement("$L.$L($L)", OUTPUT_OBJECT_PARAMETER, reversed() ? "writeGroupStart" : "writeGroupEnd", GROUP_INDEX_PARAMETER);
         }
     }
 
+    // A writer that doesn't keep its output in memory would hold every back-patched embedded message until it's complete,
+    // so the object is sized into a size cache first and encoded again with it: the nested encode calls see the cache and skip this
+    // Map entries whose iterator creates a new entry on every pass aren't in the cache, so they are still back-patched
+    private void writeSizedEncode(MethodSpec.Builder methodBuilder) {
+        var sizeCache = ProtobufSizeGenerator.SIZE_CACHE_PARAMETER;
+        methodBuilder.beginControlFlow("if ($L.sizeCache() == null && !$L.keepsOutputInMemory())", OUTPUT_OBJECT_PARAMETER, OUTPUT_OBJECT_PARAMETER);
+        methodBuilder.addStatement("var $L = new $T()", sizeCache, ProtobufSizeCache.class);
+        if(objectElement.type() == Type.GROUP) {
+            methodBuilder.addStatement("$L($L, $L, $L)", ProtobufSizeGenerator.METHOD_NAME, GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, sizeCache);
+        }else {
+            methodBuilder.addStatement("$L($L, $L)", ProtobufSizeGenerator.METHOD_NAME, INPUT_OBJECT_PARAMETER, sizeCache);
+        }
+        methodBuilder.addStatement("$L.setSizeCache($L)", OUTPUT_OBJECT_PARAMETER, sizeCache);
+        methodBuilder.beginControlFlow("try");
+        if(objectElement.type() == Type.GROUP) {
+            methodBuilder.addStatement("$L($L, $L, $L)", name(), GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, OUTPUT_OBJECT_PARAMETER);
+        }else {
+            methodBuilder.addStatement("$L($L, $L)", name(), INPUT_OBJECT_PARAMETER, OUTPUT_OBJECT_PARAMETER);
+        }
+        methodBuilder.nextControlFlow("finally");
+        methodBuilder.addStatement("$L.setSizeCache(null)", OUTPUT_OBJECT_PARAMETER);
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement("return");
+        methodBuilder.endControlFlow();
+    }
+
+    // Only a ProtobufRawUnknownFields store is written back, as its bytes are already encoded
+    private void writeRawUnknownFields(MethodSpec.Builder methodBuilder) {
+        if(!hasRawUnknownFields()) {
+            return;
+        }
+
+        var accessor = objectElement.unknownFieldsElement()
+                .orElseThrow()
+                .accessor();
+        methodBuilder.addStatement("var $L = $L", UNKNOWN_FIELDS_NAME, getAccessorCall(accessor));
+        methodBuilder.beginControlFlow("if ($L != null)", UNKNOWN_FIELDS_NAME);
+        methodBuilder.addStatement("$L.writeTo($L)", UNKNOWN_FIELDS_NAME, OUTPUT_OBJECT_PARAMETER);
+        methodBuilder.endControlFlow();
+    }
+
     private void createRequiredPropertiesNullCheck(MethodSpec.Builder methodBuilder) {
         objectElement.properties()
                 .stream()
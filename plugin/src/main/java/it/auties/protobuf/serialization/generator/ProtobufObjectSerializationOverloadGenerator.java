@@ -5,6 +5,7 @@ import com.palantir.javapoet.ClassName;
 import com.palantir.javapoet.MethodSpec;
 import com.palantir.javapoet.TypeName;
 import com.palantir.javapoet.TypeSpec;
+import it.auties.protobuf.io.ProtobufSizeCache;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
 
@@ -22,16 +23,18 @@ import java.util.List;
 //       if (protoInputObject == null) {
 //           return null;
 //       }
-//       var stream = ProtobufOutputStream.toBytes(sizeOf(protoInputObject));
+//       var protoSizeCache = new ProtobufSizeCache();
+//       var stream = ProtobufOutputStream.toBytes(sizeOf(protoInputObject, protoSizeCache));
+//       stream.setSizeCache(protoSizeCache);
 //       encode(protoInputObject, stream);
 //       return stream.toOutput();
 //   }
 //
 // Execution Flow:
 //   1. Check if input is null, return null early if so
-//   2. Calculate the size needed for serialization using sizeOf()
-//   3. Create an output stream with pre-allocated size
-//   4. Call the main encode(object, stream) method to serialize
+//   2. Calculate the size needed for serialization using sizeOf(), storing the size of every embedded message
+//   3. Create an output stream with pre-allocated size that carries the stored sizes
+//   4. Call the main encode(object, stream) method to serialize, which writes the length of the embedded messages from the stored sizes
 //   5. Convert stream to byte array and return
 public class ProtobufObjectSerializationOverloadGenerator extends ProtobufMethodGenerator {
     private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
@@ -48,12 +51,18 @@ public class ProtobufObjectSerializationOverloadGenerator extends ProtobufMethod
         methodBuilder.addStatement("return null");
         methodBuilder.endControlFlow();
 
+        // Size the object once, storing the size of every embedded message for the encoder
+        var sizeCache = ProtobufSizeGenerator.SIZE_CACHE_PARAMETER;
+        methodBuilder.addStatement("var $L = new $T()", sizeCache, ProtobufSizeCache.class);
+
         // Return the result
         if(objectElement.type() == Type.GROUP) {
-            methodBuilder.addStatement("var stream = ProtobufOutputStream.toBytes($L($L, $L))", ProtobufObjectSizeGenerator.METHOD_NAME, GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
+            methodBuilder.addStatement("var stream = ProtobufOutputStream.toBytes($L($L, $L, $L))", ProtobufObjectSizeGenerator.METHOD_NAME, GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, sizeCache);
+            methodBuilder.addStatement("stream.setSizeCache($L)", sizeCache);
             methodBuilder.addStatement("encode($L, $L, stream)", GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
         }else {
-            methodBuilder.addStatement("var stream = ProtobufOutputStream.toBytes($L($L))", ProtobufObjectSizeGenerator.METHOD_NAME, INPUT_OBJECT_PARAMETER);
+            methodBuilder.addStatement("var stream = ProtobufOutputStream.toBytes($L($L, $L))", ProtobufObjectSizeGenerator.METHOD_NAME, INPUT_OBJECT_PARAMETER, sizeCache);
+            methodBuilder.addStatement("stream.setSizeCache($L)", sizeCache);
             methodBuilder.addStatement("encode($L, stream)", INPUT_OBJECT_PARAMETER);
         }
 
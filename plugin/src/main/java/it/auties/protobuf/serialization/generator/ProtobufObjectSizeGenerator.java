@@ -4,6 +4,7 @@ import com.palantir.javapoet.ClassName;
 import com.palantir.javapoet.MethodSpec;
 import com.palantir.javapoet.TypeName;
 import com.palantir.javapoet.TypeSpec;
+import it.auties.protobuf.io.ProtobufSizeCache;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
 import it.auties.protobuf.serialization.model.ProtobufPropertyType;
@@ -23,7 +24,7 @@ import java.util.Objects;
 //   ) {}
 //
 // Example Output:
-//   public static int sizeOf(Person protoInputObject) {
+//   public static int sizeOf(Person protoInputObject, ProtobufSizeCache protoSizeCache) {
 //       if (protoInputObject == null) {
 //           return 0;
 //       }
@@ -40,6 +41,10 @@ import java.util.Objects;
 //       var age = protoInputObject.age();
 //       // VarInt size depends on value magnitude
 //       protoOutputSize += ProtobufOutputStream.getVarIntSize(age);
+//       // Store the size for the encoder, if a cache was passed
+//       if (protoSizeCache != null) {
+//           protoSizeCache.put(protoInputObject, protoOutputSize);
+//       }
 //       return protoOutputSize;
 //   }
 //
@@ -65,11 +70,14 @@ import java.util.Objects;
 //           * Nested messages: recursively call their sizeOf() method
 //           * Repeated fields: sum sizes of all elements
 //           * Map fields: create helper method to calculate entry size
-//      d. Return total accumulated size
+//      d. Add the length of a ProtobufRawUnknownFields store, if the object has one
+//      e. Store the size in the size cache (messages only, groups have no length prefix)
+//      f. Return total accumulated size
 public class ProtobufObjectSizeGenerator extends ProtobufSizeGenerator {
     private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
     private static final String OUTPUT_SIZE_NAME = "protoOutputSize";
     private static final String GROUP_INDEX_PARAMETER = "protoGroupIndex";
+    private static final String UNKNOWN_FIELDS_NAME = "protoUnknownFields";
 
     public ProtobufObjectSizeGenerator(ProtobufObjectElement element) {
         super(element);
@@ -134,26 +142,43 @@ public class ProtobufObjectSizeGenerator extends ProtobufSizeGenerator {
             }
         }
 
+        // A ProtobufRawUnknownFields store is written back as it is
+        if(hasRawUnknownFields()) {
+            var accessor = objectElement.unknownFieldsElement()
+                    .orElseThrow()
+                    .accessor();
+            methodBuilder.addStatement("var $L = $L", UNKNOWN_FIELDS_NAME, getAccessorCall(accessor));
+            methodBuilder.beginControlFlow("if ($L != null)", UNKNOWN_FIELDS_NAME);
+            methodBuilder.addStatement("$L += $L.length()", OUTPUT_SIZE_NAME, UNKNOWN_FIELDS_NAME);
+            methodBuilder.endControlFlow();
+        }
+
+        if(objectElement.type() == Type.MESSAGE) {
+            writeSizeCacheStatement(methodBuilder);
+        }
+
         methodBuilder.addStatement("return $L", OUTPUT_SIZE_NAME);
     }
 
+    // Enums have no embedded messages, so they don't need the size cache
     @Override
     protected List<TypeName> parametersTypes() {
         var objectType = ClassName.get(objectElement.typeElement());
-        if(objectElement.type() == Type.GROUP) {
-            return List.of(TypeName.INT, objectType);
-        }else {
-            return List.of(objectType);
-        }
+        var sizeCacheType = ClassName.get(ProtobufSizeCache.class);
+        return switch (objectElement.type()) {
+            case GROUP -> List.of(TypeName.INT, objectType, sizeCacheType);
+            case ENUM -> List.of(objectType);
+            case MESSAGE -> List.of(objectType, sizeCacheType);
+        };
     }
 
     @Override
     protected List<String> parametersNames() {
-        if(objectElement.type() == Type.GROUP) {
-            return List.of(GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
-        }else {
-            return List.of(INPUT_OBJECT_PARAMETER);
-        }
+        return switch (objectElement.type()) {
+            case GROUP -> List.of(GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER, SIZE_CACHE_PARAMETER);
+            case ENUM -> List.of(INPUT_OBJECT_PARAMETER);
+            case MESSAGE -> List.of(INPUT_OBJECT_PARAMETER, SIZE_CACHE_PARAMETER);
+        };
     }
 
     private String getAccessorCall(Element accessor) {
@@ -0,0 +1,80 @@
+package it.auties.protobuf.serialization.generator;
+
+import com.palantir.javapoet.ClassName;
+import com.palantir.javapoet.MethodSpec;
+import com.palantir.javapoet.TypeName;
+import com.palantir.javapoet.TypeSpec;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement;
+import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
+
+import javax.lang.model.element.Modifier;
+import java.util.List;
+
+// Generates a convenience overload method that calculates the serialized size of a protobuf object without a size cache
+//
+// Example Input:
+//   @ProtobufMessage
+//   public record Person(String name, int age) {}
+//
+// Example Output:
+//   public static int sizeOf(Person protoInputObject) {
+//       return sizeOf(protoInputObject, null);
+//   }
+//
+// Enums don't take a size cache, so their sizeOf method is generated by ProtobufObjectSizeGenerator directly
+public class ProtobufObjectSizeOverloadGenerator extends ProtobufMethodGenerator {
+    private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
+    private static final String GROUP_INDEX_PARAMETER = "protoGroupIndex";
+
+    public ProtobufObjectSizeOverloadGenerator(ProtobufObjectElement element) {
+        super(element);
+    }
+
+    @Override
+    protected void doInstrumentation(TypeSpec.Builder classBuilder, MethodSpec.Builder methodBuilder) {
+        if(objectElement.type() == Type.GROUP) {
+            methodBuilder.addStatement("return $L($L, $L, null)", ProtobufSizeGenerator.METHOD_NAME, GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
+        }else {
+            methodBuilder.addStatement("return $L($L, null)", ProtobufSizeGenerator.METHOD_NAME, INPUT_OBJECT_PARAMETER);
+        }
+    }
+
+    @Override
+    public boolean shouldInstrument() {
+        return objectElement.type() != Type.ENUM;
+    }
+
+    @Override
+    protected List<Modifier> modifiers() {
+        return List.of(Modifier.PUBLIC, Modifier.STATIC);
+    }
+
+    @Override
+    protected TypeName returnType() {
+        return TypeName.INT;
+    }
+
+    @Override
+    public String name() {
+        return ProtobufSizeGenerator.METHOD_NAME;
+    }
+
+    @Override
+    protected List<TypeName> parametersTypes() {
+        var objectType = ClassName.get(objectElement.typeElement());
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(TypeName.INT, objectType);
+        }else {
+            return List.of(objectType);
+        }
+    }
+
+    @Override
+    protected List<String> parametersNames() {
+        if(objectElement.type() == Type.GROUP) {
+            return List.of(GROUP_INDEX_PARAMETER, INPUT_OBJECT_PARAMETER);
+        }else {
+            return List.of(INPUT_OBJECT_PARAMETER);
+        }
+    }
+}
@@ -10,6 +10,8 @@ import it.auties.protobuf.serialization.model.ProtobufObjectElement;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement.Type;
 import it.auties.protobuf.serialization.model.ProtobufPropertyElement;
 import it.auties.protobuf.io.ProtobufReader;
+import it.auties.protobuf.io.ProtobufReverseWriter;
+import it.auties.protobuf.io.ProtobufSizeCache;
 import it.auties.protobuf.io.ProtobufWriter;
 
 import javax.annotation.processing.Filer;
@@ -35,14 +37,27 @@ import java.util.*;
 //       // Main deserializer: ProtobufInputStream -> Person
 //       public static Person decode(ProtobufInputStream protoInputStream) { ... }
 //
+//       // Projected deserializer: ProtobufInputStream, ProtobufFieldSelection -> Person (only the selected properties)
+//       public static Person decode(ProtobufInputStream protoInputStream, ProtobufFieldSelection protoFieldSelection) { ... }
+//
 //       // Overload: Person -> byte[]
 //       public static byte[] encode(Person protoInputObject) { ... }
 //
 //       // Main serializer: Person -> void (writes to stream)
 //       public static void encode(Person protoInputObject, ProtobufOutputStream protoOutputStream) { ... }
 //
-//       // Size calculator: Person -> int
+//       // Reverse serializer: Person -> void (writes to a reverse writer, back to front)
+//       public static void encode(Person protoInputObject, ProtobufReverseWriter protoOutputStream) { ... }
+//
+//       // Overloads: Person, byte[], offset -> int and Person, ByteBuffer -> int (write into the caller's memory)
+//       public static int encode(Person protoInputObject, byte[] protoOutputBytes, int protoOutputOffset) { ... }
+//       public static int encode(Person protoInputObject, ByteBuffer protoOutputBuffer) { ... }
+//
+//       // Overload: Person -> int
 //       public static int sizeOf(Person protoInputObject) { ... }
+//
+//       // Size calculator: Person, ProtobufSizeCache -> int
+//       public static int sizeOf(Person protoInputObject, ProtobufSizeCache protoSizeCache) { ... }
 //   }
 //
 // For Enums, also generates:
@@ -60,9 +75,14 @@ import java.util.*;
 //   3. Generate all methods using specialized generators:
 //      a. ProtobufObjectSerializationOverloadGenerator - encode(object) -> byte[]
 //      b. ProtobufObjectSerializationGenerator - encode(object, stream)
-//      c. ProtobufObjectDeserializationOverloadGenerator - decode(byte[]) -> object
-//      d. ProtobufObjectDeserializationGenerator - decode(stream) -> object
-//      e. ProtobufObjectSizeGenerator - sizeOf(object) -> int
+//      c. ProtobufObjectReverseSerializationGenerator - encode(object, reverseWriter)
+//      d. ProtobufObjectSerializationBytesGenerator - encode(object, byte[], offset) -> int
+//      e. ProtobufObjectSerializationBufferGenerator - encode(object, ByteBuffer) -> int
+//      f. ProtobufObjectDeserializationOverloadGenerator - decode(byte[]) -> object
+//      g. ProtobufObjectDeserializationGenerator - decode(stream) -> object
+//      h. ProtobufObjectProjectionDeserializationGenerator - decode(stream, fieldSelection) -> object
+//      i. ProtobufObjectSizeOverloadGenerator - sizeOf(object) -> int
+//      j. ProtobufObjectSizeGenerator - sizeOf(object, sizeCache) -> int
 //   4. Build TypeSpec and write to JavaFile
 //   5. Write JavaFile to Filer (generates .java source file)
 public class ProtobufObjectSpecGenerator extends ProtobufClassGenerator {
@@ -106,14 +126,24 @@ public class ProtobufObjectSpecGenerator extends ProtobufClassGenerator {
         serializationOverloadVisitor.generate(classBuilder);
         var serializationVisitor = new ProtobufObjectSerializationGenerator(objectElement);
         serializationVisitor.generate(classBuilder);
+        var reverseSerializationVisitor = new ProtobufObjectReverseSerializationGenerator(objectElement);
+        reverseSerializationVisitor.generate(classBuilder);
+        var bytesSerializationVisitor = new ProtobufObjectSerializationBytesGenerator(objectElement);
+        bytesSerializationVisitor.generate(classBuilder);
+        var bufferSerializationVisitor = new ProtobufObjectSerializationBufferGenerator(objectElement);
+        bufferSerializationVisitor.generate(classBuilder);
 
         // Write the deserializer
         var deserializationOverloadVisitor = new ProtobufObjectDeserializationOverloadGenerator(objectElement);
         deserializationOverloadVisitor.generate(classBuilder);
         var deserializationVisitor = new ProtobufObjectDeserializationGenerator(objectElement);
         deserializationVisitor.generate(classBuilder);
+        var projectionDeserializationVisitor = new ProtobufObjectProjectionDeserializationGenerator(objectElement);
+        projectionDeserializationVisitor.generate(classBuilder);
 
         // Write the size calculator
+        var sizeOverloadVisitor = new ProtobufObjectSizeOverloadGenerator(objectElement);
+        sizeOverloadVisitor.generate(classBuilder);
         var sizeVisitor = new ProtobufObjectSizeGenerator(objectElement);
         sizeVisitor.generate(classBuilder);
 
@@ -140,7 +170,9 @@ public class ProtobufObjectSpecGenerator extends ProtobufClassGenerator {
         imports.add(message.typeElement().getQualifiedName().toString());
         imports.add(ProtobufReader.class.getName());
         imports.add(ProtobufWriter.class.getName());
+        imports.add(ProtobufReverseWriter.class.getName());
         imports.add(ProtobufWireType.class.getName());
+        imports.add(ProtobufSizeCache.class.getName());
         if (message.properties().stream().anyMatch(ProtobufPropertyElement::required)) {
             imports.add(Objects.class.getName());
         }
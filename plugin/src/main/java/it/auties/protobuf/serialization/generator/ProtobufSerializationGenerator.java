@@ -10,6 +10,7 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,12 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
         super(element);
     }
 
+    // Whether the generated code writes to a ProtobufReverseWriter, which fills its buffer back to front
+    // In that case everything is written in the reverse order: the last property first, the value of a property before its tag
+    protected boolean reversed() {
+        return false;
+    }
+
     // Serializes a repeated field to the protobuf stream
     //
     // For packed repeated fields (e.g., List<Integer> numbers with packed=true):
@@ -35,6 +42,15 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
     //             protoOutputStream.writeString(1, namesEntry);
     //         }
     //     }
+    //
+    // For non-packed repeated fields written in reverse (e.g., List<String> names):
+    //   Generated code:
+    //     if (names != null) {
+    //         for (var namesIterator = names.listIterator(names.size()); namesIterator.hasPrevious(); ) {
+    //             var namesEntry = namesIterator.previous();
+    //             protoOutputStream.writeString(1, namesEntry);
+    //         }
+    //     }
     protected void writeRepeatedSerializer(MethodSpec.Builder methodBuilder, long index, String name, String accessor, ProtobufPropertyType.CollectionType collectionType, boolean packed, boolean nullCheck, boolean cast) {
         if(packed) {
             // Packed encoding: write all elements at once using packed method
@@ -46,7 +62,19 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
                 methodBuilder.beginControlFlow("if ($L != null)", accessor);
             }
             var localVariableName = "%sEntry".formatted(name);
-            methodBuilder.beginControlFlow("for (var $L : $L)", localVariableName, accessor);
+            if(reversed()) {
+                // Collections that are not lists can only be iterated front to back, so they are copied first
+                var list = accessor;
+                if(!isList(collectionType)) {
+                    list = "%sEntries".formatted(name);
+                    methodBuilder.addStatement("var $L = new $T<>($L)", list, ArrayList.class, accessor);
+                }
+                var iteratorName = "%sIterator".formatted(name);
+                methodBuilder.beginControlFlow("for (var $L = $L.listIterator($L.size()); $L.hasPrevious(); )", iteratorName, list, list, iteratorName);
+                methodBuilder.addStatement("var $L = $L.previous()", localVariableName, iteratorName);
+            }else {
+                methodBuilder.beginControlFlow("for (var $L : $L)", localVariableName, accessor);
+            }
             writeNormalSerializer(methodBuilder, index, name, localVariableName, collectionType.valueType(), false, true, cast);
             methodBuilder.endControlFlow();
             if(nullCheck) {
@@ -55,13 +83,20 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
         }
     }
 
+    private boolean isList(ProtobufPropertyType.CollectionType collectionType) {
+        var qualifiedName = getQualifiedName(collectionType.descriptorElementType());
+        return qualifiedName.equals(List.class.getName())
+                || qualifiedName.equals(ArrayList.class.getName())
+                || qualifiedName.equals(LinkedList.class.getName());
+    }
+
     // Serializes a map field by writing each entry as a length-delimited message
     //
     // Example for Map<String, Integer> scores:
     //   Generated code:
     //     if (scores != null) {
     //         for (var scoresEntry : scores.entrySet()) {
-    //             protoOutputStream.writeMessage(3, sizeOfScores(scoresEntry));
+    //             var scoresEntryMarker = protoOutputStream.writeStartLengthDelimitedProperty(3, scoresEntry);
     //             // Write key (field 1)
     //             protoOutputStream.writeString(1, scoresEntry.getKey());
     //             // Write value (field 2)
@@ -69,8 +104,12 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
     //             if (scoresValue != null) {
     //                 protoOutputStream.writeInt32(2, scoresValue);
     //             }
+    //             // Back-patch the length of the entry
+    //             protoOutputStream.writeEndLengthDelimitedProperty(scoresEntryMarker);
     //         }
     //     }
+    //
+    // When the map is written in reverse, the value is written before the key and the length and tag of the entry after both
     protected void writeMapSerializer(MethodSpec.Builder methodBuilder, long index, String name, String accessor, ProtobufPropertyType.MapType mapType) {
         // Null check the map
         methodBuilder.beginControlFlow("if ($L != null)", accessor);
@@ -79,11 +118,25 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
         // Iterate over map entries
         methodBuilder.beginControlFlow("for (var $L : $L.entrySet())", localVariableName, accessor);
 
-        // Write the map entry as a message (calls size calculator to get length)
-        var methodName = ProtobufSizeGenerator.getMapPropertyMethodName(name);
-        methodBuilder.addStatement("$L.writeMessage($L, $L($L))", OUTPUT_OBJECT_PARAMETER, index, methodName, localVariableName);
+        // Write the map entry as a message, its length is written from the size cache or back-patched once the key and value are written
+        var markerName = "%sMarker".formatted(localVariableName);
+        methodBuilder.addStatement("$L", getMessageStartMethod(index, markerName, localVariableName));
+
+        if(reversed()) {
+            writeMapValueSerializer(methodBuilder, name, localVariableName, mapType);
+            writeMapKeySerializer(methodBuilder, name, localVariableName, mapType);
+        }else {
+            writeMapKeySerializer(methodBuilder, name, localVariableName, mapType);
+            writeMapValueSerializer(methodBuilder, name, localVariableName, mapType);
+        }
+
+        methodBuilder.addStatement("$L", getMessageEndMethod(index, markerName));
+        methodBuilder.endControlFlow();
+        methodBuilder.endControlFlow();
+    }
 
-        // Write key (field index 1 in map entry message)
+    // Write key (field index 1 in map entry message)
+    private void writeMapKeySerializer(MethodSpec.Builder methodBuilder, String name, String localVariableName, ProtobufPropertyType.MapType mapType) {
         writeNormalSerializer(
                 methodBuilder,
                 1,
@@ -94,8 +147,10 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
                 false,
                 false
         );
+    }
 
-        // Write value (field index 2 in map entry message)
+    // Write value (field index 2 in map entry message)
+    private void writeMapValueSerializer(MethodSpec.Builder methodBuilder, String name, String localVariableName, ProtobufPropertyType.MapType mapType) {
         writeNormalSerializer(
                 methodBuilder,
                 2,
@@ -106,9 +161,6 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
                 true,
                 false
         );
-
-        methodBuilder.endControlFlow();
-        methodBuilder.endControlFlow();
     }
 
     // Convenience wrapper that delegates to writeCustomSerializer with default handlers
@@ -153,7 +205,7 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
     // Flow:
     //   1. Apply cast (if needed for generics)
     //   2. Declare variable (if needed to avoid repeated accessor calls)
-    //   3. Null check initial value (if non-primitive)
+    //   3. Null check initial value (if non-primitive), write back the bytes of a lazy message that was never decoded
     //   4. Apply each serializer in chain, null checking intermediate results
     //   5. Write final value to stream using appropriate writeXxx() method
     //   6. Close all null-check blocks
@@ -183,6 +235,14 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
             controlFlowDepth++;
         }
 
+        // Embedded messages wrapped in a ProtobufLazy that were never decoded are written back as they were read
+        if(isLazyMessage(type)) {
+            methodBuilder.beginControlFlow("if (!$L.isDecoded())", propertyName);
+            writeUndecodedLazy(methodBuilder, index, propertyName);
+            methodBuilder.nextControlFlow("else");
+            controlFlowDepth++;
+        }
+
         // Step 4: Apply each custom serializer in the chain
         var serializers = type.serializers();
         var object = isObject(type);
@@ -195,12 +255,16 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
             // Check if this is the last serializer and it's an object type or void
             var lastSerializer = i == serializers.size() - 1;
             if ((lastSerializer && writeMethod.isEmpty()) || serializer.returnType().getKind() == TypeKind.VOID) {
-                // For MESSAGE types, we need to write the message header first
+                // For MESSAGE types, the length is reserved before the message and back-patched after it
                 var statements = new ArrayList<String>();
                 if(type.protobufType() == ProtobufType.MESSAGE) {
-                    statements.add(getMessageMethod(index, serializer, propertyName));
+                    var markerName = "%sMarker".formatted(name);
+                    statements.add(getMessageStartMethod(index, markerName, propertyName));
+                    statements.add("%s".formatted(result));
+                    statements.add(getMessageEndMethod(index, markerName));
+                } else {
+                    statements.add("%s".formatted(result));
                 }
-                statements.add("%s".formatted(result));
                 objectWriter.handle(methodBuilder, propertyName, statements);
                 continue;
             }
@@ -238,18 +302,63 @@ public abstract class ProtobufSerializationGenerator extends ProtobufMethodGener
         }
     }
 
-    // Generates code to write a message header (calls sizeOf to get length)
-    // Returns: "protoOutputStream.writeMessage(index, MessageSpec.sizeOf(value))"
-    private String getMessageMethod(long index, ProtobufConverterElement.Attributed.Serializer serializer, String propertyName) {
-        return "%s.writeMessage(%s, %s.%s(%s))".formatted(
+    // The serializers of a lazy message are LazyMixin.toValue and the encode method of the message's Spec class
+    // If the message has custom serializers, the chain is longer and the message is always encoded through the mixin instead
+    private boolean isLazyMessage(ProtobufPropertyType type) {
+        return type.protobufType() == ProtobufType.MESSAGE
+                && isLazy(type.accessorType())
+                && type.serializers().size() == 2;
+    }
+
+    // Writes back the original bytes of a lazy message
+    // Generated code: payload.writeTo(2, protoOutputStream);
+    protected void writeUndecodedLazy(MethodSpec.Builder methodBuilder, long index, String value) {
+        methodBuilder.addStatement("$L.writeTo($L, $L)", value, index, OUTPUT_OBJECT_PARAMETER);
+    }
+
+    // Generates code to write a message header without computing the size of the message
+    // Calling sizeOf on every nested message would make encoding quadratic in the depth of the message:
+    // the length is written from the writer's size cache if sizeOf stored it there, or back-patched otherwise
+    // Returns: "var valueMarker = protoOutputStream.writeStartLengthDelimitedProperty(index, value)"
+    //
+    // When writing in reverse, the marker only records where the message ends: its length and tag are written after it
+    // Returns: "var valueMarker = protoOutputStream.writeStartLengthDelimitedProperty()"
+    private String getMessageStartMethod(long index, String markerName, String propertyName) {
+        if(reversed()) {
+            return "var %s = %s.writeStartLengthDelimitedProperty()".formatted(
+                    markerName,
+                    OUTPUT_OBJECT_PARAMETER
+            );
+        }
+
+        return "var %s = %s.writeStartLengthDelimitedProperty(%s, %s)".formatted(
+                markerName,
                 OUTPUT_OBJECT_PARAMETER,
                 index,
-                serializer.delegate().ownerName(),
-                ProtobufSizeGenerator.METHOD_NAME,
                 propertyName
         );
     }
 
+    // Generates code to back-patch the length of a message once it was written
+    // Returns: "protoOutputStream.writeEndLengthDelimitedProperty(valueMarker)"
+    //
+    // When writing in reverse, this writes the length and the tag of the message
+    // Returns: "protoOutputStream.writeEndLengthDelimitedProperty(index, valueMarker)"
+    private String getMessageEndMethod(long index, String markerName) {
+        if(reversed()) {
+            return "%s.writeEndLengthDelimitedProperty(%s, %s)".formatted(
+                    OUTPUT_OBJECT_PARAMETER,
+                    index,
+                    markerName
+            );
+        }
+
+        return "%s.writeEndLengthDelimitedProperty(%s)".formatted(
+                OUTPUT_OBJECT_PARAMETER,
+                markerName
+        );
+    }
+
     // Checks if a type is a complex object (MESSAGE/ENUM/GROUP) vs a primitive
     private boolean isObject(ProtobufPropertyType type) {
         return type.protobufType() == ProtobufType.MESSAGE
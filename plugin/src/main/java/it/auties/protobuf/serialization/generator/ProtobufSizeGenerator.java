@@ -1,6 +1,7 @@
 package it.auties.protobuf.serialization.generator;
 
 import com.palantir.javapoet.*;
+import it.auties.protobuf.io.ProtobufSizeCache;
 import it.auties.protobuf.model.ProtobufType;
 import it.auties.protobuf.model.ProtobufWireType;
 import it.auties.protobuf.serialization.model.ProtobufObjectElement;
@@ -15,6 +16,8 @@ import java.util.Map;
 // Computes the serialized byte size for protobuf messages including field tags, data, and nested structures
 public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerator {
     public static final String METHOD_NAME = "sizeOf";
+    // The sizes of the messages are stored in the cache, if any, so that the encoder doesn't have to back-patch their lengths
+    public static final String SIZE_CACHE_PARAMETER = "protoSizeCache";
     private static final String INPUT_OBJECT_PARAMETER = "protoInputObject";
     private static final String OUTPUT_SIZE_NAME = "protoOutputSize";
 
@@ -87,14 +90,14 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
     //     if (scoresMapField != null) {
     //         for (var scoresMapEntry : scoresMapField.entrySet()) {
     //             protoOutputSize += ProtobufOutputStream.getFieldSize(3, WIRE_TYPE_LENGTH_DELIMITED);
-    //             var scoresMapEntrySize = sizeOfScores(scoresMapEntry);
+    //             var scoresMapEntrySize = sizeOfScores(scoresMapEntry, protoSizeCache);
     //             protoOutputSize += ProtobufOutputStream.getVarIntSize(scoresMapEntrySize);
     //             protoOutputSize += scoresMapEntrySize;
     //         }
     //     }
     //
     //   Helper method (generated later via deferred operation):
-    //     private static int sizeOfScores(Map.Entry<String, Integer> entry) { ... }
+    //     private static int sizeOfScores(Map.Entry<String, Integer> entry, ProtobufSizeCache protoSizeCache) { ... }
     protected void writeMapSize(TypeSpec.Builder classBuilder, MethodSpec.Builder methodBuilder, long index, String name, String accessor, ProtobufPropertyType.MapType mapType, boolean cast) {
         // Store map in local variable
         var mapFieldName = name + "MapField";
@@ -114,7 +117,7 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
 
         // Calculate size of this entry using helper method
         var mapEntrySizeFieldName = mapEntryFieldName + "Size";
-        methodBuilder.addStatement("var $L = $L($L$L)", mapEntrySizeFieldName, methodName, cast ? "(java.util.Map.Entry) " : "", mapEntryFieldName);
+        methodBuilder.addStatement("var $L = $L($L$L, $L)", mapEntrySizeFieldName, methodName, cast ? "(java.util.Map.Entry) " : "", mapEntryFieldName, SIZE_CACHE_PARAMETER);
 
         // Add varint size of entry length + actual entry size
         methodBuilder.addStatement("$L += ProtobufOutputStream.getVarIntSize($L)", OUTPUT_SIZE_NAME, mapEntrySizeFieldName);
@@ -127,7 +130,7 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
     //
     // Example for Map<String, Integer> scores:
     //   Generated method:
-    //     private static int sizeOfScores(Map.Entry<String, Integer> protoInputObject) {
+    //     private static int sizeOfScores(Map.Entry<String, Integer> protoInputObject, ProtobufSizeCache protoSizeCache) {
     //         var protoOutputSize = 0;
     //         // Key (field 1 in map entry message)
     //         protoOutputSize += ProtobufOutputStream.getFieldSize(1, WIRE_TYPE_LENGTH_DELIMITED);
@@ -139,6 +142,9 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
     //         protoOutputSize += ProtobufOutputStream.getFieldSize(2, WIRE_TYPE_VAR_INT);
     //         var scoresMapValue = protoInputObject.getValue();
     //         protoOutputSize += ProtobufOutputStream.getVarIntSize(scoresMapValue);
+    //         if (protoSizeCache != null) {
+    //             protoSizeCache.put(protoInputObject, protoOutputSize);
+    //         }
     //         return protoOutputSize;
     //     }
     private void writeMapEntryPropertySizeMethod(TypeSpec.Builder classBuilder, String name, ProtobufPropertyType.MapType mapType, String methodName, boolean cast) {
@@ -154,6 +160,10 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
                 ParameterizedTypeName.get(ClassName.get(Map.Entry.class), keyTypeName, valueTypeName),
                 INPUT_OBJECT_PARAMETER
         ).build());
+        mapEntryMethodBuilder.addParameter(ParameterSpec.builder(
+                ClassName.get(ProtobufSizeCache.class),
+                SIZE_CACHE_PARAMETER
+        ).build());
 
         // Initialize size accumulator
         mapEntryMethodBuilder.addStatement("var $L = 0", OUTPUT_SIZE_NAME);
@@ -178,6 +188,9 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
                 INPUT_OBJECT_PARAMETER + ".getValue()"
         );
 
+        // Store the size of the entry, so that the encoder can write its length right away
+        writeSizeCacheStatement(mapEntryMethodBuilder);
+
         // Return total size
         mapEntryMethodBuilder.addStatement("return $L", OUTPUT_SIZE_NAME);
         classBuilder.addMethod(mapEntryMethodBuilder.build());
@@ -237,6 +250,15 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
         );
     }
 
+    // A lazy message that was never decoded is written back as it was read
+    // Size = field_tag + varint(length) + length
+    @Override
+    protected void writeUndecodedLazy(MethodSpec.Builder methodBuilder, long index, String value) {
+        writeFieldTagSize(methodBuilder, index, ProtobufType.MESSAGE);
+        methodBuilder.addStatement("$L += ProtobufOutputStream.getVarIntSize($L.encodedLength())", OUTPUT_SIZE_NAME, value);
+        methodBuilder.addStatement("$L += $L.encodedLength()", OUTPUT_SIZE_NAME, value);
+    }
+
     // Calculates size for MESSAGE, ENUM, and GROUP types
     // These types require recursive calls to their respective Spec classes
     //
@@ -254,11 +276,14 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
                 var specName = getSpecFromObject(parameterType);
 
                 // Recursively call the nested type's sizeOf method
+                // Messages get the size cache so that they store their own size and the one of their embedded messages
                 var serializedObjectFieldName = name + "SerializedSize";
-                methodBuilder.addStatement("var $L = $L.$L($L)", serializedObjectFieldName, specName, name(), accessor);
+                if (isEnum(parameterType)) {
+                    methodBuilder.addStatement("var $L = $L.$L($L)", serializedObjectFieldName, specName, name(), accessor);
+                } else {
+                    methodBuilder.addStatement("var $L = $L.$L($L, $L)", serializedObjectFieldName, specName, name(), accessor, SIZE_CACHE_PARAMETER);
 
-                // For messages: add the varint size of the length prefix
-                if (!isEnum(parameterType)) {
+                    // For messages: add the varint size of the length prefix
                     methodBuilder.addStatement("$L += ProtobufOutputStream.getVarIntSize($L)", OUTPUT_SIZE_NAME, serializedObjectFieldName);
                 }
 
@@ -278,7 +303,7 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
                     var groupType = type.serializers().isEmpty() ? type.descriptorElementType() : type.serializers().getLast().parameterType();
                     var groupSpecType = getSpecFromObject(groupType);
                     var serializedObjectFieldName = name + "SerializedSize";
-                    methodBuilder.addStatement("var $L = $L.$L($L, $L$L)", serializedObjectFieldName, groupSpecType, name(), index, castType != null ? "(" + castType + ") " : "", accessor);
+                    methodBuilder.addStatement("var $L = $L.$L($L, $L$L, $L)", serializedObjectFieldName, groupSpecType, name(), index, castType != null ? "(" + castType + ") " : "", accessor, SIZE_CACHE_PARAMETER);
                     methodBuilder.addStatement("$L += $L", OUTPUT_SIZE_NAME, serializedObjectFieldName);
                 }
             }
@@ -286,6 +311,17 @@ public abstract class ProtobufSizeGenerator extends ProtobufSerializationGenerat
         }
     }
 
+    // Stores the computed size in the size cache, keyed by the input object
+    // Generated code:
+    //   if (protoSizeCache != null) {
+    //       protoSizeCache.put(protoInputObject, protoOutputSize);
+    //   }
+    protected void writeSizeCacheStatement(MethodSpec.Builder methodBuilder) {
+        methodBuilder.beginControlFlow("if ($L != null)", SIZE_CACHE_PARAMETER);
+        methodBuilder.addStatement("$L.put($L, $L)", SIZE_CACHE_PARAMETER, INPUT_OBJECT_PARAMETER, OUTPUT_SIZE_NAME);
+        methodBuilder.endControlFlow();
+    }
+
     // Calculates size for primitive types (strings, numbers, bytes, bools)
     // Size calculation depends on the wire type:
     //   - Fixed-size types (FIXED32/64, FLOAT/DOUBLE, BOOL): constant size
@@ -1,12 +1,16 @@
 package it.auties.protobuf.serialization.model;
 
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.type.TypeMirror;
 
+// The accessor is null if the field is private and has no getter/accessor
+// It's only needed by the serializer for stores that are written back, like ProtobufRawUnknownFields
 public record ProtobufUnknownFieldsElement(
         TypeMirror type,
         String defaultValue,
-        ExecutableElement setter
+        ExecutableElement setter,
+        Element accessor
 ) {
 
 }